@@ -0,0 +1,60 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared setup of the benchmarks: generates a synthetic chat log of the requested shape once per trial.
+ * The shape can be changed from the command line, e.g. {@code -p messages=1000000 -p senders=10}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class ChatLogBenchmark {
+    @Param({"100000"})
+    public int messages;
+
+    @Param({"10", "1000"})
+    public int senders;
+
+    @Param({"80"})
+    public int messageLength;
+
+    @Param({"10"})
+    public int blacklistSize;
+
+    protected Path directory;
+    protected String inputFilePath;
+    protected String outputFilePath;
+    protected List<String> blacklist;
+    protected String keyword;
+    protected String sender;
+
+    @Setup(Level.Trial)
+    public void generateChatLog() throws IOException {
+        ChatLogGenerator generator = new ChatLogGenerator(messages, senders, messageLength, 42);
+        directory = Files.createTempDirectory("my-chat-benchmark");
+        Path input = directory.resolve("chat.txt");
+        generator.write(input);
+        inputFilePath = input.toString();
+        outputFilePath = directory.resolve("chat.json").toString();
+        blacklist = generator.blacklist(blacklistSize);
+        keyword = generator.keyword();
+        sender = generator.sender();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteChatLog() throws IOException {
+        Files.deleteIfExists(directory.resolve("chat.txt"));
+        Files.deleteIfExists(directory.resolve("chat.json"));
+        Files.deleteIfExists(directory);
+    }
+}
@@ -0,0 +1,117 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic chat logs in the format read by the exporter.
+ * Words are drawn from a fixed vocabulary with a skewed distribution, so a few words are common and most
+ * are rare like in real conversations. The same seed always generates the same log.
+ */
+public final class ChatLogGenerator {
+    private static final int VOCABULARY_SIZE = 2000;
+    private static final long FIRST_TIMESTAMP = 1448470901L;
+
+    private final int messages;
+    private final int senders;
+    private final int messageLength;
+    private final long seed;
+    private final String[] vocabulary;
+
+    /**
+     * Initialises a generator
+     * @param messages The number of messages in the log
+     * @param senders The number of distinct senders
+     * @param messageLength The average length of a message in characters
+     * @param seed The seed of the random words and senders
+     */
+    public ChatLogGenerator(int messages, int senders, int messageLength, long seed) {
+        if(messages < 0 || senders < 1 || messageLength < 1) {
+            throw new IllegalArgumentException("Invalid chat log shape: " + messages + " messages, "
+                    + senders + " senders, " + messageLength + " characters");
+        }
+        this.messages = messages;
+        this.senders = senders;
+        this.messageLength = messageLength;
+        this.seed = seed;
+        this.vocabulary = buildVocabulary(new Random(seed));
+    }
+
+    /**
+     * Picks blacklisted words from the most common words of the vocabulary, so they are actually redacted
+     * @param size The number of words
+     * @return the blacklisted words
+     */
+    public List<String> blacklist(int size) {
+        return new ArrayList<>(Arrays.asList(vocabulary).subList(0, Math.min(size, vocabulary.length)));
+    }
+
+    /**
+     * @return a word that appears in a fair share of the messages, but not in all of them
+     */
+    public String keyword() {
+        return vocabulary[vocabulary.length / 20];
+    }
+
+    /**
+     * @return the name of one of the senders
+     */
+    public String sender() {
+        return "user" + (senders / 2);
+    }
+
+    /**
+     * Writes the chat log to a file
+     * @param path The file to write
+     * @throws IOException Thrown when the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        Random random = new Random(seed + 1);
+        StringBuilder line = new StringBuilder(messageLength * 2);
+        try (BufferedWriter w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            w.write("Benchmark Conversation\n");
+            for(int i = 0; i < messages; i++) {
+                line.setLength(0);
+                line.append(FIRST_TIMESTAMP + i).append(' ').append("user").append(random.nextInt(senders)).append(' ');
+                int contentStart = line.length();
+                // lengths vary between half and one and a half times the average
+                int length = messageLength / 2 + random.nextInt(messageLength);
+                while(line.length() - contentStart < length) {
+                    if(line.length() > contentStart) {
+                        line.append(' ');
+                    }
+                    line.append(nextWord(random));
+                }
+                line.append('\n');
+                w.append(line);
+            }
+        }
+    }
+
+    /**
+     * Picks a word, low indexes far more often than high ones
+     */
+    private String nextWord(Random random) {
+        double r = random.nextDouble();
+        return vocabulary[(int) (r * r * r * vocabulary.length)];
+    }
+
+    private static String[] buildVocabulary(Random random) {
+        String[] words = new String[VOCABULARY_SIZE];
+        for(int i = 0; i < words.length; i++) {
+            char[] word = new char[3 + random.nextInt(8)];
+            for(int j = 0; j < word.length; j++) {
+                word[j] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(word);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,58 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat.benchmarks;
+
+import com.mindlinksoft.recruitment.juliankubelec.mychat.ConversationExporter;
+import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.EmptyTextFileException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Measures the whole {@link ConversationExporter#exportConversation} pipeline, redacting the blacklist and
+ * including the activity report, once for each way of reading the input.
+ */
+public class PipelineBenchmark extends ChatLogBenchmark {
+    @Param({"default", "stream", "parallel", "mmap", "columnar"})
+    public String mode;
+
+    private ConversationExporter exporter;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void configureExporter() {
+        exporter = new ConversationExporter();
+        exporter.setBlacklist(blacklist);
+        exporter.setIncludeReport(true);
+        exporter.setStreaming("stream".equals(mode));
+        exporter.setParallel("parallel".equals(mode));
+        exporter.setMemoryMapped("mmap".equals(mode));
+        exporter.setColumnar("columnar".equals(mode));
+
+        // the exporter reports every export on the console, which would only measure the terminal
+        stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConsole() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void exportConversation() throws IOException, EmptyTextFileException {
+        exporter.exportConversation(inputFilePath, outputFilePath);
+    }
+}
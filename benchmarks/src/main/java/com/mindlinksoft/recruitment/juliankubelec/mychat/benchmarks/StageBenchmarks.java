@@ -0,0 +1,62 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat.benchmarks;
+
+import com.mindlinksoft.recruitment.juliankubelec.mychat.Activity;
+import com.mindlinksoft.recruitment.juliankubelec.mychat.Conversation;
+import com.mindlinksoft.recruitment.juliankubelec.mychat.ConversationExporter;
+import com.mindlinksoft.recruitment.juliankubelec.mychat.FilteredConversationBuilder;
+import com.mindlinksoft.recruitment.juliankubelec.mychat.RedactedConversationBuilder;
+import com.mindlinksoft.recruitment.juliankubelec.mychat.Report;
+import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.EmptyTextFileException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Measures each stage of an export on its own, over a conversation parsed once per trial.
+ */
+public class StageBenchmarks extends ChatLogBenchmark {
+    private ConversationExporter exporter;
+    private Conversation conversation;
+
+    @Setup(Level.Trial)
+    public void readChatLog() throws IOException, EmptyTextFileException {
+        exporter = new ConversationExporter();
+        conversation = exporter.readConversation(inputFilePath);
+    }
+
+    @Benchmark
+    public Conversation parse() throws IOException, EmptyTextFileException {
+        return exporter.readConversation(inputFilePath);
+    }
+
+    @Benchmark
+    public Conversation filterByUser() {
+        return new FilteredConversationBuilder(conversation).byUser(sender).build();
+    }
+
+    @Benchmark
+    public Conversation filterByKeyword() {
+        return new FilteredConversationBuilder(conversation).byKeyword(keyword).build();
+    }
+
+    @Benchmark
+    public Conversation redact() {
+        return new RedactedConversationBuilder(conversation).byBlacklistedWords(blacklist).build();
+    }
+
+    @Benchmark
+    public Collection<Report> report() {
+        Activity activity = new Activity(conversation.getSenders());
+        activity.extractStats(conversation);
+        return activity.getReports();
+    }
+
+    @Benchmark
+    public void serialize() throws IOException {
+        exporter.setConversation(conversation);
+        exporter.writeConversation(conversation, outputFilePath);
+    }
+}
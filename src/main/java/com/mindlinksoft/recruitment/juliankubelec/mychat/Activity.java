@@ -3,6 +3,11 @@ package com.mindlinksoft.recruitment.juliankubelec.mychat;
 
 import java.util.*;
 
+/**
+ * Counts the number of messages sent by each user in a single pass.
+ * Senders are interned into a {@link SenderDictionary} so each message only costs an array increment,
+ * and messages can be recorded one at a time while a conversation is streamed.
+ */
 public final class Activity {
     public String getName() {
         return name;
@@ -14,43 +19,157 @@ public final class Activity {
 
     private String name = "activity";
     private Collection<Report> reports;
+    private final SenderDictionary senders;
+    private final boolean sharedSenders;
+    private int[] counts = new int[16];
+    private int limit = 0;
 
+    public Activity() {
+        this.senders = new SenderDictionary();
+        this.sharedSenders = false;
+    }
+
+    /**
+     * Initialises an activity that counts senders using ids from the given dictionary.
+     * Messages carrying a sender id are trusted to have been parsed with this dictionary,
+     * so they are counted without looking the sender up again
+     * @param senders The dictionary used to intern senders
+     */
+    public Activity(SenderDictionary senders) {
+        this.senders = senders;
+        this.sharedSenders = true;
+    }
+
+    /**
+     * Limits the report to the senders with the most messages
+     * @param limit The number of senders to report, or 0 to report every sender
+     */
+    public void setLimit(int limit) {
+        if(limit < 0) {
+            throw new IllegalArgumentException("The report limit must not be negative, was: " + limit);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Builds the reports for a complete conversation in one pass over its messages
+     * @param conversation The conversation to report on
+     */
     public void extractStats(Conversation conversation) {
-        HashSet<Report> reportSet = new HashSet<>();
-        List<Message> msgs = (List<Message>) conversation.getMessages();
-        for (Message msg : msgs) {
-            Conversation c = new Conversation(conversation.getName(), conversation.getMessages()); // copy conversation
-            ConversationBuilder cb = new ConversationBuilder(c);
-            c = cb.filter().byUser(msg.getSenderId()).build();
-            if (c.getMessages().size() > 0) {
-                Report r = new Report(msg.getSenderId(), c.getMessages().size());
-                reportSet.add(r);
-            }
+        Arrays.fill(counts, 0);
+        for (Message msg : conversation.getMessages()) {
+            record(msg);
         }
-        reports = new ArrayList<>();
-        reports.addAll(reportSet);
+        finish();
+    }
 
-        ((List<Report>) reports).sort(new SortReport());
-        Collections.reverse((List<Report>) reports);
+    /**
+     * Counts a single message towards the report, so the report can be built
+     * while the conversation is streamed instead of from a complete conversation.
+     * Call {@link #finish()} once every message has been recorded.
+     * @param msg The message to count
+     */
+    public void record(Message msg) {
+        int senderKey = sharedSenders ? msg.getSenderKey() : -1;
+        record(senderKey >= 0 ? senderKey : senders.intern(msg.getSenderId()));
     }
 
     /**
-     * Inner class to provide way to sort the Activity
-     *
+     * Counts a single message from a sender that has already been interned
+     * @param senderId The id of the sender in this activity's {@link SenderDictionary}
      */
-    static class SortReport implements Comparator<Report>{
-        /**
-         *
-         * @param o1 first report to compare
-         * @param o2 second report to compare
-         * @return if result is positive, o1 has more messages.
-         * If result is 0 they have the same amount. If it's negative
-         * o2 is larger
-         */
-        @Override
-        public int compare(Report o1, Report o2) {
-            return o1.getCount() - o2.getCount();
+    public void record(int senderId) {
+        ensureCapacity(senderId);
+        counts[senderId]++;
+    }
+
+    private void ensureCapacity(int senderId) {
+        if(senderId >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(counts.length * 2, senderId + 1));
         }
     }
 
+    /**
+     * Adds messages counted elsewhere, such as in an earlier run over the start of the conversation
+     * @param sender The sender of the messages
+     * @param count The number of messages
+     */
+    public void add(String sender, int count) {
+        int senderId = senders.intern(sender);
+        ensureCapacity(senderId);
+        counts[senderId] += count;
+    }
+
+    /**
+     * @return the number of messages recorded for every sender that sent any, in order of first appearance
+     */
+    public Map<String, Integer> getCounts() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for(int id = 0; id < senders.size(); id++) {
+            if(getCount(id) > 0) {
+                result.put(senders.getSender(id), counts[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds the reports from every message passed to {@link #record(Message)},
+     * sorted in descending order of number of messages sent
+     */
+    public void finish() {
+        Comparator<Integer> bySize = this::compareSenders;
+        List<Integer> ids = new ArrayList<>();
+        if(limit > 0 && limit < senders.size()) {
+            // min-heap of the top senders so far, the smallest is evicted when a bigger one turns up
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit, bySize);
+            for(int id = 0; id < senders.size(); id++) {
+                if(getCount(id) == 0) {
+                    continue;
+                }
+                if(top.size() < limit) {
+                    top.add(id);
+                }
+                else if(bySize.compare(id, top.peek()) > 0) {
+                    top.poll();
+                    top.add(id);
+                }
+            }
+            ids.addAll(top);
+        }
+        else {
+            for(int id = 0; id < senders.size(); id++) {
+                if(getCount(id) > 0) {
+                    ids.add(id);
+                }
+            }
+        }
+        ids.sort(Collections.reverseOrder(bySize));
+
+        List<Report> sorted = new ArrayList<>(ids.size());
+        for(int id: ids) {
+            sorted.add(new Report(senders.getSender(id), counts[id]));
+        }
+        reports = sorted;
+    }
+
+    /**
+     * @param senderId The id of the sender in this activity's {@link SenderDictionary}
+     * @return the number of messages recorded for the sender
+     */
+    private int getCount(int senderId) {
+        return senderId < counts.length ? counts[senderId] : 0;
+    }
+
+    /**
+     * Orders senders by number of messages sent, senders with the same amount
+     * are ordered by descending name so they come out alphabetically once reversed
+     */
+    private int compareSenders(int a, int b) {
+        int result = Integer.compare(getCount(a), getCount(b));
+        if(result == 0) {
+            result = senders.getSender(b).compareTo(senders.getSender(a));
+        }
+        return result;
+    }
 }
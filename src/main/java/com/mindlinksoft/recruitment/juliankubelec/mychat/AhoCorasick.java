@@ -0,0 +1,158 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton that finds every occurrence of a set of patterns in a single scan of the text,
+ * however many patterns there are.
+ * The automaton is immutable once built, so one instance can be shared between threads.
+ */
+final class AhoCorasick {
+    private static final int[] NO_OUTPUTS = new int[0];
+
+    /**
+     * Receives the matches found by {@link #search(CharSequence, MatchHandler)}
+     */
+    interface MatchHandler {
+        /**
+         * @param pattern The index of the pattern that matched
+         * @param end The index in the text just after the match
+         * @return true to carry on searching, false to stop
+         */
+        boolean onMatch(int pattern, int end);
+    }
+
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    private final int[][] outputs;
+    private final int[] lengths;
+
+    /**
+     * Builds the automaton for the given patterns
+     * @param patterns The patterns to search for, the index in the list is the one reported on a match
+     */
+    AhoCorasick(List<String> patterns) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        out.add(new ArrayList<>());
+
+        lengths = new int[patterns.size()];
+        for(int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            if(pattern.isEmpty()) {
+                throw new IllegalArgumentException("Patterns must not be empty");
+            }
+            lengths[p] = pattern.length();
+            int state = 0;
+            for(int i = 0; i < pattern.length(); i++) {
+                Integer next = trie.get(state).get(pattern.charAt(i));
+                if(next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    out.add(new ArrayList<>());
+                    trie.get(state).put(pattern.charAt(i), next);
+                }
+                state = next;
+            }
+            out.get(state).add(p);
+        }
+
+        int states = trie.size();
+        keys = new char[states][];
+        targets = new int[states][];
+        for(int s = 0; s < states; s++) {
+            keys[s] = new char[trie.get(s).size()];
+            targets[s] = new int[trie.get(s).size()];
+            int i = 0;
+            for(Map.Entry<Character, Integer> edge: trie.get(s).entrySet()) {
+                keys[s][i] = edge.getKey();
+                targets[s][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        // breadth first, so the failure link of a state is always resolved before its children
+        fail = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while(!queue.isEmpty()) {
+            int s = queue.poll();
+            for(int i = 0; i < keys[s].length; i++) {
+                char c = keys[s][i];
+                int t = targets[s][i];
+                queue.add(t);
+                int f = fail[s];
+                int g;
+                while((g = next(f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[t] = (g >= 0 && g != t) ? g : 0;
+                out.get(t).addAll(out.get(fail[t]));
+            }
+        }
+
+        outputs = new int[states][];
+        for(int s = 0; s < states; s++) {
+            List<Integer> o = out.get(s);
+            if(o.isEmpty()) {
+                outputs[s] = NO_OUTPUTS;
+            }
+            else {
+                outputs[s] = new int[o.size()];
+                for(int i = 0; i < o.size(); i++) {
+                    outputs[s][i] = o.get(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param pattern The index of the pattern
+     * @return the length of the pattern
+     */
+    int patternLength(int pattern) {
+        return lengths[pattern];
+    }
+
+    /**
+     * @return the number of patterns in the automaton
+     */
+    int patternCount() {
+        return lengths.length;
+    }
+
+    /**
+     * Scans the text once, reporting every occurrence of every pattern in order of where it ends
+     * @param text The text to search
+     * @param handler Receives each match
+     */
+    void search(CharSequence text, MatchHandler handler) {
+        int state = 0;
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while((next = next(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next < 0 ? 0 : next;
+            for(int pattern: outputs[state]) {
+                if(!handler.onMatch(pattern, i + 1)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private int next(int state, char c) {
+        int i = Arrays.binarySearch(keys[state], c);
+        return i < 0 ? -1 : targets[state][i];
+    }
+}
@@ -0,0 +1,172 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Collects capacity-planning figures in the same pass as the {@link Activity} report, in a fixed amount of memory
+ * however many messages there are:
+ * <ul>
+ *     <li>the messages sent per minute and per hour, see {@link TimeHistogram}</li>
+ *     <li>the peak burst, the shortest time in which {@value #BURST_MESSAGES} messages in a row were sent</li>
+ *     <li>percentiles of the message length of every sender, see {@link LengthHistogram}</li>
+ * </ul>
+ * The burst assumes messages are recorded in the order they were sent, as they are in a chat log.
+ * Analytics are not thread-safe.
+ */
+public final class Analytics {
+    static final int BURST_MESSAGES = 100;
+    private static final int MAX_BUCKETS = 4096;
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final TimeHistogram perMinute = new TimeHistogram(60, MAX_BUCKETS);
+    private final TimeHistogram perHour = new TimeHistogram(3600, MAX_BUCKETS);
+    private final long[] recent = new long[BURST_MESSAGES];
+    private long messages;
+    private long burstSeconds = -1;
+    private long burstStart;
+    private final SenderDictionary senders;
+    private final boolean sharedSenders;
+    private LengthHistogram[] lengths = new LengthHistogram[16];
+
+    public Analytics() {
+        this.senders = new SenderDictionary();
+        this.sharedSenders = false;
+    }
+
+    /**
+     * Initialises analytics that tell senders apart by their id in the given dictionary.
+     * Messages carrying a sender id are trusted to have been parsed with this dictionary
+     * @param senders The dictionary used to intern senders
+     */
+    public Analytics(SenderDictionary senders) {
+        this.senders = senders;
+        this.sharedSenders = true;
+    }
+
+    /**
+     * Counts a single message towards the histograms, the burst and the length percentiles of its sender
+     * @param msg The message to count
+     */
+    public void record(Message msg) {
+        long second = msg.getTimestamp().getEpochSecond();
+        perMinute.record(second);
+        perHour.record(second);
+
+        recent[(int) (messages % BURST_MESSAGES)] = second;
+        messages++;
+        if(messages >= BURST_MESSAGES) {
+            // the slot written next holds the oldest of the last BURST_MESSAGES timestamps
+            long start = recent[(int) (messages % BURST_MESSAGES)];
+            long seconds = second - start;
+            if(seconds >= 0 && (burstSeconds < 0 || seconds < burstSeconds)) {
+                burstSeconds = seconds;
+                burstStart = start;
+            }
+        }
+
+        int senderKey = sharedSenders ? msg.getSenderKey() : -1;
+        int senderId = senderKey >= 0 ? senderKey : senders.intern(msg.getSenderId());
+        if(senderId >= lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(lengths.length * 2, senderId + 1));
+        }
+        if(lengths[senderId] == null) {
+            lengths[senderId] = new LengthHistogram();
+        }
+        lengths[senderId].record(msg.getContent() == null ? 0 : msg.getContent().length());
+    }
+
+    /**
+     * @return the number of messages recorded
+     */
+    public long getMessages() {
+        return messages;
+    }
+
+    public TimeHistogram getPerMinute() {
+        return perMinute;
+    }
+    public TimeHistogram getPerHour() {
+        return perHour;
+    }
+
+    /**
+     * @return the number of messages in the peak burst, {@value #BURST_MESSAGES} unless fewer were recorded
+     */
+    public long getBurstMessages() {
+        return Math.min(messages, BURST_MESSAGES);
+    }
+
+    /**
+     * @return the seconds between the first and last message of the peak burst, or -1 if no message was recorded.
+     * With fewer than {@value #BURST_MESSAGES} messages the burst is the whole conversation
+     */
+    public long getBurstSeconds() {
+        if(messages >= BURST_MESSAGES) {
+            return burstSeconds;
+        }
+        return messages == 0 ? -1 : recent[(int) messages - 1] - recent[0];
+    }
+
+    /**
+     * @return when the peak burst started, or null if no message was recorded
+     */
+    public Instant getBurstStart() {
+        if(messages == 0) {
+            return null;
+        }
+        return Instant.ofEpochSecond(messages >= BURST_MESSAGES ? burstStart : recent[0]);
+    }
+
+    /**
+     * @param sender The sender
+     * @return the lengths of the sender's messages, or null if the sender sent none
+     */
+    public LengthHistogram getLengths(String sender) {
+        int id = senders.lookup(sender);
+        return id < 0 || id >= lengths.length ? null : lengths[id];
+    }
+
+    /**
+     * Writes the analytics as a JSON object, with timestamps as unix timestamps like those of the messages
+     * and senders in order of their first message
+     * @param writer The writer, positioned where a value is expected
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("messages").value(messages);
+        writer.name("perMinute");
+        perMinute.write(writer);
+        writer.name("perHour");
+        perHour.write(writer);
+        if(messages > 0) {
+            writer.name("burst").beginObject();
+            writer.name("messages").value(getBurstMessages());
+            writer.name("seconds").value(getBurstSeconds());
+            writer.name("start").value(getBurstStart().getEpochSecond());
+            writer.endObject();
+        }
+        writer.name("messageLengths").beginArray();
+        for(int id = 0; id < lengths.length && id < senders.size(); id++) {
+            LengthHistogram histogram = lengths[id];
+            if(histogram == null) {
+                continue;
+            }
+            writer.beginObject();
+            writer.name("sender").value(senders.getSender(id));
+            writer.name("messages").value(histogram.getCount());
+            writer.name("mean").value(histogram.getMean());
+            for(double percentile: PERCENTILES) {
+                writer.name("p" + (int) percentile).value(histogram.getValueAtPercentile(percentile));
+            }
+            writer.name("max").value(histogram.getMax());
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+}
@@ -0,0 +1,157 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs exports without blocking the caller, completing a {@link CompletableFuture} with the result of each export.
+ * Exports run on an executor: on JDK 21 and later {@link #create(ConversationExporter, int)} runs every export
+ * on a virtual thread of its own, so thousands of exports waiting on I/O don't need thousands of OS threads.
+ * On earlier JDKs a fixed pool of daemon threads is used instead.
+ * Cancelling the future, or letting it time out, interrupts the export, which stops at the next message.
+ * The output of an interrupted export is left unfinished.
+ */
+public final class AsyncExporter implements Closeable {
+    private final ConversationExporter exporter;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final ScheduledExecutorService timeouts;
+
+    /**
+     * Initialises an asynchronous exporter running exports on the given executor, which is left open on close()
+     * @param exporter The exporter running the exports
+     * @param executor The executor the exports run on
+     */
+    public AsyncExporter(ConversationExporter exporter, ExecutorService executor) {
+        this(exporter, executor, false);
+    }
+
+    private AsyncExporter(ConversationExporter exporter, ExecutorService executor, boolean ownsExecutor) {
+        this.exporter = exporter;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(daemonThreads("export-timeout"));
+    }
+
+    /**
+     * Creates an asynchronous exporter with an executor of its own, shut down on close()
+     * @param exporter The exporter running the exports
+     * @param threads The number of exports run at the same time when virtual threads are not available
+     * @return an exporter running each export on a virtual thread on JDK 21 and later,
+     * otherwise on a pool of {@code threads} threads
+     */
+    public static AsyncExporter create(ConversationExporter exporter, int threads) {
+        if(threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive, was: " + threads);
+        }
+        ExecutorService executor = newVirtualThreadExecutor();
+        if(executor == null) {
+            executor = Executors.newFixedThreadPool(threads, daemonThreads("export-async"));
+        }
+        return new AsyncExporter(exporter, executor, true);
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()}, which only exists on JDK 21 and later
+     * @return an executor starting a virtual thread per task, or null if virtual threads are not available
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts exporting the conversation at {@code inputFilePath} to {@code outputFilePath}
+     * @param inputFilePath The input file path.
+     * @param outputFilePath The output file path.
+     * @param options The options of this export.
+     * @return the future result of the export, completed exceptionally with the exception export() would throw.
+     * Cancelling it interrupts the export
+     */
+    public CompletableFuture<ExportResult> export(String inputFilePath, String outputFilePath, ExportOptions options) {
+        CompletableFuture<ExportResult> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                // cancelled or timed out while it was waiting for a thread
+                if(result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(exporter.export(inputFilePath, outputFilePath, options));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.whenComplete((r, e) -> {
+            if(e != null) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Starts exporting the conversation at {@code inputFilePath} to {@code outputFilePath},
+     * giving up on it once the timeout has passed
+     * @param inputFilePath The input file path.
+     * @param outputFilePath The output file path.
+     * @param options The options of this export.
+     * @param timeout The time the export may take, including the time it waits for a thread
+     * @param unit The unit of the timeout
+     * @return the future result of the export, completed exceptionally with a {@link TimeoutException}
+     * if the export did not finish in time
+     */
+    public CompletableFuture<ExportResult> export(String inputFilePath, String outputFilePath, ExportOptions options,
+                                                  long timeout, TimeUnit unit) {
+        CompletableFuture<ExportResult> result = export(inputFilePath, outputFilePath, options);
+        if(result.isDone()) {
+            return result;
+        }
+        ScheduledFuture<?> timer = timeouts.schedule(() -> result.completeExceptionally(new TimeoutException(
+                "The export of \"" + inputFilePath + "\" took longer than " + timeout + " "
+                        + unit.toString().toLowerCase(Locale.ROOT))), timeout, unit);
+        result.whenComplete((r, e) -> timer.cancel(false));
+        return result;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Stops the timeouts, and the executor if it was created by create(). Exports already started carry on
+     */
+    @Override
+    public void close() {
+        timeouts.shutdownNow();
+        if(ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces files such as indexes and checkpoints in a single move, so a reader never sees a half-written file.
+ * Every write goes through a temporary file of its own in the same directory, so exports of the same input
+ * running at the same time never write to the same temporary file, and the last one to finish wins.
+ */
+final class AtomicFiles {
+    static final String TEMP_EXTENSION = ".tmp";
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Writes the contents of a file
+     */
+    interface Contents {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes a file to a temporary file next to it, then moves it into place
+     * @param path The file to replace
+     * @param contents Writes the contents of the file, the stream is closed afterwards
+     * @throws IOException Thrown when the file cannot be written, the temporary file is then deleted
+     */
+    static void write(Path path, Contents contents) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString() + ".", TEMP_EXTENSION);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                contents.writeTo(out);
+            }
+            try {
+                // a plain replacing move deletes the old file first, racing with other moves into the same path
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+}
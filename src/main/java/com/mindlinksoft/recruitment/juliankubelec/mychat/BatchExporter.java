@@ -0,0 +1,207 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports every chat log in a directory, or matching a glob, in a single JVM.
+ * Files are exported on a fixed number of worker threads with a bounded queue, so a run over tens of
+ * thousands of files never holds more than a few pending tasks. Every worker shares the same exporter,
+ * and each file gets its own error handling, so one bad file is recorded as a failure without stopping the rest of the run.
+ */
+public class BatchExporter {
+    /**
+     * The files the exporter writes next to its inputs and outputs, which are never chat logs themselves
+     */
+    private static final String[] SIDECAR_EXTENSIONS = {TimeIndex.EXTENSION, KeywordIndex.EXTENSION,
+            Checkpoint.EXTENSION, ExportStats.EXTENSION, AtomicFiles.TEMP_EXTENSION};
+
+    private final ConversationExporter exporter;
+    private final ExportOptions options;
+    private final int threads;
+
+    /**
+     * Initialises a batch exporter
+     * @param exporter The exporter shared by the workers
+     * @param options The options every file is exported with, the status of each file is never printed
+     * @param threads The number of files exported at the same time
+     */
+    public BatchExporter(ConversationExporter exporter, ExportOptions options, int threads) {
+        if(threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive, was: " + threads);
+        }
+        this.exporter = exporter;
+        this.options = options.toBuilder().setQuiet(true).build();
+        this.threads = threads;
+    }
+
+    /**
+     * Exports each input file to a JSON file, or an archive when the exporters write one,
+     * of the same name in the output directory. Inputs whose names only differ by their extension,
+     * such as {@code a.txt} and {@code a.log}, keep their whole name instead, as {@code a.txt.json} and {@code a.log.json}
+     * @param input A directory, whose files are all exported, or a glob such as {@code logs/*.txt}
+     * @param outputDirectory The directory the JSON files are written to, created if it doesn't exist
+     * @return the summary of the run
+     * @throws IllegalArgumentException Thrown when the input directory cannot be found
+     * @throws IOException Thrown when the input cannot be listed or the output directory cannot be created
+     */
+    public BatchResult export(String input, Path outputDirectory) throws IllegalArgumentException, IOException {
+        List<Path> files = listInputFiles(input);
+        Files.createDirectories(outputDirectory);
+        BatchResult result = new BatchResult();
+        long start = System.nanoTime();
+        String extension = options.getOutputExtension();
+
+        // the queue is bounded, and when it is full the submitting thread exports the file itself
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            Map<Path, String> names = outputFileNames(files, extension);
+            Set<String> written = new HashSet<>();
+            for(Path file: files) {
+                String name = names.get(file);
+                if(!written.add(name)) {
+                    result.failed(file, new IOException("Another input is already exported to " + name));
+                    continue;
+                }
+                Path output = outputDirectory.resolve(name);
+                pool.execute(() -> exportFile(file, output, result));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        result.finish(System.nanoTime() - start);
+        return result;
+    }
+
+    private void exportFile(Path file, Path output, BatchResult result) {
+        try {
+            long bytes = Files.size(file);
+            exporter.export(file.toString(), output.toString(), options);
+            result.succeeded(bytes);
+        } catch (Exception e) {
+            result.failed(file, e);
+        }
+    }
+
+    /**
+     * Lists the files to export, in name order, leaving out the indexes, checkpoints and stats
+     * earlier exports wrote next to them
+     * @param input A directory or a glob
+     * @return the matching regular files
+     * @throws IllegalArgumentException Thrown when the input directory cannot be found
+     * @throws IOException Thrown when the directory cannot be listed
+     */
+    static List<Path> listInputFiles(String input) throws IllegalArgumentException, IOException {
+        Path path = Paths.get(input);
+        Path directory;
+        PathMatcher matcher;
+        if(Files.isDirectory(path)) {
+            directory = path;
+            matcher = p -> true;
+        }
+        else {
+            directory = path.getParent() == null ? Paths.get(".") : path.getParent();
+            matcher = directory.getFileSystem().getPathMatcher("glob:" + path.getFileName());
+        }
+        if(!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("The directory: \""+ directory +"\"was not found.");
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for(Path entry: entries) {
+                if(Files.isRegularFile(entry) && matcher.matches(entry.getFileName()) && !isSidecar(entry)) {
+                    files.add(entry);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static boolean isSidecar(Path file) {
+        String name = file.getFileName().toString();
+        for(String extension: SIDECAR_EXTENSIONS) {
+            if(name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Names the output of every input, keeping the whole name of the inputs that would otherwise
+     * be exported to the same file
+     * @param files The input files
+     * @param extension The extension of the output format
+     * @return the output file name of each input, which may still be shared by inputs named like {@code a.txt.json}
+     * and {@code a.txt}
+     */
+    static Map<Path, String> outputFileNames(List<Path> files, String extension) {
+        Map<String, Integer> uses = new HashMap<>();
+        for(Path file: files) {
+            uses.merge(outputFileName(file, extension), 1, Integer::sum);
+        }
+        Map<Path, String> names = new HashMap<>();
+        for(Path file: files) {
+            String name = outputFileName(file, extension);
+            names.put(file, uses.get(name) > 1 ? outputFileName(file, extension, true) : name);
+        }
+        return names;
+    }
+
+    /**
+     * @return the name of the input file with its extension replaced by ".json",
+     * or by ".json.gz" when the input is compressed so the output is compressed too
+     */
+    static String outputFileName(Path input) {
+        return outputFileName(input, ".json");
+    }
+
+    /**
+     * @param input The input file
+     * @param extension The extension of the output format
+     * @return the name of the input file with its extension replaced by the output's,
+     * followed by ".gz" when the input is compressed so the output is compressed too
+     */
+    static String outputFileName(Path input, String extension) {
+        return outputFileName(input, extension, false);
+    }
+
+    /**
+     * @param input The input file
+     * @param extension The extension of the output format
+     * @param keepExtension Whether the output's extension is added after the input's instead of replacing it
+     * @return the name of the output file, followed by ".gz" when the input is compressed so the output is compressed too
+     */
+    static String outputFileName(Path input, String extension, boolean keepExtension) {
+        String name = input.getFileName().toString();
+        String suffix = extension;
+        if(CompressedFiles.isCompressed(name)) {
+            name = name.substring(0, name.length() - CompressedFiles.GZIP_EXTENSION.length());
+            suffix += CompressedFiles.GZIP_EXTENSION;
+        }
+        int dot = keepExtension ? -1 : name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + suffix;
+    }
+}
@@ -0,0 +1,69 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Summary of a batch export: how many files were exported, how fast, and which files failed and why.
+ * Workers record their outcome concurrently, so recording is synchronized.
+ */
+public final class BatchResult {
+    private int exported = 0;
+    private long bytes = 0;
+    private final List<String> failures = new ArrayList<>();
+    private long elapsedNanos;
+
+    synchronized void succeeded(long inputBytes) {
+        exported++;
+        bytes += inputBytes;
+    }
+
+    synchronized void failed(Path file, Exception e) {
+        failures.add(file + ": " + e.getClass().getSimpleName() + ": " + e.getMessage());
+    }
+
+    synchronized void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+        Collections.sort(failures);
+    }
+
+    /**
+     * @return the number of files exported successfully
+     */
+    public synchronized int getExported() {
+        return exported;
+    }
+
+    /**
+     * @return one line per file that failed, naming the file and the error
+     */
+    public synchronized List<String> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    /**
+     * @return true if every file was exported
+     */
+    public synchronized boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * @return the summary of the run, with its throughput and every failure
+     */
+    @Override
+    public synchronized String toString() {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+                "Exported %d of %d files in %.2fs (%.1f files/s, %.2f MB/s), %d failed",
+                exported, exported + failures.size(), seconds, exported / seconds,
+                bytes / seconds / (1 << 20), failures.size()));
+        for(String failure: failures) {
+            summary.append(System.lineSeparator()).append("  ").append(failure);
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.MalformedMessageException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Parses lines of a UTF-8 chat log straight from bytes, for readers that work on byte ranges of the file
+ * rather than on a {@link java.io.Reader}.
+ */
+final class ChatLogParser {
+    static final byte NEW_LINE = '\n';
+    static final byte CARRIAGE_RETURN = '\r';
+    static final byte SPACE = ' ';
+
+    private ChatLogParser() {
+    }
+
+    /**
+     * Parses a single line in the form {@code <unix_timestamp> <username> <message>}
+     * @param buf The buffer holding the line
+     * @param from The index of the first byte of the line
+     * @param to The index just after the last byte of the line, excluding the line terminator
+     * @param senders The dictionary the sender is interned into
+     * @return the message represented by the line
+     * @throws MalformedMessageException Thrown when the line does not have all three fields
+     */
+    static Message parseLine(byte[] buf, int from, int to, SenderDictionary senders)
+            throws MalformedMessageException {
+        to = trimCarriageReturn(buf, from, to);
+        int senderStart = indexOf(buf, SPACE, from, to) + 1;
+        int contentStart = senderStart == 0 ? 0 : indexOf(buf, SPACE, senderStart, to) + 1;
+        if(contentStart == 0) {
+            throw new MalformedMessageException("Line is not a message: \""
+                    + new String(buf, from, to - from, StandardCharsets.UTF_8) + "\"");
+        }
+        int senderKey = senders.intern(buf, senderStart, contentStart - 1);
+        return new Message(Instant.ofEpochSecond(parseTimestamp(buf, from, senderStart - 1)),
+                senders.getSender(senderKey),
+                new String(buf, contentStart, to - contentStart, StandardCharsets.UTF_8),
+                senderKey);
+    }
+
+    /**
+     * Parses a single line in the form {@code <unix_timestamp> <username> <message>} straight into a
+     * columnar store, copying the content without decoding it
+     * @param buf The buffer holding the line
+     * @param from The index of the first byte of the line
+     * @param to The index just after the last byte of the line, excluding the line terminator
+     * @param store The store the message is appended to, its sender dictionary interns the sender
+     * @throws MalformedMessageException Thrown when the line does not have all three fields
+     */
+    static void parseLine(byte[] buf, int from, int to, ColumnarMessageStore store)
+            throws MalformedMessageException {
+        to = trimCarriageReturn(buf, from, to);
+        int senderStart = indexOf(buf, SPACE, from, to) + 1;
+        int contentStart = senderStart == 0 ? 0 : indexOf(buf, SPACE, senderStart, to) + 1;
+        if(contentStart == 0) {
+            throw new MalformedMessageException("Line is not a message: \""
+                    + new String(buf, from, to - from, StandardCharsets.UTF_8) + "\"");
+        }
+        int senderKey = store.getSenders().intern(buf, senderStart, contentStart - 1);
+        store.add(parseTimestamp(buf, from, senderStart - 1), senderKey, buf, contentStart, to - contentStart);
+    }
+
+    /**
+     * Parses an unsigned decimal timestamp without creating a String
+     * @param buf The buffer holding the timestamp
+     * @param from The index of the first digit
+     * @param to The index just after the last digit
+     * @return the timestamp in seconds since the epoch
+     * @throws MalformedMessageException Thrown when the timestamp isn't an unsigned number
+     */
+    static long parseTimestamp(byte[] buf, int from, int to) throws MalformedMessageException {
+        if(from == to) {
+            throw new MalformedMessageException("Missing timestamp");
+        }
+        long value = 0;
+        for(int i = from; i < to; i++) {
+            int digit = buf[i] - '0';
+            if(digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw new MalformedMessageException("Invalid timestamp: \""
+                        + new String(buf, from, to - from, StandardCharsets.UTF_8) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses an unsigned decimal timestamp held in part of some text without creating a String
+     * @param text The text holding the timestamp
+     * @param from The index of the first digit
+     * @param to The index just after the last digit
+     * @return the timestamp in seconds since the epoch
+     * @throws MalformedMessageException Thrown when the timestamp isn't an unsigned number
+     */
+    static long parseTimestamp(CharSequence text, int from, int to) throws MalformedMessageException {
+        if(from == to) {
+            throw new MalformedMessageException("Missing timestamp");
+        }
+        long value = 0;
+        for(int i = from; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if(digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw new MalformedMessageException("Invalid timestamp: \"" + text.subSequence(from, to) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * @return the index of the first {@code b} in the range, or -1 if there is none
+     */
+    static int indexOf(byte[] buf, byte b, int from, int to) {
+        for(int i = from; i < to; i++) {
+            if(buf[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the end of the line without the carriage return of a Windows line terminator
+     */
+    static int trimCarriageReturn(byte[] buf, int from, int to) {
+        return to > from && buf[to - 1] == CARRIAGE_RETURN ? to - 1 : to;
+    }
+}
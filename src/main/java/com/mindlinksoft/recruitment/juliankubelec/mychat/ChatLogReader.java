@@ -0,0 +1,31 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads a chat log one message at a time.
+ * The first line of the log is the conversation name and every following line is a message
+ * in the form {@code <unix_timestamp> <username> <message>}.
+ */
+public interface ChatLogReader extends Closeable {
+    /**
+     * Reads the conversation name, which must be done before reading any message
+     * @return the conversation name, or null if the chat log is empty
+     * @throws IOException Thrown when the chat log cannot be read
+     */
+    String readName() throws IOException;
+
+    /**
+     * Reads the next message of the chat log
+     * @return the next message, or null once the end of the chat log has been reached
+     * @throws IOException Thrown when the chat log cannot be read
+     */
+    Message readMessage() throws IOException;
+
+    /**
+     * @return the dictionary every sender read so far has been interned into,
+     * which the sender ids of the messages refer to
+     */
+    SenderDictionary getSenders();
+}
@@ -0,0 +1,153 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.MalformedMessageException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a chat log as bytes from a byte offset onwards, keeping track of the offset
+ * just after each line so a later run can carry on from where this one stopped.
+ */
+final class ChatLogTail implements Closeable {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final InputStream in;
+    private final SenderDictionary senders = new SenderDictionary();
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    private byte[] line = new byte[256];
+    private int length;
+    private boolean complete;
+    private long offset;
+
+    /**
+     * Opens the chat log positioned at a byte offset
+     * @param path The path to the chat log
+     * @param offset The offset of the first line to read, which must be the start of a line
+     * @throws IOException Thrown when the chat log cannot be opened
+     */
+    ChatLogTail(Path path, long offset) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        channel.position(offset);
+        this.in = Channels.newInputStream(channel);
+        this.offset = offset;
+    }
+
+    /**
+     * Moves to another line of the chat log, dropping whatever was buffered
+     * @param offset The offset of the next line to read, which must be the start of a line
+     * @throws IOException Thrown when the chat log cannot be read
+     */
+    void seek(long offset) throws IOException {
+        channel.position(offset);
+        position = 0;
+        limit = 0;
+        this.offset = offset;
+    }
+
+    /**
+     * Moves to the next line
+     * @return false if there are no more lines
+     * @throws IOException Thrown when the chat log cannot be read
+     */
+    boolean nextLine() throws IOException {
+        length = 0;
+        complete = false;
+        while(true) {
+            if(position == limit) {
+                limit = in.read(chunk);
+                position = 0;
+                if(limit <= 0) {
+                    limit = 0;
+                    offset += length;
+                    return length > 0;
+                }
+            }
+            int end = ChatLogParser.indexOf(chunk, ChatLogParser.NEW_LINE, position, limit);
+            int copyEnd = end < 0 ? limit : end;
+            append(position, copyEnd);
+            if(end >= 0) {
+                position = end + 1;
+                complete = true;
+                offset += length + 1;
+                return true;
+            }
+            position = limit;
+        }
+    }
+
+    /**
+     * @return true if the current line ends with a line terminator, false if it is the unfinished end of the log
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return the byte offset just after the current line
+     */
+    long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the current line decoded as the conversation name
+     */
+    String readName() {
+        return new String(line, 0, ChatLogParser.trimCarriageReturn(line, 0, length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses only the timestamp of the current line, without decoding the sender or content
+     * @return the timestamp of the current line in seconds since the epoch
+     * @throws MalformedMessageException Thrown when the line does not start with a timestamp
+     */
+    long readTimestamp() throws MalformedMessageException {
+        int end = ChatLogParser.indexOf(line, ChatLogParser.SPACE, 0, length);
+        if(end < 0) {
+            throw new MalformedMessageException("Line is not a message: \""
+                    + new String(line, 0, length, StandardCharsets.UTF_8) + "\"");
+        }
+        return ChatLogParser.parseTimestamp(line, 0, end);
+    }
+
+    /**
+     * @return the current line parsed as a message
+     * @throws MalformedMessageException Thrown when the line is not a message
+     */
+    Message readMessage() throws MalformedMessageException {
+        return ChatLogParser.parseLine(line, 0, length, senders);
+    }
+
+    /**
+     * @return the dictionary the senders of the messages are interned into
+     */
+    SenderDictionary getSenders() {
+        return senders;
+    }
+
+    private void append(int from, int to) {
+        int count = to - from;
+        if(length + count > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+        }
+        System.arraycopy(chunk, from, line, length, count);
+        length += count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,178 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Where an incremental export stopped: how far the chat log was read, where the messages array of the
+ * JSON output ends, and the activity counted so far. Saved next to the output as a properties file.
+ * A checkpoint is only resumed from when the output, the options and the start of the input are the same
+ * as when it was saved, otherwise the conversation is exported again from the start.
+ */
+final class Checkpoint {
+    static final String EXTENSION = ".checkpoint";
+    private static final int CHECKSUM_LENGTH = 64 * 1024;
+
+    private final String options;
+    private final String name;
+    private final long inputOffset;
+    private final long inputChecksum;
+    private final long lastTimestamp;
+    private final long outputOffset;
+    private final long outputLength;
+    private final long messages;
+    private final Map<String, Integer> counts;
+
+    Checkpoint(String options, String name, long inputOffset, long inputChecksum, long lastTimestamp,
+               long outputOffset, long outputLength, long messages, Map<String, Integer> counts) {
+        this.options = options;
+        this.name = name;
+        this.inputOffset = inputOffset;
+        this.inputChecksum = inputChecksum;
+        this.lastTimestamp = lastTimestamp;
+        this.outputOffset = outputOffset;
+        this.outputLength = outputLength;
+        this.messages = messages;
+        this.counts = counts;
+    }
+
+    /**
+     * @param output The JSON output
+     * @return the path of the checkpoint of the output
+     */
+    static Path pathFor(Path output) {
+        return output.resolveSibling(output.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Loads a saved checkpoint
+     * @param path The checkpoint file
+     * @return the checkpoint, or null if there is none or it cannot be understood
+     * @throws IOException Thrown when the checkpoint exists but cannot be read
+     */
+    static Checkpoint load(Path path) throws IOException {
+        if(!Files.isRegularFile(path)) {
+            return null;
+        }
+        Properties p = new Properties();
+        try (Reader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            p.load(r);
+        }
+        try {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            int senders = Integer.parseInt(p.getProperty("senders"));
+            for(int i = 0; i < senders; i++) {
+                counts.put(p.getProperty("sender." + i), Integer.parseInt(p.getProperty("count." + i)));
+            }
+            return new Checkpoint(p.getProperty("options"), p.getProperty("name"),
+                    Long.parseLong(p.getProperty("inputOffset")), Long.parseLong(p.getProperty("inputChecksum")),
+                    Long.parseLong(p.getProperty("lastTimestamp")), Long.parseLong(p.getProperty("outputOffset")),
+                    Long.parseLong(p.getProperty("outputLength")), Long.parseLong(p.getProperty("messages")),
+                    counts);
+        } catch (NumberFormatException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves the checkpoint, replacing the previous one in a single move
+     * @param path The checkpoint file
+     * @throws IOException Thrown when the checkpoint cannot be written
+     */
+    void save(Path path) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("options", options);
+        p.setProperty("name", name);
+        p.setProperty("inputOffset", Long.toString(inputOffset));
+        p.setProperty("inputChecksum", Long.toString(inputChecksum));
+        p.setProperty("lastTimestamp", Long.toString(lastTimestamp));
+        p.setProperty("outputOffset", Long.toString(outputOffset));
+        p.setProperty("outputLength", Long.toString(outputLength));
+        p.setProperty("messages", Long.toString(messages));
+        p.setProperty("senders", Integer.toString(counts.size()));
+        int i = 0;
+        for(Map.Entry<String, Integer> count: counts.entrySet()) {
+            p.setProperty("sender." + i, count.getKey());
+            p.setProperty("count." + i, Integer.toString(count.getValue()));
+            i++;
+        }
+        AtomicFiles.write(path, out -> {
+            Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            p.store(w, "Incremental export checkpoint");
+            w.flush();
+        });
+    }
+
+    /**
+     * Checks if an export can carry on from this checkpoint
+     * @param input The chat log
+     * @param output The JSON output
+     * @param options The export options of this run
+     * @return true if the output is as this checkpoint left it and the input has only grown since
+     * @throws IOException Thrown when the input or output cannot be read
+     */
+    boolean canResume(Path input, Path output, String options) throws IOException {
+        return this.options.equals(options)
+                && Files.isRegularFile(output) && Files.size(output) == outputLength
+                && Files.size(input) >= inputOffset
+                && checksum(input, inputOffset) == inputChecksum;
+    }
+
+    /**
+     * Checksums the start of the input, to tell a log that has grown from one that has been replaced
+     * @param input The chat log
+     * @param length The number of bytes that were read from the log
+     * @return the CRC32 of the first bytes of the log
+     * @throws IOException Thrown when the input cannot be read
+     */
+    static long checksum(Path input, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[(int) Math.min(length, CHECKSUM_LENGTH)];
+        try (InputStream in = Files.newInputStream(input)) {
+            int read = 0;
+            while(read < buf.length) {
+                int n = in.read(buf, read, buf.length - read);
+                if(n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            crc.update(buf, 0, read);
+        }
+        return crc.getValue();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long getInputOffset() {
+        return inputOffset;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    long getOutputOffset() {
+        return outputOffset;
+    }
+
+    long getMessages() {
+        return messages;
+    }
+
+    Map<String, Integer> getCounts() {
+        return counts;
+    }
+}
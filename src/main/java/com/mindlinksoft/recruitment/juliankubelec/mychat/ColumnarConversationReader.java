@@ -0,0 +1,233 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a binary columnar archive written by {@link ColumnarConversationWriter}.
+ * Messages can be read one at a time like any other {@link ChatLogReader}, holding one row group at a time,
+ * or {@link #readConversation()} loads the whole archive into a {@link ColumnarMessageStore}, copying
+ * the columns and encoded contents across without parsing any text.
+ */
+public class ColumnarConversationReader implements ChatLogReader {
+    private static final int COLUMN_BYTES = 64 << 10;
+
+    private final DataInputStream in;
+    private final SenderDictionary senders = new SenderDictionary();
+    private long[] timestamps = new long[0];
+    private int[] senderIds = new int[0];
+    private int[] lengths = new int[0];
+    private byte[] contents = new byte[0];
+    private byte[] column = new byte[COLUMN_BYTES];
+    private int rows = 0;
+    private int row = 0;
+    private int contentOffset = 0;
+    private boolean ended = false;
+    private List<Report> reports;
+
+    /**
+     * Initialises a reader over an archive
+     * @param in The stream positioned at the start of the archive
+     */
+    public ColumnarConversationReader(InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 << 10));
+    }
+
+    /**
+     * @param path The path of a file
+     * @return true if the file is a columnar archive, which may be gzip-compressed
+     */
+    static boolean isArchive(String path) {
+        String name = CompressedFiles.isCompressed(path)
+                ? path.substring(0, path.length() - CompressedFiles.GZIP_EXTENSION.length())
+                : path;
+        return name.endsWith(ColumnarConversationWriter.EXTENSION);
+    }
+
+    /**
+     * Reads the header of the archive, which must be done before reading any message
+     * @return the conversation name, or null if the archive is empty
+     * @throws IOException Thrown when the archive cannot be read or is not a columnar archive
+     */
+    @Override
+    public String readName() throws IOException {
+        byte[] magic = new byte[ColumnarConversationWriter.MAGIC.length];
+        int n = 0;
+        int read;
+        while(n < magic.length && (read = in.read(magic, n, magic.length - n)) >= 0) {
+            n += read;
+        }
+        if(n == 0) {
+            return null;
+        }
+        if(n < magic.length || !Arrays.equals(magic, ColumnarConversationWriter.MAGIC)) {
+            throw new IOException("The input is not a columnar conversation archive");
+        }
+        int version = in.readInt();
+        if(version != ColumnarConversationWriter.VERSION) {
+            throw new IOException("Unsupported columnar conversation archive version: " + version);
+        }
+        return readString();
+    }
+
+    @Override
+    public Message readMessage() throws IOException {
+        if(row == rows && !nextRowGroup()) {
+            return null;
+        }
+        int length = lengths[row];
+        Message message = new Message(Instant.ofEpochSecond(timestamps[row]), senders.getSender(senderIds[row]),
+                new String(contents, contentOffset, length, StandardCharsets.UTF_8), senderIds[row]);
+        contentOffset += length;
+        row++;
+        return message;
+    }
+
+    /**
+     * Reads the whole archive into a {@link ColumnarMessageStore}, copying the contents without decoding them
+     * @return the conversation, or null if the archive is empty
+     * @throws IOException Thrown when the archive cannot be read or is not a columnar archive
+     */
+    public Conversation readConversation() throws IOException {
+        String name = readName();
+        if(name == null) {
+            return null;
+        }
+        ColumnarMessageStore store = new ColumnarMessageStore(senders);
+        while(nextRowGroup()) {
+            for(int i = 0; i < rows; i++) {
+                store.add(timestamps[i], senderIds[i], contents, contentOffset, lengths[i]);
+                contentOffset += lengths[i];
+            }
+            row = rows;
+        }
+        return new Conversation(name, store, senders);
+    }
+
+    @Override
+    public SenderDictionary getSenders() {
+        return senders;
+    }
+
+    /**
+     * @return the activity report stored in the archive once every message has been read,
+     * or null if the archive has no report
+     */
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    /**
+     * Reads the next row group, or the trailer once there are no more
+     * @return false if there are no more row groups
+     */
+    private boolean nextRowGroup() throws IOException {
+        if(ended) {
+            return false;
+        }
+        int count = in.readInt();
+        readNewSenders();
+        if(count == 0) {
+            readTrailer();
+            ended = true;
+            rows = 0;
+            row = 0;
+            return false;
+        }
+        if(count < 0) {
+            throw new IOException("Invalid row group of " + count + " rows");
+        }
+        if(timestamps.length < count) {
+            timestamps = new long[count];
+            senderIds = new int[count];
+            lengths = new int[count];
+        }
+        readColumn(count * Long.BYTES);
+        ByteBuffer.wrap(column).asLongBuffer().get(timestamps, 0, count);
+        readColumn(count * Integer.BYTES);
+        ByteBuffer.wrap(column).asIntBuffer().get(senderIds, 0, count);
+        readColumn(count * Integer.BYTES);
+        ByteBuffer.wrap(column).asIntBuffer().get(lengths, 0, count);
+        long total = 0;
+        for(int i = 0; i < count; i++) {
+            if(lengths[i] < 0 || senderIds[i] < 0 || senderIds[i] >= senders.size()) {
+                throw new IOException("Invalid row in columnar conversation archive");
+            }
+            total += lengths[i];
+        }
+        if(total > Integer.MAX_VALUE) {
+            throw new IOException("Row group too large: " + total + " bytes");
+        }
+        if(contents.length < total) {
+            contents = new byte[(int) total];
+        }
+        in.readFully(contents, 0, (int) total);
+        rows = count;
+        row = 0;
+        contentOffset = 0;
+        return true;
+    }
+
+    private void readColumn(int bytes) throws IOException {
+        if(column.length < bytes) {
+            column = new byte[bytes];
+        }
+        in.readFully(column, 0, bytes);
+    }
+
+    private void readNewSenders() throws IOException {
+        int count = in.readInt();
+        for(int i = 0; i < count; i++) {
+            int expected = senders.size();
+            if(senders.intern(readString()) != expected) {
+                throw new IOException("Sender defined twice in columnar conversation archive");
+            }
+        }
+    }
+
+    private void readTrailer() throws IOException {
+        int count = in.readInt();
+        if(count == -1) {
+            return;
+        }
+        // a report has at most one entry per sender
+        if(count < 0 || count > senders.size()) {
+            throw new IOException("Invalid report of " + count + " senders");
+        }
+        List<Report> list = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            int senderId = in.readInt();
+            int messages = in.readInt();
+            if(senderId < 0 || senderId >= senders.size() || messages < 0) {
+                throw new IOException("Invalid report in columnar conversation archive");
+            }
+            list.add(new Report(senders.getSender(senderId), messages));
+        }
+        reports = Collections.unmodifiableList(list);
+    }
+
+    private String readString() throws IOException {
+        int length = in.readInt();
+        if(length < 0) {
+            throw new EOFException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
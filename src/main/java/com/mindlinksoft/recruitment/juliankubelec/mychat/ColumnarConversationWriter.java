@@ -0,0 +1,179 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes a conversation as a binary columnar archive, for analytics tools that would otherwise
+ * have to parse text timestamps and sender strings again.
+ * Messages are buffered into row groups of up to 65536 messages, and each row group is written as columns:
+ * <pre>
+ * header:    magic "MYCHATCOL", version (int), name (int length + UTF-8)
+ * row group: rows (int, greater than 0)
+ *            new senders (int count, then int length + UTF-8 of each sender, ids follow on from the last group)
+ *            timestamps (long epoch seconds per row)
+ *            sender ids (int per row)
+ *            content lengths (int per row)
+ *            contents (the UTF-8 of every row, one after another)
+ * trailer:   0 (int), new senders as in a row group, then the number of reports (int, -1 if there was no report)
+ *            and the sender id and count of each report
+ * </pre>
+ * Numbers are big-endian. Only one row group is held in memory, so the archive is written with constant memory.
+ * See {@link ColumnarConversationReader} for the matching reader.
+ */
+public class ColumnarConversationWriter implements ConversationWriter {
+    static final byte[] MAGIC = "MYCHATCOL".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final String EXTENSION = ".chatcol";
+    private static final int ROW_GROUP_SIZE = 1 << 16;
+    private static final int ROW_GROUP_BYTES = 8 << 20;
+
+    private final DataOutputStream out;
+    private final SenderDictionary senders = new SenderDictionary();
+    private int sendersWritten = 0;
+    private final long[] timestamps = new long[ROW_GROUP_SIZE];
+    private final int[] senderIds = new int[ROW_GROUP_SIZE];
+    private final int[] lengths = new int[ROW_GROUP_SIZE];
+    private final byte[] column = new byte[ROW_GROUP_SIZE * Long.BYTES];
+    private byte[] contents = new byte[64 << 10];
+    private int rows = 0;
+    private int contentSize = 0;
+
+    /**
+     * Initialises a writer of the conversation to {@code out}
+     * @param out The stream the archive is written to
+     */
+    public ColumnarConversationWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 << 10));
+    }
+
+    /**
+     * Writes the header of the archive
+     * @param name The name of the conversation
+     * @throws IOException Thrown when the underlying stream is unable to write
+     */
+    @Override
+    public void beginConversation(String name) throws IOException {
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        writeString(name);
+    }
+
+    /**
+     * Adds a message to the current row group, writing the group once it is full
+     * @param message The message to write
+     * @throws IOException Thrown when the underlying stream is unable to write
+     */
+    @Override
+    public void writeMessage(Message message) throws IOException {
+        byte[] content = message.getContent().getBytes(StandardCharsets.UTF_8);
+        if(contentSize + content.length > contents.length) {
+            contents = Arrays.copyOf(contents, Math.max(contents.length * 2, contentSize + content.length));
+        }
+        System.arraycopy(content, 0, contents, contentSize, content.length);
+        contentSize += content.length;
+        timestamps[rows] = message.getTimestamp().getEpochSecond();
+        senderIds[rows] = senders.intern(message.getSenderId());
+        lengths[rows] = content.length;
+        rows++;
+        if(rows == ROW_GROUP_SIZE || contentSize >= ROW_GROUP_BYTES) {
+            writeRowGroup();
+        }
+    }
+
+    /**
+     * Writes the last row group and the trailer holding the activity report.
+     * An archive has no place for analytics, so none may be given
+     * @param activity The activity report to append, or null if no report was requested
+     * @param analytics Must be null
+     * @throws IOException Thrown when the underlying stream is unable to write
+     * @throws IllegalArgumentException Thrown when analytics are given
+     */
+    @Override
+    public void endConversation(Activity activity, Analytics analytics) throws IOException {
+        if(analytics != null) {
+            throw new IllegalArgumentException("A binary archive cannot hold analytics");
+        }
+        endConversation(activity);
+    }
+
+    /**
+     * Writes the last row group and the trailer holding the activity report
+     * @param activity The activity report to append, or null if no report was requested
+     * @throws IOException Thrown when the underlying stream is unable to write
+     */
+    @Override
+    public void endConversation(Activity activity) throws IOException {
+        writeRowGroup();
+        out.writeInt(0);
+        if(activity != null) {
+            for(Report report: activity.getReports()) {
+                senders.intern(report.getSender());
+            }
+        }
+        writeNewSenders();
+        if(activity == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(activity.getReports().size());
+        for(Report report: activity.getReports()) {
+            out.writeInt(senders.lookup(report.getSender()));
+            out.writeInt(report.getCount());
+        }
+    }
+
+    /**
+     * Writes the messages buffered so far as a row group of their own and flushes them
+     * @throws IOException Thrown when the underlying stream is unable to write
+     */
+    @Override
+    public void flush() throws IOException {
+        writeRowGroup();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeRowGroup() throws IOException {
+        if(rows == 0) {
+            return;
+        }
+        out.writeInt(rows);
+        writeNewSenders();
+        // each column is encoded in bulk, rather than one value at a time through the stream
+        ByteBuffer.wrap(column).asLongBuffer().put(timestamps, 0, rows);
+        out.write(column, 0, rows * Long.BYTES);
+        ByteBuffer.wrap(column).asIntBuffer().put(senderIds, 0, rows);
+        out.write(column, 0, rows * Integer.BYTES);
+        ByteBuffer.wrap(column).asIntBuffer().put(lengths, 0, rows);
+        out.write(column, 0, rows * Integer.BYTES);
+        out.write(contents, 0, contentSize);
+        rows = 0;
+        contentSize = 0;
+    }
+
+    /**
+     * Writes the senders first seen since the last row group, so every id a group refers to is defined by then
+     */
+    private void writeNewSenders() throws IOException {
+        out.writeInt(senders.size() - sendersWritten);
+        for(; sendersWritten < senders.size(); sendersWritten++) {
+            writeString(senders.getSender(sendersWritten));
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
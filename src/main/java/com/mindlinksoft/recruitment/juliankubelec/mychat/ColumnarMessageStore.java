@@ -0,0 +1,223 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Compact columnar backing for the messages of a {@link Conversation}.
+ * Instead of a {@link Message}, {@link Instant} and two Strings per message, the store keeps a {@code long[]}
+ * of epoch seconds, an {@code int[]} of sender ids from a {@link SenderDictionary} and the UTF-8 contents
+ * packed one after another into shared pages of bytes. A message costs 24 bytes plus its encoded content.
+ * The store is still a {@code List<Message>}, {@link #get(int)} decodes the message on demand.
+ */
+public final class ColumnarMessageStore extends AbstractList<Message> implements RandomAccess {
+    private static final int FIRST_PAGE_SIZE = 4096;
+    private static final int PAGE_SIZE = 1 << 20;
+
+    private final SenderDictionary senders;
+    private long[] timestamps = new long[16];
+    private int[] senderIds = new int[16];
+    private long[] contentRefs = new long[16];
+    private int[] contentLengths = new int[16];
+    private int size = 0;
+
+    private byte[][] pages = new byte[1][];
+    private int pageCount = 0;
+    private int pageUsed = 0;
+
+    /**
+     * Initialises an empty store with its own sender dictionary
+     */
+    public ColumnarMessageStore() {
+        this(new SenderDictionary());
+    }
+
+    /**
+     * Initialises an empty store that encodes senders with the given dictionary
+     * @param senders The dictionary the sender column refers to
+     */
+    public ColumnarMessageStore(SenderDictionary senders) {
+        this.senders = senders;
+    }
+
+    @Override
+    public boolean add(Message msg) {
+        add(msg.getTimestamp().getEpochSecond(), senders.intern(msg.getSenderId()), msg.getContent());
+        return true;
+    }
+
+    /**
+     * Appends a message without creating a {@link Message}
+     * @param epochSecond The timestamp of the message in seconds since the epoch
+     * @param senderId The id of the sender in this store's {@link SenderDictionary}
+     * @param content The message content
+     */
+    public void add(long epochSecond, int senderId, String content) {
+        byte[] encoded = content.getBytes(StandardCharsets.UTF_8);
+        add(epochSecond, senderId, encoded, 0, encoded.length);
+    }
+
+    /**
+     * Appends a message whose content is already encoded, copying the bytes without decoding them
+     * @param epochSecond The timestamp of the message in seconds since the epoch
+     * @param senderId The id of the sender in this store's {@link SenderDictionary}
+     * @param buf The buffer holding the UTF-8 content
+     * @param from The index of the first byte of the content
+     * @param length The number of bytes of content
+     */
+    void add(long epochSecond, int senderId, byte[] buf, int from, int length) {
+        ensureCapacity(size + 1);
+        timestamps[size] = epochSecond;
+        senderIds[size] = senderId;
+        contentRefs[size] = store(buf, from, length);
+        contentLengths[size] = length;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Appends every message of another store without copying the contents. The pages of the other store are
+     * shared rather than copied, and this store never writes into them
+     * @param other The store to append
+     * @param senderIds The id in this store's {@link SenderDictionary} of each sender id of the other store
+     */
+    void append(ColumnarMessageStore other, int[] senderIds) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.timestamps, 0, timestamps, size, other.size);
+        System.arraycopy(other.contentLengths, 0, contentLengths, size, other.size);
+        long firstPage = (long) pageCount << 32;
+        for(int i = 0; i < other.size; i++) {
+            this.senderIds[size + i] = senderIds[other.senderIds[i]];
+            contentRefs[size + i] = other.contentRefs[i] + firstPage;
+        }
+        if(other.pageCount > 0) {
+            if(pageCount + other.pageCount > pages.length) {
+                pages = Arrays.copyOf(pages, Math.max(pages.length * 2, pageCount + other.pageCount));
+            }
+            System.arraycopy(other.pages, 0, pages, pageCount, other.pageCount);
+            pageCount += other.pageCount;
+            // the rest of the last page belongs to the other store, so the next content starts a new page
+            pageUsed = pages[pageCount - 1].length;
+        }
+        size += other.size;
+        modCount++;
+    }
+
+    @Override
+    public Message get(int index) {
+        checkIndex(index);
+        return new Message(Instant.ofEpochSecond(timestamps[index]), senders.getSender(senderIds[index]),
+                getContent(index), senderIds[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index The index of the message
+     * @return the timestamp of the message in seconds since the epoch
+     */
+    public long getEpochSecond(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    /**
+     * @param index The index of the message
+     * @return the id of the sender in this store's {@link SenderDictionary}
+     */
+    public int getSenderId(int index) {
+        checkIndex(index);
+        return senderIds[index];
+    }
+
+    /**
+     * @param index The index of the message
+     * @return the decoded content of the message
+     */
+    public String getContent(int index) {
+        checkIndex(index);
+        long ref = contentRefs[index];
+        return new String(pages[(int) (ref >>> 32)], (int) ref, contentLengths[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the dictionary the sender column refers to
+     */
+    public SenderDictionary getSenders() {
+        return senders;
+    }
+
+    /**
+     * Scans the sender column for the messages sent by a user, comparing sender ids as ints
+     * @param userId The user to look for
+     * @return the indexes of the user's messages, in order
+     */
+    public int[] indexesOfSender(String userId) {
+        int senderId = senders.lookup(userId);
+        if(senderId < 0) {
+            return new int[0];
+        }
+        int[] indexes = new int[16];
+        int count = 0;
+        for(int i = 0; i < size; i++) {
+            if(senderIds[i] == senderId) {
+                if(count == indexes.length) {
+                    indexes = Arrays.copyOf(indexes, count * 2);
+                }
+                indexes[count++] = i;
+            }
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    /**
+     * @return an empty store sharing this store's sender dictionary
+     */
+    public ColumnarMessageStore emptyCopy() {
+        return new ColumnarMessageStore(senders);
+    }
+
+    /**
+     * Copies the content into the current page, starting a new page when it doesn't fit.
+     * Pages double in size up to 1MB so small conversations stay small,
+     * and contents bigger than a page get a page of their own
+     * @return the page index in the high 32 bits and the offset in the page in the low 32 bits
+     */
+    private long store(byte[] buf, int from, int length) {
+        if(pageCount == 0 || length > pages[pageCount - 1].length - pageUsed) {
+            int pageSize = pageCount == 0 ? FIRST_PAGE_SIZE : Math.min(PAGE_SIZE, pages[pageCount - 1].length * 2);
+            if(pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, pageCount * 2);
+            }
+            pages[pageCount++] = new byte[Math.max(pageSize, length)];
+            pageUsed = 0;
+        }
+        int page = pageCount - 1;
+        System.arraycopy(buf, from, pages[page], pageUsed, length);
+        long ref = ((long) page << 32) | pageUsed;
+        pageUsed += length;
+        return ref;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity > timestamps.length) {
+            int grown = Math.max(capacity, timestamps.length + (timestamps.length >> 1));
+            timestamps = Arrays.copyOf(timestamps, grown);
+            senderIds = Arrays.copyOf(senderIds, grown);
+            contentRefs = Arrays.copyOf(contentRefs, grown);
+            contentLengths = Arrays.copyOf(contentLengths, grown);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
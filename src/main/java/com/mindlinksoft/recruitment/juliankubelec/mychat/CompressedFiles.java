@@ -0,0 +1,70 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens inputs and outputs that may be gzip-compressed, chosen by a ".gz" at the end of the path.
+ * Compressed files are read and written as streams, without a temporary decompressed copy on disk.
+ */
+final class CompressedFiles {
+    static final String GZIP_EXTENSION = ".gz";
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    private CompressedFiles() {
+    }
+
+    /**
+     * @param path The path of a file
+     * @return true if the file is gzip-compressed
+     */
+    static boolean isCompressed(String path) {
+        return path.endsWith(GZIP_EXTENSION);
+    }
+
+    /**
+     * Opens a file for reading, decompressing it on a thread of its own if it is compressed
+     * @param path The path of the file
+     * @return the stream of the file's uncompressed contents
+     * @throws FileNotFoundException Thrown when the file cannot be found
+     * @throws IOException Thrown when the file is compressed but doesn't start with a gzip header
+     */
+    static InputStream openInput(String path) throws IOException {
+        InputStream in = new FileInputStream(path);
+        if(!isCompressed(path)) {
+            return in;
+        }
+        try {
+            return new ReadAheadInputStream(new GZIPInputStream(in, BUFFER_SIZE), "decompress " + path);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a file for writing, replacing what it held, compressing what is written if the path ends in ".gz"
+     * @param path The path of the file
+     * @return the stream to write the uncompressed contents to
+     * @throws FileNotFoundException Thrown when the file cannot be created
+     * @throws IOException Thrown when the gzip header cannot be written
+     */
+    static OutputStream openOutput(String path) throws IOException {
+        OutputStream out = new FileOutputStream(path, false);
+        if(!isCompressed(path)) {
+            return out;
+        }
+        try {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the {@link SenderStats} of messages recorded by any number of threads at the same time.
+ * Every thread records into a {@link Shard} of its own, so recording a message only touches arrays owned by
+ * that thread, with no locks, atomics or shared cache lines. The shards are merged once, when the stats are read.
+ * <pre>
+ * ConcurrentActivity activity = new ConcurrentActivity(reader.getSenders());
+ * // on each worker thread
+ * ConcurrentActivity.Shard shard = activity.newShard();
+ * shard.record(message);
+ * // once every worker is done
+ * List&lt;SenderStats&gt; stats = activity.getSenderStats();
+ * </pre>
+ */
+public final class ConcurrentActivity {
+    private final SenderDictionary senders;
+    private final List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Initialises an activity whose shards each intern senders into a dictionary of their own
+     */
+    public ConcurrentActivity() {
+        this.senders = null;
+    }
+
+    /**
+     * Initialises an activity counting senders by their id in the given dictionary.
+     * Every recorded message must carry the id it was parsed with, so the dictionary is only read
+     * when the stats are merged and can still be written to by the reader meanwhile
+     * @param senders The dictionary the messages were parsed with
+     */
+    public ConcurrentActivity(SenderDictionary senders) {
+        this.senders = senders;
+    }
+
+    /**
+     * Adds a shard for one thread to record into
+     * @return a new shard, only to be used by a single thread at a time
+     */
+    public Shard newShard() {
+        Shard shard = new Shard(senders == null ? new SenderDictionary() : null);
+        synchronized (shards) {
+            shards.add(shard);
+        }
+        return shard;
+    }
+
+    /**
+     * Merges the shards. Only to be called once every thread has stopped recording,
+     * for example after joining the threads or waiting for their tasks
+     * @return the stats of every sender that sent any message, ordered by their first message, then by sender
+     */
+    public List<SenderStats> getSenderStats() {
+        Map<String, Totals> merged = new LinkedHashMap<>();
+        synchronized (shards) {
+            for(Shard shard: shards) {
+                SenderDictionary dictionary = shard.dictionary != null ? shard.dictionary : senders;
+                for(int id = 0; id < shard.messages.length; id++) {
+                    if(shard.messages[id] == 0) {
+                        continue;
+                    }
+                    merged.computeIfAbsent(dictionary.getSender(id), Totals::new).add(shard, id);
+                }
+            }
+        }
+        List<SenderStats> result = new ArrayList<>(merged.size());
+        for(Totals totals: merged.values()) {
+            result.add(new SenderStats(totals.sender, totals.messages, totals.characters,
+                    totals.first, totals.last));
+        }
+        result.sort(Comparator.comparing(SenderStats::getFirstTimestamp).thenComparing(SenderStats::getSender));
+        return result;
+    }
+
+    /**
+     * Adds the message counts of every sender to an activity report, which can then be finished as usual
+     * @param activity The activity report to add the counts to
+     */
+    public void addTo(Activity activity) {
+        for(SenderStats stats: getSenderStats()) {
+            activity.add(stats.getSender(), stats.getMessages());
+        }
+    }
+
+    /**
+     * The stats recorded by a single thread, indexed by sender id. A shard is not thread-safe
+     */
+    public static final class Shard {
+        private final SenderDictionary dictionary;
+        private int[] messages = new int[0];
+        private long[] characters = new long[0];
+        private Instant[] first = new Instant[0];
+        private Instant[] last = new Instant[0];
+
+        private Shard(SenderDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * Counts a single message towards the stats of its sender
+         * @param msg The message to record
+         */
+        public void record(Message msg) {
+            int id;
+            if(dictionary != null) {
+                id = dictionary.intern(msg.getSenderId());
+            }
+            else if((id = msg.getSenderKey()) < 0) {
+                throw new IllegalArgumentException("The message from \"" + msg.getSenderId()
+                        + "\" was not parsed with the dictionary of this activity");
+            }
+            ensureCapacity(id);
+            messages[id]++;
+            characters[id] += msg.getContent() == null ? 0 : msg.getContent().length();
+            Instant timestamp = msg.getTimestamp();
+            if(first[id] == null || timestamp.isBefore(first[id])) {
+                first[id] = timestamp;
+            }
+            if(last[id] == null || timestamp.isAfter(last[id])) {
+                last[id] = timestamp;
+            }
+        }
+
+        private void ensureCapacity(int id) {
+            if(id >= messages.length) {
+                int size = Math.max(Math.max(messages.length * 2, id + 1), 16);
+                messages = Arrays.copyOf(messages, size);
+                characters = Arrays.copyOf(characters, size);
+                first = Arrays.copyOf(first, size);
+                last = Arrays.copyOf(last, size);
+            }
+        }
+    }
+
+    /**
+     * The stats of one sender summed over the shards
+     */
+    private static final class Totals {
+        private final String sender;
+        private int messages;
+        private long characters;
+        private Instant first;
+        private Instant last;
+
+        Totals(String sender) {
+            this.sender = sender;
+        }
+
+        void add(Shard shard, int id) {
+            messages += shard.messages[id];
+            characters += shard.characters[id];
+            if(first == null || shard.first[id].isBefore(first)) {
+                first = shard.first[id];
+            }
+            if(last == null || shard.last[id].isAfter(last)) {
+                last = shard.last[id];
+            }
+        }
+    }
+}
@@ -15,6 +15,13 @@ public final class Conversation {
         return messages;
     }
 
+    /**
+     * @return the dictionary the sender ids of the messages refer to, or null if the messages have none
+     */
+    public SenderDictionary getSenders() {
+        return senders;
+    }
+
     /**
      * The name of the conversation.
      */
@@ -25,6 +32,11 @@ public final class Conversation {
      */
     private Collection<Message> messages;
 
+    /**
+     * The dictionary the sender ids of the messages refer to, or null if the messages have none.
+     */
+    private transient SenderDictionary senders;
+
     /**
      * Initializes a new instance of the {@link Conversation} class.
      * @param name The name of the conversation.
@@ -34,4 +46,15 @@ public final class Conversation {
         this.name = name;
         this.messages = messages;
     }
+
+    /**
+     * Initializes a conversation whose messages were parsed with a {@link SenderDictionary}.
+     * @param name The name of the conversation.
+     * @param messages The messages in the conversation.
+     * @param senders The dictionary the sender ids of the messages refer to.
+     */
+    public Conversation(String name, Collection<Message> messages, SenderDictionary senders) {
+        this(name, messages);
+        this.senders = senders;
+    }
 }
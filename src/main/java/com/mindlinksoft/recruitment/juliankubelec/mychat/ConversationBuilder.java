@@ -1,35 +1,49 @@
 package com.mindlinksoft.recruitment.juliankubelec.mychat;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
- * Used to manipulate the conversation according to command-line arguments
+ * Used to manipulate the conversation according to command-line arguments.
+ * Filters and redactions are recorded in a {@link QueryPlan} rather than applied straight away,
+ * then {@link #build()} applies all of them in a single pass over the messages.
  */
 public class ConversationBuilder {
     protected Conversation conversation;
+    protected final QueryPlan plan;
 
     /**
      * Initialises instance of a ConversationConfigurator
      * @param conversation The conversation that will be exported
      */
     public ConversationBuilder(Conversation conversation){
+        this(conversation, new QueryPlan());
+    }
+
+    /**
+     * Initialises a builder that adds to an existing plan
+     * @param conversation The conversation that will be exported
+     * @param plan The plan shared with the builder this one was created from
+     */
+    ConversationBuilder(Conversation conversation, QueryPlan plan){
         this.conversation = conversation;
+        this.plan = plan;
     }
 
     /**
+     * Applies every recorded filter and redaction in one pass
      * @return the configurator's conversation
      */
     public Conversation build(){
-        return this.conversation;
+        if(plan.isEmpty()) {
+            return this.conversation;
+        }
+        return plan.execute(conversation);
     }
 
 
     FilteredConversationBuilder filter(){
-        return new FilteredConversationBuilder(conversation);
+        return new FilteredConversationBuilder(conversation, plan);
     }
 
     RedactedConversationBuilder redact() {
-        return new RedactedConversationBuilder(conversation);
+        return new RedactedConversationBuilder(conversation, plan);
     }
 }
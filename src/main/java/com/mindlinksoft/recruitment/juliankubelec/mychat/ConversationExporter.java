@@ -3,28 +3,59 @@ package com.mindlinksoft.recruitment.juliankubelec.mychat;
 import com.google.gson.*;
 
 import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.EmptyTextFileException;
+import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.InvalidExtensionException;
+import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.MalformedMessageException;
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.DateTimeException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a conversation exporter that can read a conversation and write it out in JSON.
+ * The exporter holds no state of its own while exporting: export() takes the options of each export and returns
+ * its result, so one instance can run many exports at the same time. The setters configure the options
+ * used by exportConversation(), which keeps the result of the last export for the getters.
  */
 public class ConversationExporter {
-    public IOException emptyError;
-    public IOException extensionError;
-    private String filterUserId;
-    private String filterKeyword;
-    private List<String> blacklist;
-    private boolean includeReport = false;
-    private Conversation conversation;
-    private JsonElement exportedJson;
+    private volatile ExportOptions options = ExportOptions.DEFAULT;
+    private volatile ExportResult lastResult;
 
     /**
-     * Exports the conversation at {@code inputFilePath} as JSON to {@code outputFilePath}.
+     * Exports the conversation at {@code inputFilePath} to {@code outputFilePath} with the given options.
+     * Every export keeps its state to itself, so one exporter can run any number of exports at the same time,
+     * each with options of its own, without locking.
+     * @param inputFilePath The input file path.
+     * @param outputFilePath The output file path.
+     * @param options The options of this export.
+     * @return the conversation, report and stats of the export
+     * @throws IllegalArgumentException Thrown when either the input or output file cannot be found,
+     * or the options can't be combined
+     * @throws EmptyTextFileException Thrown when the input text file is empty
+     * @throws InvalidExtensionException Thrown when the output file doesn't have the extension of the output format
+     * @throws IOException Thrown when the input cannot be read or the output cannot be written
+     */
+    public ExportResult export(String inputFilePath, String outputFilePath, ExportOptions options) throws
+            IllegalArgumentException, EmptyTextFileException, IOException {
+        return new Export(options).run(inputFilePath, outputFilePath);
+    }
+
+    /**
+     * Exports the conversation at {@code inputFilePath} as JSON to {@code outputFilePath},
+     * or as one NDJSON record per line if setNdjson() was used, with the options set on this exporter.
+     * The result is kept for getConversation(), getExportedJson() and getStats(). Use export() to run
+     * exports at the same time.
      * @param inputFilePath The input file path.
      * @param outputFilePath The output file path.
      * @throws IllegalArgumentException Thrown when either the input or output file cannot be found
@@ -33,39 +64,13 @@ public class ConversationExporter {
      */
     public void exportConversation(String inputFilePath, String outputFilePath) throws
             IllegalArgumentException, EmptyTextFileException, IOException{
-        conversation = this.readConversation(inputFilePath);
-        this.writeConversation(conversation, outputFilePath);
-
-        if(getFilterUserId() !=null) {
-            System.out.println("Showing messages with userId:" + filterUserId);
-        }
-        else if(getFilterKeyword() !=null) {
-            System.out.println("Showing messages with keyword:" + filterKeyword);
-        }else if(getBlacklist() != null) {
-            String msg = "Hiding messages with following word(s):";
-            StringBuilder sb = new StringBuilder(msg);
-            int i = 0;
-            for(String word: getBlacklist()) {
-                if(i == 0) {
-                    String str = " "+ word;
-                    sb.append(str);
-                }
-                if(i > 0) {
-                    String str = ", "+ word;
-                    sb.append(str);
-                }
-                i++;
-            }
-            System.out.println(msg + sb.toString());
-        }
-        else if(includeReport){
-            System.out.println("Including activity report to output");
-        }
-        System.out.println("Conversation exported from '" + inputFilePath + "' to '" + outputFilePath);
+        lastResult = export(inputFilePath, outputFilePath, options);
     }
 
     /**
-     * Helper method to write the given {@code conversation} as JSON to the given {@code outputFilePath}.
+     * Helper method to write the given {@code conversation} as JSON to the given {@code outputFilePath},
+     * filtered and redacted with the options set on this exporter.
+     * The JSON is written straight to the file, without building a tree or String of the document first.
      * @param c The conversation to write.
      * @param outputFilePath The file path where the conversation should be written.
      * @throws IllegalArgumentException Thrown when the file is not found
@@ -73,33 +78,14 @@ public class ConversationExporter {
      */
     public void writeConversation(Conversation c, String outputFilePath) throws
             IOException, IllegalArgumentException {
-            String errorMsg =  "Incorrect file extension for output. file: \""+ outputFilePath
-                    + "\" should have extension: \".json\"";
-            extensionError = new IOException(errorMsg);
-            if(!outputFilePath.matches("^.+\\.json$")) {
-                throw extensionError;
-            }
-            try (OutputStream os = new FileOutputStream(outputFilePath, false);
-                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(os))) {
-                if(conversation !=null){
-                    conversation = configureConversation(c);
-                    String ob= buildJson(conversation);
-                    bw.write(ob);
-                }
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-                throw new IllegalArgumentException("The file: \""+ outputFilePath +"\"was not found.");
-            } catch (IOException e) {
-                throw new IOException("BufferedWriter is unable to write to: \""+
-                        outputFilePath + "\"" +
-                        e.getMessage());
-            } catch (SecurityException e) {
-                System.out.println("Write access denied");
-            }
-        }
+        Export export = new Export(options);
+        Conversation written = export.writeConversation(c, outputFilePath);
+        lastResult = new ExportResult(written, export.report, null, export.requestedSenderStats(), export.analytics);
+    }
 
     /**
-     * Represents a helper to read a conversation from the given {@code inputFilePath}.
+     * Represents a helper to read a conversation from the given {@code inputFilePath},
+     * with the options set on this exporter.
      * @param inputFilePath The path to the input file.
      * @return The {@link Conversation} representing by the input file.
      * @throws EmptyTextFileException Thrown when the input text file is empty
@@ -107,128 +93,1123 @@ public class ConversationExporter {
      * @throws IOException Thrown when BufferedReader is unable to read the input
      */
     public Conversation readConversation(String inputFilePath)
-            throws EmptyTextFileException, IllegalArgumentException, IOException{
-        emptyError = new IOException(" "+inputFilePath + " was empty");
-        try(InputStream is = new FileInputStream(inputFilePath);
-            BufferedReader r = new BufferedReader(new InputStreamReader(is))) {
-            List<Message> messages = new ArrayList<>();
-            String conversationName;
-            conversationName = r.readLine();
-            if (conversationName == null) {
-                throw emptyError;
-            }
-
-            String line;
-            while ((line = r.readLine()) != null) {
-                String[] split = line.split(" ", 3);
-                messages.add(new Message(Instant.ofEpochSecond(Long.parseUnsignedLong(split[0])), split[1], split[2]));
-            }
-
-            return new Conversation(conversationName, messages);
-        } catch (FileNotFoundException e) {
-            throw new IllegalArgumentException("The file: \""+ inputFilePath +"\"was not found.");
-        } catch (IOException e) {
-            if(e.equals(emptyError)) {
-                throw new EmptyTextFileException(e.getMessage(), e);
-            }
-            else {
-                e.printStackTrace();
-                throw new IOException("BufferedReader was unable to read: \""+
-                        inputFilePath + "\"" + e.getMessage());
-            }
-        } catch (SecurityException e) {
-            System.out.println("Read access denied");
-            return null;
-        } catch (DateTimeException e) {
-            System.out.println("Contents of input file \"" + inputFilePath +"\" may have invalid format");
-            return null;
-        }
-
+            throws EmptyTextFileException, IllegalArgumentException, IOException {
+        return new Export(options).readConversation(inputFilePath);
     }
 
     /**
-     * Handles the creation of the JSON string used in writeConversation()
-     * @param c The final conversation that will be written to the output
-     * @return the resulting JSON string
+     * Reads a conversation from the given {@code inputFilePath}, parsing newline-aligned
+     * byte ranges of the file on a fork-join pool. The messages keep their order in the file.
+     * A compressed file or an archive can't be split, so it is read with readConversation() instead.
+     * @param inputFilePath The path to the input file.
+     * @return The {@link Conversation} representing by the input file.
+     * @throws EmptyTextFileException Thrown when the input text file is empty
+     * @throws IllegalArgumentException Thrown when the file could not be found
+     * @throws IOException Thrown when the input cannot be read
      */
-    private String buildJson(Conversation c) {
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(Instant.class, new InstantSerializer());
-        gsonBuilder.setPrettyPrinting();
-        Gson g = gsonBuilder.create();
-        exportedJson = g.toJsonTree(c);
-        if(includeReport) {
-            Activity activity = new Activity();
-            activity.extractStats(c);
-            exportedJson.getAsJsonObject().add(activity.getName(), g.toJsonTree(activity.getReports()));
-        }
-        return g.toJson(exportedJson);
+    public Conversation readConversationInParallel(String inputFilePath)
+            throws EmptyTextFileException, IllegalArgumentException, IOException {
+        return new Export(options).readConversationInParallel(inputFilePath);
     }
 
     /**
-     * configures the conversation according to the command-line arguments
-     * If there are no optional arguments used, the original conversation will be passed
-     * @param c The original un-edited conversation
-     * @return The edited conversation (if optional arguments used)
+     * Reads the messages of the conversation at {@code inputFilePath} sent in the time range set with
+     * setFromTimestamp() and setToTimestamp(). A sparse index of the timestamps, built on the first read and
+     * saved next to the input, lets the read seek to the start of the range and stop at its end,
+     * so only that part of the file is parsed. A compressed file or an archive can't be indexed, so all of it
+     * is read and the messages outside the time range are left out.
+     * @param inputFilePath The path to the input file.
+     * @return The {@link Conversation} holding the messages in the time range.
+     * @throws EmptyTextFileException Thrown when the input text file is empty
+     * @throws IllegalArgumentException Thrown when the file could not be found
+     * @throws IOException Thrown when the input cannot be read
      */
-    private Conversation configureConversation(Conversation c) {
-        ConversationBuilder cb = new ConversationBuilder(c);
-        if(filterUserId !=null) {
-            return cb
-                    .filter()
-                        .byUser(filterUserId)
-                    .build();
-        }
-        else if(filterKeyword !=null) {
-            return cb
-                    .filter()
-                        .byKeyword(filterKeyword)
-                    .build();
-        }
-        else if(blacklist != null) {
-            for(String word: blacklist) {
-                c = new ConversationBuilder(c)
-                    .redact()
-                        .byBlacklistedWord(word)
-                    .build();
-            }
-            return c;
-        }
-        return cb.build();
+    public Conversation readConversationInRange(String inputFilePath)
+            throws EmptyTextFileException, IllegalArgumentException, IOException {
+        return new Export(options).readConversationInRange(inputFilePath);
     }
 
+    /**
+     * @return the options used by exportConversation(), writeConversation() and the read methods
+     */
+    public ExportOptions getOptions() {
+        return options;
+    }
 
+    /**
+     * Replaces the options used by exportConversation(), writeConversation() and the read methods
+     * @param options The new options
+     */
+    public void setOptions(ExportOptions options) {
+        this.options = options;
+    }
 
-    //Getters and setters for arguments
+    //Getters and setters for arguments, each setter replaces the options with a copy holding the new value
     public String getFilterUserId() {
-        return this.filterUserId;
+        return options.getFilterUserId();
     }
     public void setFilterUserId(String filterUserId) {
-        this.filterUserId = filterUserId;
+        options = options.toBuilder().setFilterUserId(filterUserId).build();
     }
     public String getFilterKeyword() {
-        return this.filterUserId;
+        return options.getFilterKeyword();
     }
     public void setFilterKeyword(String filterKeyword) {
-        this.filterKeyword = filterKeyword;
+        options = options.toBuilder().setFilterKeyword(filterKeyword).build();
     }
     public List<String> getBlacklist() {
-        return this.blacklist;
+        return options.getBlacklist();
     }
     public void setBlacklist(List<String> blacklist) {
-        this.blacklist = blacklist;
+        options = options.toBuilder().setBlacklist(blacklist).build();
     }
     public void setIncludeReport(boolean includeReport) {
-        this.includeReport = includeReport;
+        options = options.toBuilder().setIncludeReport(includeReport).build();
+    }
+    public void setReportLimit(int reportLimit) {
+        options = options.toBuilder().setReportLimit(reportLimit).build();
+    }
+    public void setParallel(boolean parallel) {
+        options = options.toBuilder().setParallel(parallel).build();
+    }
+    public void setMemoryMapped(boolean memoryMapped) {
+        options = options.toBuilder().setMemoryMapped(memoryMapped).build();
+    }
+    public void setColumnar(boolean columnar) {
+        options = options.toBuilder().setColumnar(columnar).build();
+    }
+    public void setStreaming(boolean streaming) {
+        options = options.toBuilder().setStreaming(streaming).build();
+    }
+    public void setCompact(boolean compact) {
+        options = options.toBuilder().setCompact(compact).build();
+    }
+    public void setNdjson(boolean ndjson) {
+        options = options.toBuilder().setNdjson(ndjson).build();
+    }
+    public void setBinary(boolean binary) {
+        options = options.toBuilder().setBinary(binary).build();
+    }
+
+    /**
+     * @return the extension of the files this exporter writes, without any compression
+     */
+    public String getOutputExtension() {
+        return options.getOutputExtension();
+    }
+    public void setQuiet(boolean quiet) {
+        options = options.toBuilder().setQuiet(quiet).build();
+    }
+    public void setIncremental(boolean incremental) {
+        options = options.toBuilder().setIncremental(incremental).build();
+    }
+    public Long getFromTimestamp() {
+        return options.getFromTimestamp();
+    }
+    public void setFromTimestamp(Long fromTimestamp) {
+        options = options.toBuilder().setFromTimestamp(fromTimestamp).build();
+    }
+    public Long getToTimestamp() {
+        return options.getToTimestamp();
+    }
+    public void setToTimestamp(Long toTimestamp) {
+        options = options.toBuilder().setToTimestamp(toTimestamp).build();
+    }
+    public void setBuildKeywordIndex(boolean buildKeywordIndex) {
+        options = options.toBuilder().setBuildKeywordIndex(buildKeywordIndex).build();
+    }
+    public void setCollectStats(boolean collectStats) {
+        options = options.toBuilder().setCollectStats(collectStats).build();
+    }
+    public void setPipelineWorkers(int pipelineWorkers) {
+        options = options.toBuilder().setPipelineWorkers(pipelineWorkers).build();
+    }
+    public void setAnalytics(boolean analytics) {
+        options = options.toBuilder().setAnalytics(analytics).build();
+    }
+
+    /**
+     * @return the stats of the last export run with exportConversation(), or null if it was not run with setCollectStats()
+     */
+    public ExportStats getStats() {
+        ExportResult result = lastResult;
+        return result == null ? null : result.getStats();
     }
     public Conversation getConversation() {
-        return conversation;
+        ExportResult result = lastResult;
+        return result == null ? null : result.getConversation();
     }
     public void setConversation(Conversation conversation) {
-        this.conversation = conversation;
+        lastResult = new ExportResult(conversation, null, null, null, null);
     }
+
+    /**
+     * Builds the JSON tree of the last conversation written by exportConversation() or writeConversation().
+     * The export itself never builds a tree, so the tree is only built when it is asked for
+     * @return the exported JSON, or null if no conversation has been written
+     */
     public JsonElement getExportedJson() {
-        return exportedJson;
+        ExportResult result = lastResult;
+        return result == null ? null : result.getExportedJson();
+    }
+
+    /**
+     * The state of a single export: its options, its stats and the activity report it wrote.
+     * A new one is created for every export, so exports never share any state.
+     */
+    private static final class Export {
+        private final ExportOptions options;
+        private final ExportStats stats;
+        private Activity report;
+        private ConcurrentActivity senderStats;
+        private ConcurrentActivity.Shard senderShard;
+        private Analytics analytics;
+
+        Export(ExportOptions options) {
+            this.options = options;
+            this.stats = options.isCollectStats() ? new ExportStats() : null;
+        }
+
+        /**
+         * Exports the conversation at {@code inputFilePath} to {@code outputFilePath}, reading it
+         * in the way the options ask for
+         * @param inputFilePath The input file path.
+         * @param outputFilePath The output file path.
+         * @return the result of the export
+         * @throws IllegalArgumentException Thrown when either the input or output file cannot be found
+         * @throws EmptyTextFileException Thrown when the ReadConversation attempts to read an empty text file
+         * @throws IOException Thrown when readConversation/writeConversation is unable to read/write.
+         */
+        ExportResult run(String inputFilePath, String outputFilePath) throws
+                IllegalArgumentException, EmptyTextFileException, IOException{
+            KeywordIndex keywordIndex;
+            Conversation conversation = null;
+            if(options.isIncremental()) {
+                if(options.hasTimeRange()) {
+                    throw new IllegalArgumentException("An incremental export cannot be limited to a time range");
+                }
+                this.exportIncrementally(inputFilePath, outputFilePath);
+            }
+            else if(options.hasTimeRange()) {
+                conversation = this.writeConversation(this.readConversationInRange(inputFilePath), outputFilePath);
+            }
+            else if(options.getFilterKeyword() != null && (keywordIndex = openKeywordIndex(inputFilePath)) != null) {
+                conversation = this.writeConversation(this.readKeywordCandidates(inputFilePath, keywordIndex),
+                        outputFilePath);
+            }
+            else if(options.isStreaming() || options.getPipelineWorkers() > 0) {
+                this.streamConversation(inputFilePath, outputFilePath);
+            }
+            else {
+                conversation = this.writeConversation(options.isParallel()
+                        ? this.readConversationInParallel(inputFilePath)
+                        : this.readConversation(inputFilePath), outputFilePath);
+            }
+            if(stats != null) {
+                Path output = Paths.get(outputFilePath);
+                stats.finish(output);
+                stats.save(ExportStats.pathFor(output));
+            }
+            if(!options.isQuiet()) {
+                printStatus(inputFilePath, outputFilePath);
+            }
+            return new ExportResult(conversation, report, stats,
+                    requestedSenderStats(), analytics);
+        }
+
+        /**
+         * Prints the options the conversation was exported with
+         * @param inputFilePath The input file path.
+         * @param outputFilePath The output file path.
+         */
+        private void printStatus(String inputFilePath, String outputFilePath) {
+            if(options.getFilterUserId() !=null) {
+                System.out.println("Showing messages with userId:" + options.getFilterUserId());
+            }
+            if(options.getFilterKeyword() !=null) {
+                System.out.println("Showing messages with keyword:" + options.getFilterKeyword());
+            }
+            if(options.getBlacklist() != null) {
+                System.out.println("Hiding messages with following word(s): " + String.join(", ", options.getBlacklist()));
+            }
+            if(options.isIncludeReport()){
+                System.out.println("Including activity report to output");
+            }
+            if(options.isAnalytics()) {
+                System.out.println("Including analytics in output");
+            }
+            if(options.hasTimeRange()) {
+                System.out.println("Showing messages sent from " + (options.getFromTimestamp() == null ? "the start" : options.getFromTimestamp())
+                        + " to " + (options.getToTimestamp() == null ? "the end" : options.getToTimestamp()));
+            }
+            System.out.println("Conversation exported from '" + inputFilePath + "' to '" + outputFilePath);
+            if(stats != null) {
+                System.out.println(stats);
+            }
+        }
+
+        /**
+         * Writes the given {@code conversation} to the given {@code outputFilePath} once it is filtered and redacted.
+         * The JSON is written straight to the file, without building a tree or String of the document first.
+         * @param c The conversation to write, or null to leave the output empty.
+         * @param outputFilePath The file path where the conversation should be written.
+         * @return the conversation that was written, or null if there was none
+         * @throws IllegalArgumentException Thrown when the file is not found
+         * @throws IOException Thrown when bufferedWriter is unable to write.
+         */
+        Conversation writeConversation(Conversation c, String outputFilePath) throws
+                IOException, IllegalArgumentException {
+            checkOutputExtension(outputFilePath);
+            Conversation written = null;
+            try (OutputStream os = CompressedFiles.openOutput(outputFilePath)) {
+                if(c != null){
+                    written = configureConversation(c);
+                    writeOutput(written, os);
+                }
+            } catch (FileNotFoundException e) {
+                e.printStackTrace();
+                throw new IllegalArgumentException("The file: \""+ outputFilePath +"\"was not found.");
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new IOException("BufferedWriter is unable to write to: \""+
+                        outputFilePath + "\"" +
+                        e.getMessage());
+            } catch (SecurityException e) {
+                System.out.println("Write access denied");
+            }
+            return written;
+        }
+
+        /**
+         * Represents a helper to read a conversation from the given {@code inputFilePath}.
+         * @param inputFilePath The path to the input file.
+         * @return The {@link Conversation} representing by the input file.
+         * @throws EmptyTextFileException Thrown when the input text file is empty
+         * @throws IllegalArgumentException Thrown when the file could not be found
+         * @throws IOException Thrown when BufferedReader is unable to read the input
+         */
+        Conversation readConversation(String inputFilePath)
+                throws EmptyTextFileException, IllegalArgumentException, IOException{
+            if(ColumnarConversationReader.isArchive(inputFilePath)) {
+                return readArchive(inputFilePath);
+            }
+            try(ChatLogReader r = timed(openReader(inputFilePath))) {
+                List<Message> messages = options.isColumnar() ? new ColumnarMessageStore(r.getSenders()) : new ArrayList<>();
+                String conversationName;
+                conversationName = r.readName();
+                if (conversationName == null) {
+                    throw new EmptyTextFileException(" "+inputFilePath + " was empty", null);
+                }
+
+                Message message;
+                while ((message = r.readMessage()) != null) {
+                    checkInterrupted();
+                    messages.add(message);
+                }
+                if(stats != null) {
+                    stats.addBytesRead(Files.size(Paths.get(inputFilePath)));
+                }
+
+                return new Conversation(conversationName, messages, r.getSenders());
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                e.printStackTrace();
+                throw new IOException("BufferedReader was unable to read: \""+
+                        inputFilePath + "\"" + e.getMessage());
+            } catch (SecurityException e) {
+                System.out.println("Read access denied");
+                return null;
+            } catch (DateTimeException e) {
+                System.out.println("Contents of input file \"" + inputFilePath +"\" may have invalid format");
+                return null;
+            }
+
+        }
+
+        /**
+         * Loads a binary columnar archive written with setBinary(), copying its columns into a
+         * {@link ColumnarMessageStore} without parsing any text
+         * @param inputFilePath The path to the archive.
+         * @return The {@link Conversation} held in the archive.
+         * @throws EmptyTextFileException Thrown when the archive is empty
+         * @throws IllegalArgumentException Thrown when the file could not be found
+         * @throws IOException Thrown when the archive cannot be read
+         */
+        private Conversation readArchive(String inputFilePath)
+                throws EmptyTextFileException, IllegalArgumentException, IOException {
+            long start = System.nanoTime();
+            try(ColumnarConversationReader r = new ColumnarConversationReader(CompressedFiles.openInput(inputFilePath))) {
+                Conversation c = r.readConversation();
+                if(c == null) {
+                    throw new EmptyTextFileException(" "+inputFilePath + " was empty", null);
+                }
+                if(stats != null) {
+                    stats.addRead(System.nanoTime() - start, c.getMessages().size(), Files.size(Paths.get(inputFilePath)));
+                }
+                return c;
+            } catch (FileNotFoundException e) {
+                throw new IllegalArgumentException("The file: \""+ inputFilePath +"\"was not found.");
+            }
+        }
+
+        /**
+         * Reads a conversation from the given {@code inputFilePath}, parsing newline-aligned
+         * byte ranges of the file on a fork-join pool. The messages keep their order in the file.
+         * A compressed file or an archive can't be split, so it is read with readConversation() instead.
+         * @param inputFilePath The path to the input file.
+         * @return The {@link Conversation} representing by the input file.
+         * @throws EmptyTextFileException Thrown when the input text file is empty
+         * @throws IllegalArgumentException Thrown when the file could not be found
+         * @throws IOException Thrown when the input cannot be read
+         */
+        Conversation readConversationInParallel(String inputFilePath)
+                throws EmptyTextFileException, IllegalArgumentException, IOException {
+            if(!isPlainLog(inputFilePath)) {
+                return readConversation(inputFilePath);
+            }
+            try {
+                long start = System.nanoTime();
+                Conversation c = new ParallelConversationReader().read(Paths.get(inputFilePath), options.isColumnar());
+                if(c == null) {
+                    throw new EmptyTextFileException(" "+inputFilePath + " was empty", null);
+                }
+                if(stats != null) {
+                    stats.addRead(System.nanoTime() - start, c.getMessages().size(), Files.size(Paths.get(inputFilePath)));
+                }
+                return c;
+            } catch (NoSuchFileException e) {
+                throw new IllegalArgumentException("The file: \""+ inputFilePath +"\"was not found.");
+            } catch (DateTimeException e) {
+                System.out.println("Contents of input file \"" + inputFilePath +"\" may have invalid format");
+                return null;
+            }
+        }
+
+        /**
+         * Reads the messages of the conversation at {@code inputFilePath} sent in the time range set with
+         * setFromTimestamp() and setToTimestamp(). A sparse index of the timestamps, built on the first read and
+         * saved next to the input, lets the read seek to the start of the range and stop at its end,
+         * so only that part of the file is parsed. A compressed file or an archive can't be indexed, so all of it
+         * is read and the messages outside the time range are left out.
+         * @param inputFilePath The path to the input file.
+         * @return The {@link Conversation} holding the messages in the time range.
+         * @throws EmptyTextFileException Thrown when the input text file is empty
+         * @throws IllegalArgumentException Thrown when the file could not be found
+         * @throws IOException Thrown when the input cannot be read
+         */
+        Conversation readConversationInRange(String inputFilePath)
+                throws EmptyTextFileException, IllegalArgumentException, IOException {
+            if(!isPlainLog(inputFilePath)) {
+                return readWholeInRange(inputFilePath);
+            }
+            long startNanos = System.nanoTime();
+            Path input = Paths.get(inputFilePath);
+            if(!Files.isRegularFile(input)) {
+                throw new IllegalArgumentException("The file: \""+ inputFilePath +"\"was not found.");
+            }
+            String conversationName;
+            try(ChatLogTail header = new ChatLogTail(input, 0)) {
+                if(!header.nextLine()) {
+                    throw new EmptyTextFileException(" "+inputFilePath + " was empty", null);
+                }
+                conversationName = header.readName();
+            }
+
+            TimeIndex index = TimeIndex.open(input);
+            long start = options.getFromTimestamp() == null ? index.getBodyStart() : index.seek(options.getFromTimestamp());
+            try(ChatLogTail tail = new ChatLogTail(input, start)) {
+                List<Message> messages = options.isColumnar() ? new ColumnarMessageStore(tail.getSenders()) : new ArrayList<>();
+                while(tail.nextLine()) {
+                    checkInterrupted();
+                    long timestamp = tail.readTimestamp();
+                    if(options.getToTimestamp() != null && timestamp >= options.getToTimestamp()) {
+                        if(index.isOrdered()) {
+                            break;
+                        }
+                    }
+                    else if(options.getFromTimestamp() == null || timestamp >= options.getFromTimestamp()) {
+                        messages.add(tail.readMessage());
+                    }
+                }
+                if(stats != null) {
+                    stats.addRead(System.nanoTime() - startNanos, messages.size(), tail.getOffset() - start);
+                }
+                return new Conversation(conversationName, messages, tail.getSenders());
+            } catch (DateTimeException e) {
+                System.out.println("Contents of input file \"" + inputFilePath +"\" may have invalid format");
+                return null;
+            }
+        }
+
+        /**
+         * Reads the messages of a compressed conversation or an archive sent in the time range,
+         * by reading the whole conversation
+         * @param inputFilePath The path to the input file.
+         * @return The {@link Conversation} holding the messages in the time range.
+         * @throws EmptyTextFileException Thrown when the input text file is empty
+         * @throws IllegalArgumentException Thrown when the file could not be found
+         * @throws IOException Thrown when the input cannot be read
+         */
+        private Conversation readWholeInRange(String inputFilePath)
+                throws EmptyTextFileException, IllegalArgumentException, IOException {
+            Conversation c = readConversation(inputFilePath);
+            if(c == null) {
+                return null;
+            }
+            List<Message> messages = options.isColumnar() ? new ColumnarMessageStore(c.getSenders()) : new ArrayList<>();
+            for(Message message: c.getMessages()) {
+                long timestamp = message.getTimestamp().getEpochSecond();
+                if((options.getFromTimestamp() == null || timestamp >= options.getFromTimestamp()) && (options.getToTimestamp() == null || timestamp < options.getToTimestamp())) {
+                    messages.add(message);
+                }
+            }
+            return new Conversation(c.getName(), messages, c.getSenders());
+        }
+
+        /**
+         * Opens the keyword index saved next to the input, building it first if it is missing and
+         * building was requested with setBuildKeywordIndex(). Compressed inputs and archives are never indexed
+         * @param inputFilePath The path to the input file.
+         * @return the index, or null if there is no up to date index to use
+         * @throws IOException Thrown when the input or the index cannot be read
+         */
+        private KeywordIndex openKeywordIndex(String inputFilePath) throws IOException {
+            Path input = Paths.get(inputFilePath);
+            if(!Files.isRegularFile(input) || !isPlainLog(inputFilePath)) {
+                return null;
+            }
+            Path path = KeywordIndex.pathFor(input);
+            KeywordIndex index = KeywordIndex.load(path, input);
+            if(index == null && options.isBuildKeywordIndex()) {
+                index = KeywordIndex.build(input);
+                try {
+                    index.save(path);
+                } catch (IOException e) {
+                    // the directory may be read-only, the index is still used for this export
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Reads only the messages the keyword index lists as candidates for the keyword filter.
+         * The keyword filter still checks every candidate, so the result is the same as scanning every message
+         * @param inputFilePath The path to the input file.
+         * @param index The keyword index of the input file.
+         * @return The {@link Conversation} holding the candidate messages.
+         * @throws EmptyTextFileException Thrown when the input text file is empty
+         * @throws IOException Thrown when the input cannot be read
+         */
+        private Conversation readKeywordCandidates(String inputFilePath, KeywordIndex index)
+                throws EmptyTextFileException, IOException {
+            long start = System.nanoTime();
+            Path input = Paths.get(inputFilePath);
+            try(ChatLogTail tail = new ChatLogTail(input, 0)) {
+                if(!tail.nextLine()) {
+                    throw new EmptyTextFileException(" "+inputFilePath + " was empty", null);
+                }
+                String conversationName = tail.readName();
+                List<Message> messages = options.isColumnar() ? new ColumnarMessageStore(tail.getSenders()) : new ArrayList<>();
+                int[] candidates = KeywordQuery.parse(options.getFilterKeyword()).candidates(index::candidates);
+                long bytes = tail.getOffset();
+                if(candidates == null) {
+                    while(tail.nextLine()) {
+                        checkInterrupted();
+                        messages.add(tail.readMessage());
+                    }
+                    bytes = tail.getOffset();
+                }
+                else {
+                    for(int ordinal: candidates) {
+                        checkInterrupted();
+                        long offset = index.getOffset(ordinal);
+                        if(tail.getOffset() != offset) {
+                            tail.seek(offset);
+                        }
+                        tail.nextLine();
+                        messages.add(tail.readMessage());
+                        bytes += tail.getOffset() - offset;
+                    }
+                }
+                if(stats != null) {
+                    stats.addRead(System.nanoTime() - start, messages.size(), bytes);
+                }
+                return new Conversation(conversationName, messages, tail.getSenders());
+            } catch (DateTimeException e) {
+                System.out.println("Contents of input file \"" + inputFilePath +"\" may have invalid format");
+                return null;
+            }
+        }
+
+        /**
+         * @param inputFilePath The path to the input file.
+         * @return true if the input is an uncompressed text chat log, which can be mapped, split and seeked
+         */
+        private static boolean isPlainLog(String inputFilePath) {
+            return !CompressedFiles.isCompressed(inputFilePath) && !ColumnarConversationReader.isArchive(inputFilePath);
+        }
+
+        /**
+         * Streams the conversation at {@code inputFilePath} as JSON to {@code outputFilePath}.
+         * Every line is parsed, configured and written before the next one is read,
+         * so memory use stays the same however large the input is.
+         * @param inputFilePath The input file path.
+         * @param outputFilePath The output file path.
+         * @throws EmptyTextFileException Thrown when the input text file is empty
+         * @throws IllegalArgumentException Thrown when either the input or output file cannot be found
+         * @throws IOException Thrown when the input cannot be read or the output cannot be written
+         */
+        private void streamConversation(String inputFilePath, String outputFilePath)
+                throws EmptyTextFileException, IllegalArgumentException, IOException {
+            checkOutputExtension(outputFilePath);
+            try(ChatLogReader r = timed(openReader(inputFilePath))) {
+                String conversationName = r.readName();
+                if (conversationName == null) {
+                    throw new EmptyTextFileException(" "+inputFilePath + " was empty", null);
+                }
+                Activity activity = options.isIncludeReport() ? newActivity(r.getSenders()) : null;
+                // pipelined exports count the report in a shard per worker, whether the sender stats are needed or not
+                if(activity != null && (options.isSenderStats() || options.getPipelineWorkers() > 0)) {
+                    senderStats = new ConcurrentActivity(r.getSenders());
+                }
+                if(options.isAnalytics()) {
+                    analytics = new Analytics(r.getSenders());
+                }
+                try (OutputStream os = CompressedFiles.openOutput(outputFilePath);
+                    ConversationWriter w = newWriter(os)) {
+                    w.beginConversation(conversationName);
+                    if(options.getPipelineWorkers() > 0) {
+                        streamInPipeline(r, w);
+                    }
+                    else {
+                        senderShard = senderStats == null ? null : senderStats.newShard();
+                        MessageOperator plan = buildPlan().compile(r.getSenders());
+                        Message message;
+                        while ((message = r.readMessage()) != null) {
+                            checkInterrupted();
+                            message = plan.apply(message);
+                            if(message == null) {
+                                continue;
+                            }
+                            writeMessage(message, w, activity);
+                        }
+                    }
+                    if(activity != null) {
+                        if(senderStats != null) {
+                            senderStats.addTo(activity);
+                        }
+                        activity.finish();
+                    }
+                    w.endConversation(activity, analytics);
+                    report = activity;
+                } catch (FileNotFoundException e) {
+                    throw new IllegalArgumentException("The file: \""+ outputFilePath +"\"was not found.");
+                }
+                if(stats != null) {
+                    stats.addBytesRead(Files.size(Paths.get(inputFilePath)));
+                }
+            } catch (DateTimeException e) {
+                System.out.println("Contents of input file \"" + inputFilePath +"\" may have invalid format");
+            }
+        }
+
+        /**
+         * Streams the messages of the reader through an {@link ExportPipeline}. Each transform worker applies
+         * a plan of its own, records its messages into a shard of the sender stats and collects its own stats,
+         * so the workers share nothing. The stats are merged once the last message has been written, and the shards
+         * when the report is finished
+         * @param r The reader, positioned after the conversation name
+         * @param w The writer of the output, written to by the writer thread of the pipeline
+         * @throws IOException Thrown when the input cannot be read or the output cannot be written
+         */
+        private void streamInPipeline(ChatLogReader r, ConversationWriter w) throws IOException {
+            int workers = options.getPipelineWorkers();
+            MessageOperator[] transforms = new MessageOperator[workers];
+            ExportStats[] workerStats = new ExportStats[workers];
+            for(int i = 0; i < workers; i++) {
+                workerStats[i] = stats == null ? null : new ExportStats();
+                transforms[i] = counting(buildPlan(workerStats[i]).compile(r.getSenders()),
+                        senderStats == null ? null : senderStats.newShard(), workerStats[i]);
+            }
+            ExportStats writerStats = stats == null ? null : new ExportStats();
+            // the analytics need the messages in order, so they are recorded by the writer
+            new ExportPipeline(transforms).run(r, message -> {
+                if(writerStats == null) {
+                    if(analytics != null) {
+                        analytics.record(message);
+                    }
+                    w.writeMessage(message);
+                    return;
+                }
+                long start = System.nanoTime();
+                if(analytics != null) {
+                    analytics.record(message);
+                    writerStats.record(ExportStats.ANALYTICS, start);
+                    start = System.nanoTime();
+                }
+                w.writeMessage(message);
+                writerStats.record(ExportStats.WRITE, start);
+            });
+            if(stats != null) {
+                for(ExportStats worker: workerStats) {
+                    stats.merge(worker);
+                }
+                stats.merge(writerStats);
+            }
+        }
+
+        /**
+         * @param plan The plan of a transform worker
+         * @param shard The shard the worker records its messages into, or null if no report is included
+         * @param stats The stats of the worker, or null if no stats are being collected
+         * @return an operator applying the plan and recording the messages that pass it
+         */
+        private static MessageOperator counting(MessageOperator plan, ConcurrentActivity.Shard shard,
+                                                ExportStats stats) {
+            if(shard == null) {
+                return plan;
+            }
+            return msg -> {
+                msg = plan.apply(msg);
+                if(msg == null) {
+                    return null;
+                }
+                if(stats == null) {
+                    shard.record(msg);
+                }
+                else {
+                    long start = System.nanoTime();
+                    shard.record(msg);
+                    stats.record(ExportStats.REPORT, start);
+                }
+                return msg;
+            };
+        }
+
+        /**
+         * Exports the conversation at {@code inputFilePath} incrementally, for chat logs that only grow at the end.
+         * A checkpoint saved next to the output records how far the input was read, where the messages array
+         * of the output ends and the activity counted so far. When the input has only grown since then, just the
+         * new lines are parsed: the output is cut back to the end of its messages array, and the new messages,
+         * the activity report and the end of the document are written after it. The output is the same as a full
+         * export. An unfinished last line is exported but left out of the checkpoint, so it is parsed again
+         * once it is complete. Neither file can be compressed or an archive, as they are read and written from the middle.
+         * @param inputFilePath The input file path.
+         * @param outputFilePath The output file path.
+         * @throws EmptyTextFileException Thrown when the input text file is empty
+         * @throws IllegalArgumentException Thrown when either the input or output file cannot be found, or is compressed
+         * or an archive
+         * @throws IOException Thrown when the input cannot be read or the output cannot be written
+         */
+        private void exportIncrementally(String inputFilePath, String outputFilePath)
+                throws EmptyTextFileException, IllegalArgumentException, IOException {
+            checkOutputExtension(outputFilePath);
+            if(!isPlainLog(inputFilePath) || CompressedFiles.isCompressed(outputFilePath)) {
+                throw new IllegalArgumentException("An incremental export cannot read or write compressed files or archives");
+            }
+            if(options.isBinary()) {
+                throw new IllegalArgumentException("An incremental export cannot write a binary archive");
+            }
+            if(options.isAnalytics()) {
+                throw new IllegalArgumentException("An incremental export cannot collect analytics, "
+                        + "as only the appended messages are read");
+            }
+            Path input = Paths.get(inputFilePath);
+            Path output = Paths.get(outputFilePath);
+            if(!Files.isRegularFile(input)) {
+                throw new IllegalArgumentException("The file: \""+ inputFilePath +"\"was not found.");
+            }
+            Path checkpointPath = Checkpoint.pathFor(output);
+            String description = options.describeOutput();
+            Checkpoint previous = Checkpoint.load(checkpointPath);
+            if(previous != null && !previous.canResume(input, output, description)) {
+                previous = null;
+            }
+
+            long inputStart = previous == null ? 0 : previous.getInputOffset();
+            try(ChatLogTail tail = new ChatLogTail(input, inputStart)) {
+                String conversationName;
+                boolean resumable = true;
+                if(previous == null) {
+                    if(!tail.nextLine()) {
+                        throw new EmptyTextFileException(" "+inputFilePath + " was empty", null);
+                    }
+                    conversationName = tail.readName();
+                    resumable = tail.isComplete();
+                }
+                else {
+                    conversationName = previous.getName();
+                }
+                long messages = previous == null ? 0 : previous.getMessages();
+                long lastTimestamp = previous == null ? -1 : previous.getLastTimestamp();
+                Activity activity = options.isIncludeReport() ? newActivity(tail.getSenders()) : null;
+                if(activity != null && previous != null) {
+                    previous.getCounts().forEach(activity::add);
+                }
+                MessageOperator plan = buildPlan().compile(tail.getSenders());
+
+                long outputStart = previous == null ? 0 : previous.getOutputOffset();
+                long committedInput;
+                long committedOutput;
+                long committedMessages;
+                long committedTimestamp;
+                Map<String, Integer> committedCounts;
+                // the writer closes the channel too, the channel is only closed here if the writer is never created
+                try (FileChannel channel = openOutputChannel(output, outputFilePath)) {
+                    channel.truncate(outputStart);
+                    channel.position(outputStart);
+                    CountingOutputStream counter = new CountingOutputStream(Channels.newOutputStream(channel), outputStart);
+                    Writer out = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8));
+                    try (ConversationWriter w = previous == null || options.isNdjson()
+                            ? newWriter(out)
+                            : ConversationJsonWriter.resume(out, options.isCompact(), conversationName, messages > 0)) {
+                        if(previous == null) {
+                            w.beginConversation(conversationName);
+                        }
+                        long lineStart = tail.getOffset();
+                        while(tail.nextLine()) {
+                            if(!tail.isComplete()) {
+                                break;
+                            }
+                            checkInterrupted();
+                            Message message = tail.readMessage();
+                            lastTimestamp = message.getTimestamp().getEpochSecond();
+                            if(stats != null) {
+                                stats.addLinesRead(1);
+                            }
+                            if(writeIncrementally(plan.apply(message), w, activity)) {
+                                messages++;
+                            }
+                            lineStart = tail.getOffset();
+                        }
+
+                        // everything up to here is checkpointed, an unfinished last line is not
+                        w.flush();
+                        committedInput = lineStart;
+                        committedOutput = counter.count;
+                        committedMessages = messages;
+                        committedTimestamp = lastTimestamp;
+                        committedCounts = activity == null ? new LinkedHashMap<>() : activity.getCounts();
+                        Message unfinished = tail.getOffset() != lineStart ? readUnfinishedMessage(tail) : null;
+                        if(unfinished != null) {
+                            writeIncrementally(plan.apply(unfinished), w, activity);
+                        }
+                        if(stats != null) {
+                            stats.addBytesRead(tail.getOffset() - inputStart);
+                        }
+
+                        if(activity != null) {
+                            activity.finish();
+                        }
+                        w.endConversation(activity);
+                    }
+                }
+
+                if(resumable) {
+                    new Checkpoint(description, conversationName, committedInput, Checkpoint.checksum(input, committedInput),
+                            committedTimestamp, committedOutput, Files.size(output), committedMessages, committedCounts)
+                            .save(checkpointPath);
+                }
+                else {
+                    Files.deleteIfExists(checkpointPath);
+                }
+            } catch (DateTimeException e) {
+                System.out.println("Contents of input file \"" + inputFilePath +"\" may have invalid format");
+            }
+        }
+
+        /**
+         * Opens the output of an incremental export for writing, creating it if it doesn't exist
+         * @throws IllegalArgumentException Thrown when the directory of the output cannot be found
+         */
+        private static FileChannel openOutputChannel(Path output, String outputFilePath) throws IOException {
+            try {
+                return FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+            } catch (NoSuchFileException e) {
+                throw new IllegalArgumentException("The file: \""+ outputFilePath +"\"was not found.");
+            }
+        }
+
+        /**
+         * Reads the last line of a log that is still being written. The line may stop anywhere,
+         * so a line that isn't a whole message yet is skipped, and exported by the run after it is complete
+         * @return the message of the line, or null if it isn't a message yet
+         */
+        private static Message readUnfinishedMessage(ChatLogTail tail) {
+            try {
+                return tail.readMessage();
+            } catch (MalformedMessageException | DateTimeException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Writes a message that passed the plan and counts it towards the activity report
+         * @return true if the message was written, false if the plan dropped it
+         */
+        private boolean writeIncrementally(Message message, ConversationWriter w, Activity activity)
+                throws IOException {
+            if(message == null) {
+                return false;
+            }
+            writeMessage(message, w, activity);
+            return true;
+        }
+
+        /**
+         * Stops the export once its thread is interrupted, so a cancelled asynchronous export
+         * gives its thread back without reading or writing the rest of the conversation
+         * @throws InterruptedIOException Thrown when the thread has been interrupted
+         */
+        private static void checkInterrupted() throws InterruptedIOException {
+            if(Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("The export was interrupted");
+            }
+        }
+
+        /**
+         * Writes a message that passed the plan, counting it towards the activity report and the analytics first.
+         * Every step is timed when stats are being collected
+         * @param message The message to write
+         * @param w The writer of the output
+         * @param activity The activity report, or null if no report is included
+         * @throws IOException Thrown when the output cannot be written
+         */
+        private void writeMessage(Message message, ConversationWriter w, Activity activity) throws IOException {
+            if(stats == null) {
+                if(activity != null) {
+                    record(message, activity);
+                }
+                if(analytics != null) {
+                    analytics.record(message);
+                }
+                w.writeMessage(message);
+                return;
+            }
+            long start = System.nanoTime();
+            if(activity != null) {
+                record(message, activity);
+                stats.record(ExportStats.REPORT, start);
+                start = System.nanoTime();
+            }
+            if(analytics != null) {
+                analytics.record(message);
+                stats.record(ExportStats.ANALYTICS, start);
+                start = System.nanoTime();
+            }
+            w.writeMessage(message);
+            stats.record(ExportStats.WRITE, start);
+        }
+
+        /**
+         * @param os The stream of the output file
+         * @return a writer of a binary columnar archive if setBinary() was used, otherwise of JSON
+         */
+        private ConversationWriter newWriter(OutputStream os) {
+            if(options.isBinary()) {
+                return new ColumnarConversationWriter(os);
+            }
+            return newWriter(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8)));
+        }
+
+        /**
+         * @param out The writer of the output file
+         * @return a writer of NDJSON records if setNdjson() was used, otherwise of a single JSON document
+         */
+        private ConversationWriter newWriter(Writer out) {
+            return options.isNdjson() ? new ConversationNdjsonWriter(out) : new ConversationJsonWriter(out, options.isCompact());
+        }
+
+        /**
+         * @param reader The reader to time
+         * @return a reader timed for the stats, or the same reader if no stats are being collected
+         */
+        private ChatLogReader timed(ChatLogReader reader) {
+            return stats == null ? reader : stats.time(reader);
+        }
+
+        /**
+         * Opens a {@link ChatLogReader} over the given {@code inputFilePath}.
+         * When memory mapping is enabled, the user filter is pushed down into the reader
+         * so messages from other users are skipped before they are decoded.
+         * A compressed file can't be mapped, it is decompressed on a thread of its own while it is parsed.
+         * An archive is read one row group at a time.
+         * @param inputFilePath The path to the input file.
+         * @return the reader positioned at the start of the chat log
+         * @throws IllegalArgumentException Thrown when the file could not be found
+         * @throws IOException Thrown when the file cannot be opened
+         */
+        private ChatLogReader openReader(String inputFilePath) throws IllegalArgumentException, IOException {
+            try {
+                if(options.isMemoryMapped() && isPlainLog(inputFilePath)) {
+                    return new MappedConversationReader(Paths.get(inputFilePath), options.getFilterUserId());
+                }
+                InputStream is = CompressedFiles.openInput(inputFilePath);
+                if(ColumnarConversationReader.isArchive(inputFilePath)) {
+                    return new ColumnarConversationReader(is);
+                }
+                return new ConversationReader(new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8)));
+            } catch (FileNotFoundException | NoSuchFileException e) {
+                throw new IllegalArgumentException("The file: \""+ inputFilePath +"\"was not found.");
+            }
+        }
+
+        /**
+         * Ensures the output is written to a JSON file, which may be gzip-compressed.
+         * NDJSON may also be written to a ".ndjson" or ".jsonl" file, and a binary archive must be written to a ".chatcol" file
+         * @param outputFilePath The output file path.
+         * @throws InvalidExtensionException Thrown when the output file does not have the ".json" or ".json.gz" extension
+         */
+        private void checkOutputExtension(String outputFilePath) throws InvalidExtensionException {
+            if(options.isBinary() && options.isNdjson()) {
+                throw new IllegalArgumentException("An export cannot write both NDJSON and a binary archive");
+            }
+            if(options.isBinary() && options.isAnalytics()) {
+                throw new IllegalArgumentException("A binary archive cannot hold analytics");
+            }
+            if(options.isBinary()) {
+                if(!ColumnarConversationReader.isArchive(outputFilePath)) {
+                    throw new InvalidExtensionException("Incorrect file extension for output. file: \""+ outputFilePath
+                            + "\" should have extension: \"" + ColumnarConversationWriter.EXTENSION
+                            + "\", optionally followed by \".gz\"");
+                }
+                return;
+            }
+            String extensions = options.isNdjson() ? "\".json\", \".ndjson\" or \".jsonl\"" : "\".json\"";
+            String errorMsg =  "Incorrect file extension for output. file: \""+ outputFilePath
+                    + "\" should have extension: " + extensions + ", optionally followed by \".gz\"";
+            if(!outputFilePath.matches(options.isNdjson() ? "^.+\\.(json|ndjson|jsonl)(\\.gz)?$" : "^.+\\.json(\\.gz)?$")) {
+                throw new InvalidExtensionException(errorMsg);
+            }
+        }
+
+        /**
+         * Writes the final conversation used in writeConversation() as JSON, or in the format chosen with
+         * setNdjson() or setBinary(), counting the activity report while the messages are written
+         * so the report is appended without a second pass
+         * @param c The final conversation that will be written to the output
+         * @param os The stream of the output file
+         * @throws IOException Thrown when the output cannot be written
+         */
+        private void writeOutput(Conversation c, OutputStream os) throws IOException {
+            Activity activity = options.isIncludeReport() ? newActivity(c.getSenders()) : null;
+            if(activity != null && options.isSenderStats()) {
+                senderStats = c.getSenders() == null ? new ConcurrentActivity() : new ConcurrentActivity(c.getSenders());
+                senderShard = senderStats.newShard();
+            }
+            if(options.isAnalytics()) {
+                analytics = c.getSenders() == null ? new Analytics() : new Analytics(c.getSenders());
+            }
+            try (ConversationWriter w = newWriter(os)) {
+                w.beginConversation(c.getName());
+                for(Message message: c.getMessages()) {
+                    checkInterrupted();
+                    writeMessage(message, w, activity);
+                }
+                if(activity != null) {
+                    if(senderStats != null) {
+                        senderStats.addTo(activity);
+                    }
+                    activity.finish();
+                }
+                w.endConversation(activity, analytics);
+            }
+            report = activity;
+        }
+
+        /**
+         * Counts a message towards the sender stats if this export collects them, their counts are added to the
+         * activity report once every message is written. Otherwise the message is counted straight into the report
+         */
+        private void record(Message message, Activity activity) {
+            if(senderShard != null) {
+                senderShard.record(message);
+            }
+            else {
+                activity.record(message);
+            }
+        }
+
+        /**
+         * @return the stats of each sender if they were requested with setSenderStats(), otherwise null
+         */
+        private List<SenderStats> requestedSenderStats() {
+            return senderStats == null || !options.isSenderStats() ? null : senderStats.getSenderStats();
+        }
+
+        /**
+         * @param senders The dictionary the messages were parsed with, or null if they have none
+         * @return an empty activity report configured according to the command-line arguments
+         */
+        private Activity newActivity(SenderDictionary senders) {
+            Activity activity = senders == null ? new Activity() : new Activity(senders);
+            activity.setLimit(options.getReportLimit());
+            return activity;
+        }
+
+        /**
+         * Builds the plan of filters and redactions requested by the command-line arguments.
+         * Every requested option is applied, in a single pass over the messages
+         * @return the plan, which leaves messages unchanged if there are no optional arguments
+         */
+        private QueryPlan buildPlan() {
+            return buildPlan(stats);
+        }
+
+        /**
+         * Builds the plan of filters and redactions requested by the command-line arguments
+         * @param stats The stats the plan is timed into, or null to leave it untimed
+         * @return the plan, which leaves messages unchanged if there are no optional arguments
+         */
+        private QueryPlan buildPlan(ExportStats stats) {
+            QueryPlan queryPlan = new QueryPlan().setStats(stats);
+            if(options.getFilterUserId() !=null) {
+                queryPlan.filterByUser(options.getFilterUserId());
+            }
+            if(options.getFilterKeyword() !=null) {
+                queryPlan.filterByKeyword(options.getFilterKeyword());
+            }
+            if(options.getBlacklist() != null) {
+                queryPlan.redact(options.getBlacklist());
+            }
+            return queryPlan;
+        }
+
+        /**
+         * configures the conversation according to the command-line arguments
+         * If there are no optional arguments used, the original conversation will be passed
+         * @param c The original un-edited conversation
+         * @return The edited conversation (if optional arguments used)
+         */
+        private Conversation configureConversation(Conversation c) {
+            return new ConversationBuilder(c, buildPlan()).build();
+        }
+    }
+
+    /**
+     * Counts the bytes written through it, starting from the offset the output was opened at
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out, long offset) {
+            super(out);
+            this.count = offset;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
     }
 
     static class InstantSerializer implements JsonSerializer<Instant> {
@@ -1,8 +1,10 @@
 package com.mindlinksoft.recruitment.juliankubelec.mychat;
 
+import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.InvalidExtensionException;
 import picocli.CommandLine;
 
-import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Paths;
 
 
 public class ConversationExporterApp {
@@ -14,7 +16,6 @@ public class ConversationExporterApp {
     public static void main(String[] args) {
         // We use picocli to parse the command line - see https://picocli.info/
         ConversationExporterConfiguration configuration = new ConversationExporterConfiguration();
-        ConversationExporter exporter = new ConversationExporter();
         CommandLine cmd =new CommandLine(configuration);
 
         try {
@@ -31,25 +32,36 @@ public class ConversationExporterApp {
                 return;
             }
 
-            if(parseResult.hasMatchedOption(configuration.userOpt)) {
-                exporter.setFilterUserId(configuration.filterUserId);
-            }
-            else if(parseResult.hasMatchedOption(configuration.filterKeyword)) {
-                exporter.setFilterKeyword(configuration.filterKeyword);
+            if(parseResult.hasMatchedOption(configuration.serveOpt)) {
+                try (ExportServer server = new ExportServer(
+                        configuration.port, configuration.threads, configuration.queueCapacity,
+                        configuration.maxConnections)) {
+                    System.out.println("Listening for export requests on " + InetAddress.getLoopbackAddress().getHostAddress()
+                            + ":" + server.getPort());
+                    server.serve();
+                }
+                System.exit(cmd.getCommandSpec().exitCodeOnSuccess());
+                return;
             }
-            else if(parseResult.hasMatchedOption(configuration.blacklistOpt)) {
-                exporter.setBlacklist(configuration.blacklist);
-            }else if(parseResult.hasMatchedOption(configuration.reportOpt)){
-                exporter.setIncludeReport(configuration.reportIncluded);
+
+            checkFilePaths(cmd, configuration);
+            if(configuration.batch) {
+                BatchExporter batch = new BatchExporter(new ConversationExporter(),
+                        configure(ExportOptions.builder(), parseResult, configuration).build(), configuration.threads);
+                BatchResult result = batch.export(configuration.inputFilePath, Paths.get(configuration.outputFilePath));
+                System.out.println(result);
+                System.exit(result.isSuccessful()
+                        ? cmd.getCommandSpec().exitCodeOnSuccess()
+                        : cmd.getCommandSpec().exitCodeOnExecutionException());
+                return;
             }
 
+            ExportOptions options = configure(ExportOptions.builder(), parseResult, configuration).build();
             try{
-                exporter.exportConversation(configuration.inputFilePath, configuration.outputFilePath);
+                new ConversationExporter().export(configuration.inputFilePath, configuration.outputFilePath, options);
 
-            }catch (IOException e){
-                if(e.equals(exporter.extensionError)){
-                    throw new CommandLine.ParameterException(cmd, e.getMessage());
-                }
+            }catch (InvalidExtensionException e){
+                throw new CommandLine.ParameterException(cmd, e.getMessage());
             }
 
             System.exit(cmd.getCommandSpec().exitCodeOnSuccess());
@@ -65,4 +77,58 @@ public class ConversationExporterApp {
             System.exit(cmd.getCommandSpec().exitCodeOnExecutionException());
         }
     }
+
+    /**
+     * Ensures both file paths were given, they are only optional in server mode
+     * @param cmd The command line
+     * @param configuration The values of the options
+     * @throws CommandLine.ParameterException Thrown when the input or output path is missing
+     */
+    static void checkFilePaths(CommandLine cmd, ConversationExporterConfiguration configuration)
+            throws CommandLine.ParameterException {
+        if(configuration.inputFilePath == null || configuration.outputFilePath == null) {
+            throw new CommandLine.ParameterException(cmd,
+                    "Missing required options: '--inputFilePath=<inputFilePath>', '--outputFilePath=<outputFilePath>'");
+        }
+    }
+
+    /**
+     * Applies the command-line options to the options of an export
+     * @param options The builder of the export options
+     * @param parseResult The parsed command line
+     * @param configuration The values of the options
+     * @return the same builder, holding the command-line options
+     */
+    static ExportOptions.Builder configure(ExportOptions.Builder options, CommandLine.ParseResult parseResult,
+                                           ConversationExporterConfiguration configuration) {
+        // every option is applied, filters and redaction are combined into one pass over the messages
+        if(parseResult.hasMatchedOption(configuration.userOpt)) {
+            options.setFilterUserId(configuration.filterUserId);
+        }
+        if(parseResult.hasMatchedOption(configuration.keywordOpt)) {
+            options.setFilterKeyword(configuration.filterKeyword);
+        }
+        if(parseResult.hasMatchedOption(configuration.blacklistOpt)) {
+            options.setBlacklist(configuration.blacklist);
+        }
+        if(parseResult.hasMatchedOption(configuration.reportOpt)){
+            options.setIncludeReport(configuration.reportIncluded);
+            options.setReportLimit(configuration.reportLimit);
+        }
+        options.setStreaming(configuration.streaming);
+        options.setParallel(configuration.parallel);
+        options.setMemoryMapped(configuration.memoryMapped);
+        options.setColumnar(configuration.columnar);
+        options.setCompact(configuration.compact);
+        options.setNdjson(configuration.ndjson);
+        options.setBinary(configuration.binary);
+        options.setIncremental(configuration.incremental);
+        options.setFromTimestamp(configuration.fromTimestamp);
+        options.setToTimestamp(configuration.toTimestamp);
+        options.setBuildKeywordIndex(configuration.buildKeywordIndex);
+        options.setCollectStats(configuration.stats);
+        options.setPipelineWorkers(configuration.pipelineWorkers);
+        options.setAnalytics(configuration.analytics);
+        return options;
+    }
 }
@@ -15,17 +15,37 @@ public final class ConversationExporterConfiguration {
     public final String keywordOpt = "--filterByKeyword";
     public final String blacklistOpt = "--blacklist";
     public final String reportOpt = "--report";
+    public final String reportTopOpt = "--reportTop";
+    public final String streamOpt = "--stream";
+    public final String parallelOpt = "--parallel";
+    public final String mmapOpt = "--mmap";
+    public final String columnarOpt = "--columnar";
+    public final String compactOpt = "--compact";
+    public final String batchOpt = "--batch";
+    public final String threadsOpt = "--threads";
+    public final String serveOpt = "--serve";
+    public final String queueOpt = "--queue";
+    public final String connectionsOpt = "--connections";
+    public final String incrementalOpt = "--incremental";
+    public final String fromOpt = "--from";
+    public final String toOpt = "--to";
+    public final String keywordIndexOpt = "--keywordIndex";
+    public final String statsOpt = "--stats";
+    public final String ndjsonOpt = "--ndjson";
+    public final String binaryOpt = "--binary";
+    public final String pipelineOpt = "--pipeline";
+    public final String analyticsOpt = "--analytics";
 
     /**
      * Gets the input file path.
      */
-    @Option(names = { "-i", "--inputFilePath" }, description = "The path to the input chat log file.", required = true)
+    @Option(names = { "-i", "--inputFilePath" }, description = "The path to the input chat log file, or the input directory or glob in batch mode.")
     public String inputFilePath;
 
     /**
      * Gets the output file path.
      */
-    @Option(names = { "-o", "--outputFilePath" }, description = "The path to the output JSON file.", required = true)
+    @Option(names = { "-o", "--outputFilePath" }, description = "The path to the output JSON file, or the output directory in batch mode.")
     public String outputFilePath;
 
     /**
@@ -37,7 +57,7 @@ public final class ConversationExporterConfiguration {
     /**
      * Filters conversation with messages that contain a given keyword
      */
-    @Option(names = {keywordOpt}, description = "The keyword used to filter the conversation")
+    @Option(names = {keywordOpt}, description = "The keyword used to filter the conversation, keywords can be combined with AND, OR, NOT and parentheses")
     public String filterKeyword;
 
     /**
@@ -52,4 +72,124 @@ public final class ConversationExporterConfiguration {
      */
     @Option(names= {reportOpt}, description = "produces an extra object containing user statistics")
     public boolean reportIncluded;
+
+    /**
+     * Limits the Activity member to the users who sent the most messages
+     */
+    @Option(names= {reportTopOpt}, description = "only reports the given number of most active users")
+    public int reportLimit;
+
+    /**
+     * Streams each message straight to the output instead of reading the whole conversation first
+     */
+    @Option(names= {streamOpt}, description = "writes each message as it is read, keeping memory use constant for large logs")
+    public boolean streaming;
+
+    /**
+     * Parses the input on every core, splitting it into newline-aligned byte ranges
+     */
+    @Option(names= {parallelOpt}, description = "parses large input files on all available cores")
+    public boolean parallel;
+
+    /**
+     * Reads the input through a memory-mapped file, decoding only the messages that pass the user filter
+     */
+    @Option(names= {mmapOpt}, description = "reads the input through a memory-mapped file, skipping filtered messages before decoding them")
+    public boolean memoryMapped;
+
+    /**
+     * Holds the conversation in compact columns instead of one object per message
+     */
+    @Option(names= {columnarOpt}, description = "holds the parsed conversation in compact columns, using a fraction of the memory")
+    public boolean columnar;
+
+    /**
+     * Writes the JSON without indentation or line breaks, for machine consumers
+     */
+    @Option(names= {compactOpt}, description = "writes the JSON without indentation, making the output smaller")
+    public boolean compact;
+
+    /**
+     * Exports every chat log in the input directory or glob to the output directory in one run
+     */
+    @Option(names= {batchOpt}, description = "exports every file in the input directory or glob to the output directory")
+    public boolean batch;
+
+    /**
+     * The number of files exported at the same time in batch mode
+     */
+    @Option(names= {threadsOpt}, description = "the number of files exported at the same time in batch or server mode")
+    public int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Runs as a server taking export requests on the given loopback port, instead of exporting a single file
+     */
+    @Option(names= {serveOpt}, description = "listens for export requests on the given port of the loopback address")
+    public int port;
+
+    /**
+     * The number of export requests that can wait for a worker in server mode
+     */
+    @Option(names= {queueOpt}, description = "the number of export requests that can wait in server mode before new ones are turned away")
+    public int queueCapacity = 64;
+
+    /**
+     * The number of clients that can be connected at the same time in server mode
+     */
+    @Option(names= {connectionsOpt}, description = "the number of clients that can be connected at the same time in server mode before new ones are turned away")
+    public int maxConnections = 64;
+
+    /**
+     * Only exports what was appended to the input since the last incremental export to the same output
+     */
+    @Option(names= {incrementalOpt}, description = "only parses the lines appended to the input since the last incremental export, using a checkpoint next to the output")
+    public boolean incremental;
+
+    /**
+     * Only exports the messages sent at or after this unix timestamp
+     */
+    @Option(names= {fromOpt}, description = "only exports messages sent at or after the given unix timestamp")
+    public Long fromTimestamp;
+
+    /**
+     * Only exports the messages sent before this unix timestamp
+     */
+    @Option(names= {toOpt}, description = "only exports messages sent before the given unix timestamp")
+    public Long toTimestamp;
+
+    /**
+     * Builds an inverted index of the input for repeated keyword filters, if it doesn't have one yet
+     */
+    @Option(names= {keywordIndexOpt}, description = "builds a keyword index next to the input if there is none, later keyword filters only read the matching messages")
+    public boolean buildKeywordIndex;
+
+    /**
+     * Prints the time spent in each stage of the export and saves it as JSON next to the output
+     */
+    @Option(names= {statsOpt}, description = "prints the time and message counts of each stage of the export, and saves them to <output>.stats.json")
+    public boolean stats;
+
+    /**
+     * Writes one JSON record per line instead of a single JSON document
+     */
+    @Option(names= {ndjsonOpt}, description = "writes newline-delimited JSON: a header record, one record per message and a trailer record for the report")
+    public boolean ndjson;
+
+    /**
+     * Writes a binary columnar archive instead of JSON
+     */
+    @Option(names= {binaryOpt}, description = "writes a binary columnar archive to a \".chatcol\" file, which can be read back as input")
+    public boolean binary;
+
+    /**
+     * Streams the export through a parser thread, this number of transform workers and a writer thread
+     */
+    @Option(names= {pipelineOpt}, description = "streams the export through a parser thread, the given number of transform workers and a writer thread")
+    public int pipelineWorkers;
+
+    /**
+     * Adds messages per minute and hour, the peak burst and message length percentiles per sender to the output
+     */
+    @Option(names= {analyticsOpt}, description = "adds messages per minute and per hour, the peak burst and the message length percentiles of each sender to the output under \"analytics\"")
+    public boolean analytics;
 }
@@ -0,0 +1,173 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+
+/**
+ * Writes a conversation as JSON one message at a time through a {@link JsonWriter}.
+ * The document has the same shape as the one Gson produces for a whole {@link Conversation},
+ * but no message has to be kept once it has been written and no tree or String of the document is built.
+ */
+public class ConversationJsonWriter implements ConversationWriter {
+    private final JsonWriter writer;
+
+    /**
+     * Initialises a writer that pretty prints the conversation to {@code out}
+     * @param out The writer the JSON is written to
+     */
+    public ConversationJsonWriter(Writer out) {
+        this(out, false);
+    }
+
+    /**
+     * Initialises a writer of the conversation to {@code out}
+     * @param out The writer the JSON is written to
+     * @param compact true to leave out all indentation and line breaks, false to pretty print
+     */
+    public ConversationJsonWriter(Writer out, boolean compact) {
+        writer = new JsonWriter(out);
+        writer.setIndent(compact ? "" : "  ");
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+    }
+
+    /**
+     * Initialises a writer that carries on a conversation whose name and first messages are already in
+     * {@code out}, which must end just after the last message written. The rest of the document comes out
+     * exactly as if the whole conversation had been written by one writer
+     * @param out The writer the rest of the JSON is written to
+     * @param compact true to leave out all indentation and line breaks, false to pretty print
+     * @param name The name of the conversation
+     * @param hasMessages true if messages have already been written
+     * @return the writer, positioned after the last message
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    static ConversationJsonWriter resume(Writer out, boolean compact, String name, boolean hasMessages)
+            throws IOException {
+        // replay the start of the document into nothing, leaving the JsonWriter in the state it had
+        // after the last message, then let the rest of the document through
+        GatedWriter gate = new GatedWriter(out);
+        ConversationJsonWriter w = new ConversationJsonWriter(gate, compact);
+        w.beginConversation(name);
+        if(hasMessages) {
+            w.writeMessage(new Message(Instant.EPOCH, "", ""));
+        }
+        gate.open = true;
+        return w;
+    }
+
+    /**
+     * Opens the conversation object and its messages array
+     * @param name The name of the conversation
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    @Override
+    public void beginConversation(String name) throws IOException {
+        writer.beginObject();
+        writer.name("name").value(name);
+        writer.name("messages").beginArray();
+    }
+
+    /**
+     * Appends a message to the messages array
+     * @param message The message to write
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    @Override
+    public void writeMessage(Message message) throws IOException {
+        writer.beginObject();
+        writer.name("content").value(message.getContent());
+        writer.name("timestamp").value(message.getTimestamp().getEpochSecond());
+        writer.name("senderId").value(message.getSenderId());
+        writer.endObject();
+    }
+
+    /**
+     * Closes the messages array and the conversation object
+     * @param activity The activity report to append, or null if no report was requested
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    @Override
+    public void endConversation(Activity activity) throws IOException {
+        endConversation(activity, null);
+    }
+
+    /**
+     * Closes the messages array and the conversation object, with the analytics under the {@code analytics} property
+     * @param activity The activity report to append, or null if no report was requested
+     * @param analytics The analytics to append, or null if no analytics were requested
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    @Override
+    public void endConversation(Activity activity, Analytics analytics) throws IOException {
+        writer.endArray();
+        if(activity != null) {
+            writer.name(activity.getName()).beginArray();
+            for(Report report: activity.getReports()) {
+                writer.beginObject();
+                writer.name("sender").value(report.getSender());
+                writer.name("count").value(report.getCount());
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+        if(analytics != null) {
+            writer.name("analytics");
+            analytics.write(writer);
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Flushes everything written so far to the underlying writer
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Drops everything written to it until it is opened
+     */
+    private static final class GatedWriter extends Writer {
+        private final Writer out;
+        private boolean open = false;
+
+        GatedWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] buf, int off, int len) throws IOException {
+            if(open) {
+                out.write(buf, off, len);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            if(open) {
+                out.write(str, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
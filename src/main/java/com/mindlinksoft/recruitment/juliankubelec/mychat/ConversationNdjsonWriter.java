@@ -0,0 +1,127 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a conversation as newline-delimited JSON (NDJSON, also known as JSON Lines), one record per line.
+ * The first line is a header record holding the conversation name, each message is a record of its own, and
+ * the activity report and the analytics, when there are any, are trailer records on the last lines:
+ * <pre>
+ * {"type":"conversation","name":"My Conversation"}
+ * {"type":"message","content":"Hello there!","timestamp":1448470901,"senderId":"bob"}
+ * {"type":"activity","activity":[{"sender":"bob","count":1}]}
+ * {"type":"analytics","analytics":{"messages":1,...}}
+ * </pre>
+ * Every line can be parsed on its own, so the output can be split and loaded in parallel.
+ */
+public class ConversationNdjsonWriter implements ConversationWriter {
+    static final String TYPE = "type";
+    static final String CONVERSATION = "conversation";
+    static final String MESSAGE = "message";
+
+    private final Writer out;
+    private final JsonWriter writer;
+
+    /**
+     * Initialises a writer of the conversation to {@code out}
+     * @param out The writer the records are written to
+     */
+    public ConversationNdjsonWriter(Writer out) {
+        this.out = out;
+        // lenient so the writer takes one top-level value after another, each on its own line
+        writer = new JsonWriter(out);
+        writer.setLenient(true);
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+    }
+
+    /**
+     * Writes the header record
+     * @param name The name of the conversation
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    @Override
+    public void beginConversation(String name) throws IOException {
+        writer.beginObject();
+        writer.name(TYPE).value(CONVERSATION);
+        writer.name("name").value(name);
+        endRecord();
+    }
+
+    /**
+     * Writes a message record
+     * @param message The message to write
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    @Override
+    public void writeMessage(Message message) throws IOException {
+        writer.beginObject();
+        writer.name(TYPE).value(MESSAGE);
+        writer.name("content").value(message.getContent());
+        writer.name("timestamp").value(message.getTimestamp().getEpochSecond());
+        writer.name("senderId").value(message.getSenderId());
+        endRecord();
+    }
+
+    /**
+     * Writes the trailer record of the activity report, if there is one
+     * @param activity The activity report to append, or null if no report was requested
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    @Override
+    public void endConversation(Activity activity) throws IOException {
+        endConversation(activity, null);
+    }
+
+    /**
+     * Writes the trailer records of the activity report and of the analytics, for those that were requested
+     * @param activity The activity report to append, or null if no report was requested
+     * @param analytics The analytics to append, or null if no analytics were requested
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    @Override
+    public void endConversation(Activity activity, Analytics analytics) throws IOException {
+        if(activity != null) {
+            writeActivity(activity);
+        }
+        if(analytics != null) {
+            writer.beginObject();
+            writer.name(TYPE).value("analytics");
+            writer.name("analytics");
+            analytics.write(writer);
+            endRecord();
+        }
+    }
+
+    private void writeActivity(Activity activity) throws IOException {
+        writer.beginObject();
+        writer.name(TYPE).value(activity.getName());
+        writer.name(activity.getName()).beginArray();
+        for(Report report: activity.getReports()) {
+            writer.beginObject();
+            writer.name("sender").value(report.getSender());
+            writer.name("count").value(report.getCount());
+            writer.endObject();
+        }
+        writer.endArray();
+        endRecord();
+    }
+
+    private void endRecord() throws IOException {
+        writer.endObject();
+        out.write('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
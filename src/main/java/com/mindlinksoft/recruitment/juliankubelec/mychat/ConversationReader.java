@@ -0,0 +1,66 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.MalformedMessageException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Reads a chat log one line at a time from a {@link BufferedReader},
+ * so the whole conversation never has to be held in memory.
+ */
+public class ConversationReader implements ChatLogReader {
+    private final BufferedReader reader;
+    private final SenderDictionary senders = new SenderDictionary();
+
+    /**
+     * Initialises a reader over the given chat log
+     * @param reader The reader positioned at the start of the chat log
+     */
+    public ConversationReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public String readName() throws IOException {
+        return reader.readLine();
+    }
+
+    @Override
+    public Message readMessage() throws IOException {
+        String line = reader.readLine();
+        if(line == null) {
+            return null;
+        }
+        return parseMessage(line);
+    }
+
+    @Override
+    public SenderDictionary getSenders() {
+        return senders;
+    }
+
+    /**
+     * Parses a single line of the chat log, interning the sender without creating a String
+     * for senders that have been seen before
+     * @param line The line in the form {@code <unix_timestamp> <username> <message>}
+     * @return the message represented by the line
+     * @throws MalformedMessageException Thrown when the line does not have all three fields
+     */
+    private Message parseMessage(String line) throws MalformedMessageException {
+        int senderStart = line.indexOf(' ') + 1;
+        int contentStart = senderStart == 0 ? 0 : line.indexOf(' ', senderStart) + 1;
+        if(contentStart == 0) {
+            throw new MalformedMessageException("Line is not a message: \"" + line + "\"");
+        }
+        int senderKey = senders.intern(line, senderStart, contentStart - 1);
+        return new Message(Instant.ofEpochSecond(ChatLogParser.parseTimestamp(line, 0, senderStart - 1)),
+                senders.getSender(senderKey), line.substring(contentStart), senderKey);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
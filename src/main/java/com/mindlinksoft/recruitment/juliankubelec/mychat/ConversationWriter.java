@@ -0,0 +1,46 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes a conversation one message at a time, so no message has to be kept once it has been written.
+ */
+public interface ConversationWriter extends Closeable {
+    /**
+     * Starts the conversation, before any message is written
+     * @param name The name of the conversation
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    void beginConversation(String name) throws IOException;
+
+    /**
+     * Writes the next message of the conversation
+     * @param message The message to write
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    void writeMessage(Message message) throws IOException;
+
+    /**
+     * Ends the conversation, after every message has been written
+     * @param activity The activity report to append, or null if no report was requested
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    void endConversation(Activity activity) throws IOException;
+
+    /**
+     * Ends the conversation, after every message has been written, appending the analytics after the report.
+     * Formats that can't hold analytics only accept null analytics
+     * @param activity The activity report to append, or null if no report was requested
+     * @param analytics The analytics to append, or null if no analytics were requested
+     * @throws IOException Thrown when the underlying writer is unable to write
+     * @throws IllegalArgumentException Thrown when analytics are given to a format that cannot hold them
+     */
+    void endConversation(Activity activity, Analytics analytics) throws IOException;
+
+    /**
+     * Flushes everything written so far to the underlying writer
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,341 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The options of a single export, such as its filters, output format and read strategy.
+ * Options are immutable, so the same options can be handed to any number of exports running at the same time.
+ * They are built with a {@link Builder}, and {@link #toBuilder()} starts a builder from existing options:
+ * <pre>
+ * ExportOptions options = ExportOptions.builder().setFilterUserId("bob").setIncludeReport(true).build();
+ * </pre>
+ */
+public final class ExportOptions {
+    /**
+     * The options used when none are set, which export every message as a JSON document
+     */
+    public static final ExportOptions DEFAULT = builder().build();
+
+    private final String filterUserId;
+    private final String filterKeyword;
+    private final List<String> blacklist;
+    private final boolean includeReport;
+    private final int reportLimit;
+    private final boolean streaming;
+    private final boolean parallel;
+    private final boolean memoryMapped;
+    private final boolean columnar;
+    private final boolean compact;
+    private final boolean ndjson;
+    private final boolean binary;
+    private final boolean quiet;
+    private final boolean incremental;
+    private final Long fromTimestamp;
+    private final Long toTimestamp;
+    private final boolean buildKeywordIndex;
+    private final boolean collectStats;
+    private final int pipelineWorkers;
+    private final boolean analytics;
+    private final boolean senderStats;
+
+    private ExportOptions(Builder b) {
+        filterUserId = b.filterUserId;
+        filterKeyword = b.filterKeyword;
+        blacklist = b.blacklist == null ? null : Collections.unmodifiableList(new ArrayList<>(b.blacklist));
+        includeReport = b.includeReport;
+        reportLimit = b.reportLimit;
+        streaming = b.streaming;
+        parallel = b.parallel;
+        memoryMapped = b.memoryMapped;
+        columnar = b.columnar;
+        compact = b.compact;
+        ndjson = b.ndjson;
+        binary = b.binary;
+        quiet = b.quiet;
+        incremental = b.incremental;
+        fromTimestamp = b.fromTimestamp;
+        toTimestamp = b.toTimestamp;
+        buildKeywordIndex = b.buildKeywordIndex;
+        collectStats = b.collectStats;
+        pipelineWorkers = b.pipelineWorkers;
+        analytics = b.analytics;
+        senderStats = b.senderStats;
+    }
+
+    /**
+     * @return a builder of options, starting from the defaults
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return a builder starting from these options
+     */
+    public Builder toBuilder() {
+        Builder b = new Builder();
+        b.filterUserId = filterUserId;
+        b.filterKeyword = filterKeyword;
+        b.blacklist = blacklist;
+        b.includeReport = includeReport;
+        b.reportLimit = reportLimit;
+        b.streaming = streaming;
+        b.parallel = parallel;
+        b.memoryMapped = memoryMapped;
+        b.columnar = columnar;
+        b.compact = compact;
+        b.ndjson = ndjson;
+        b.binary = binary;
+        b.quiet = quiet;
+        b.incremental = incremental;
+        b.fromTimestamp = fromTimestamp;
+        b.toTimestamp = toTimestamp;
+        b.buildKeywordIndex = buildKeywordIndex;
+        b.collectStats = collectStats;
+        b.pipelineWorkers = pipelineWorkers;
+        b.analytics = analytics;
+        b.senderStats = senderStats;
+        return b;
+    }
+
+    /**
+     * @return true if only the messages sent in a time range are exported
+     */
+    public boolean hasTimeRange() {
+        return fromTimestamp != null || toTimestamp != null;
+    }
+
+    /**
+     * @return the extension of the files written with these options, without any compression
+     */
+    public String getOutputExtension() {
+        return binary ? ColumnarConversationWriter.EXTENSION : ".json";
+    }
+
+    /**
+     * @return the options that change the output, a checkpoint is only resumed with the same options
+     */
+    String describeOutput() {
+        return "filterByUser=" + filterUserId + ";filterByKeyword=" + filterKeyword + ";blacklist=" + blacklist
+                + ";report=" + includeReport + ";reportTop=" + reportLimit + ";compact=" + compact + ";ndjson=" + ndjson
+                + ";binary=" + binary;
+    }
+
+    public String getFilterUserId() {
+        return filterUserId;
+    }
+    public String getFilterKeyword() {
+        return filterKeyword;
+    }
+    public List<String> getBlacklist() {
+        return blacklist;
+    }
+    public boolean isIncludeReport() {
+        return includeReport;
+    }
+    public int getReportLimit() {
+        return reportLimit;
+    }
+    public boolean isStreaming() {
+        return streaming;
+    }
+    public boolean isParallel() {
+        return parallel;
+    }
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+    public boolean isColumnar() {
+        return columnar;
+    }
+    public boolean isCompact() {
+        return compact;
+    }
+    public boolean isNdjson() {
+        return ndjson;
+    }
+    public boolean isBinary() {
+        return binary;
+    }
+    public boolean isQuiet() {
+        return quiet;
+    }
+    public boolean isIncremental() {
+        return incremental;
+    }
+    public Long getFromTimestamp() {
+        return fromTimestamp;
+    }
+    public Long getToTimestamp() {
+        return toTimestamp;
+    }
+    public boolean isBuildKeywordIndex() {
+        return buildKeywordIndex;
+    }
+    public boolean isCollectStats() {
+        return collectStats;
+    }
+
+    /**
+     * @return the number of transform workers of a pipelined streaming export, or 0 if the export isn't pipelined
+     */
+    public int getPipelineWorkers() {
+        return pipelineWorkers;
+    }
+
+    /**
+     * @return true if time histograms, the peak burst and message length percentiles are added to the output
+     */
+    public boolean isAnalytics() {
+        return analytics;
+    }
+
+    /**
+     * @return true if the stats of each sender are returned alongside the activity report
+     */
+    public boolean isSenderStats() {
+        return senderStats;
+    }
+
+    /**
+     * Collects the options of an export, every option starts unset or false
+     */
+    public static final class Builder {
+        private String filterUserId;
+        private String filterKeyword;
+        private List<String> blacklist;
+        private boolean includeReport = false;
+        private int reportLimit = 0;
+        private boolean streaming = false;
+        private boolean parallel = false;
+        private boolean memoryMapped = false;
+        private boolean columnar = false;
+        private boolean compact = false;
+        private boolean ndjson = false;
+        private boolean binary = false;
+        private boolean quiet = false;
+        private boolean incremental = false;
+        private Long fromTimestamp;
+        private Long toTimestamp;
+        private boolean buildKeywordIndex = false;
+        private boolean collectStats = false;
+        private int pipelineWorkers = 0;
+        private boolean analytics = false;
+        private boolean senderStats = false;
+
+        private Builder() {
+        }
+
+        /**
+         * @return the options collected so far, later changes to this builder don't change them
+         */
+        public ExportOptions build() {
+            return new ExportOptions(this);
+        }
+
+        public Builder setFilterUserId(String filterUserId) {
+            this.filterUserId = filterUserId;
+            return this;
+        }
+        public Builder setFilterKeyword(String filterKeyword) {
+            this.filterKeyword = filterKeyword;
+            return this;
+        }
+        public Builder setBlacklist(List<String> blacklist) {
+            this.blacklist = blacklist;
+            return this;
+        }
+        public Builder setIncludeReport(boolean includeReport) {
+            this.includeReport = includeReport;
+            return this;
+        }
+        public Builder setReportLimit(int reportLimit) {
+            this.reportLimit = reportLimit;
+            return this;
+        }
+        public Builder setStreaming(boolean streaming) {
+            this.streaming = streaming;
+            return this;
+        }
+        public Builder setParallel(boolean parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+        public Builder setMemoryMapped(boolean memoryMapped) {
+            this.memoryMapped = memoryMapped;
+            return this;
+        }
+        public Builder setColumnar(boolean columnar) {
+            this.columnar = columnar;
+            return this;
+        }
+        public Builder setCompact(boolean compact) {
+            this.compact = compact;
+            return this;
+        }
+        public Builder setNdjson(boolean ndjson) {
+            this.ndjson = ndjson;
+            return this;
+        }
+        public Builder setBinary(boolean binary) {
+            this.binary = binary;
+            return this;
+        }
+        public Builder setQuiet(boolean quiet) {
+            this.quiet = quiet;
+            return this;
+        }
+        public Builder setIncremental(boolean incremental) {
+            this.incremental = incremental;
+            return this;
+        }
+        public Builder setFromTimestamp(Long fromTimestamp) {
+            this.fromTimestamp = fromTimestamp;
+            return this;
+        }
+        public Builder setToTimestamp(Long toTimestamp) {
+            this.toTimestamp = toTimestamp;
+            return this;
+        }
+        public Builder setBuildKeywordIndex(boolean buildKeywordIndex) {
+            this.buildKeywordIndex = buildKeywordIndex;
+            return this;
+        }
+        public Builder setCollectStats(boolean collectStats) {
+            this.collectStats = collectStats;
+            return this;
+        }
+
+        /**
+         * Streams the export through a pipeline of a parser, the given number of transform workers and a writer
+         * @param pipelineWorkers The number of transform workers, or 0 to export on a single thread
+         * @return this builder
+         */
+        public Builder setPipelineWorkers(int pipelineWorkers) {
+            if(pipelineWorkers < 0) {
+                throw new IllegalArgumentException("The number of pipeline workers must not be negative, was: "
+                        + pipelineWorkers);
+            }
+            this.pipelineWorkers = pipelineWorkers;
+            return this;
+        }
+        public Builder setAnalytics(boolean analytics) {
+            this.analytics = analytics;
+            return this;
+        }
+
+        /**
+         * Returns the message count, characters and first and last timestamp of each sender in the
+         * {@link ExportResult} of an export with a report. The command line never reads them, so they are
+         * only collected when asked for
+         * @param senderStats Whether the stats of each sender are collected
+         * @return this builder
+         */
+        public Builder setSenderStats(boolean senderStats) {
+            this.senderStats = senderStats;
+            return this;
+        }
+    }
+}
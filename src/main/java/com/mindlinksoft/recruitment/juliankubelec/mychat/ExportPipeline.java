@@ -0,0 +1,266 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams a conversation through three stages running at the same time, so parsing, the CPU-heavy filters and
+ * redaction, and writing the output overlap instead of taking turns on one thread:
+ * <pre>
+ * parser (calling thread) -&gt; N transform workers -&gt; writer
+ * </pre>
+ * The parser cuts the messages into batches and deals them out to the workers in turn, and the writer collects
+ * the batches from the workers in the same turn, so the output keeps the order of the input however fast each
+ * worker is. Every worker has a {@link RingBuffer} from the parser and one to the writer, each with a single
+ * producer and a single consumer, so batches are handed over without locks. The buffers are bounded, so a slow
+ * writer holds the parser back and memory use stays constant.
+ * A failure in any stage stops the others and is thrown by {@link #run}.
+ */
+final class ExportPipeline {
+    static final int BATCH_SIZE = 512;
+    private static final int BATCHES_PER_WORKER = 4;
+    private static final int SPINS = 64;
+    private static final int YIELDS = 64;
+    private static final long PARK_NANOS = 20_000;
+    private static final Batch END = new Batch(0);
+
+    /**
+     * Takes the messages that come out of the pipeline, in order
+     */
+    interface Sink {
+        void write(Message message) throws IOException;
+    }
+
+    private final MessageOperator[] transforms;
+    private final RingBuffer<Batch>[] toWorkers;
+    private final RingBuffer<Batch>[] toWriter;
+    private volatile Throwable failure;
+
+    /**
+     * Initialises a pipeline with one transform worker per operator
+     * @param transforms The operator each worker applies to its messages, returning null for a message to drop.
+     * Each worker is the only thread calling its operator
+     */
+    @SuppressWarnings("unchecked")
+    ExportPipeline(MessageOperator[] transforms) {
+        if(transforms.length < 1) {
+            throw new IllegalArgumentException("A pipeline needs at least one transform worker");
+        }
+        this.transforms = transforms;
+        toWorkers = (RingBuffer<Batch>[]) new RingBuffer<?>[transforms.length];
+        toWriter = (RingBuffer<Batch>[]) new RingBuffer<?>[transforms.length];
+        for(int i = 0; i < transforms.length; i++) {
+            toWorkers[i] = new RingBuffer<>(BATCHES_PER_WORKER);
+            toWriter[i] = new RingBuffer<>(BATCHES_PER_WORKER);
+        }
+    }
+
+    /**
+     * Parses every message of the reader on the calling thread, and returns once the last message is written
+     * @param reader The reader, positioned after the conversation name
+     * @param sink Takes the transformed messages on the writer thread
+     * @throws IOException Thrown when the input cannot be read or the sink cannot write,
+     * or an {@link InterruptedIOException} when the calling thread is interrupted
+     */
+    void run(ChatLogReader reader, Sink sink) throws IOException {
+        Thread[] threads = new Thread[transforms.length + 1];
+        for(int i = 0; i < transforms.length; i++) {
+            int worker = i;
+            threads[i] = start("export-transform-" + i, () -> transform(worker));
+        }
+        threads[transforms.length] = start("export-writer", () -> write(sink));
+        try {
+            parse(reader);
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            joinAll(threads);
+        }
+        rethrowFailure();
+    }
+
+    private void parse(ChatLogReader reader) throws IOException {
+        int worker = 0;
+        Batch batch = new Batch(BATCH_SIZE);
+        Message message;
+        while((message = reader.readMessage()) != null) {
+            if(Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("The export was interrupted");
+            }
+            batch.messages[batch.size++] = message;
+            if(batch.size == BATCH_SIZE) {
+                if(!put(toWorkers[worker], batch)) {
+                    return;
+                }
+                worker = (worker + 1) % toWorkers.length;
+                batch = new Batch(BATCH_SIZE);
+            }
+        }
+        if(batch.size > 0) {
+            if(!put(toWorkers[worker], batch)) {
+                return;
+            }
+        }
+        // the writer stops at the end marker of the worker whose turn comes after the last batch
+        for(RingBuffer<Batch> ring: toWorkers) {
+            if(!put(ring, END)) {
+                return;
+            }
+        }
+    }
+
+    private void transform(int worker) {
+        MessageOperator transform = transforms[worker];
+        Batch batch;
+        while((batch = take(toWorkers[worker])) != null) {
+            if(batch != END) {
+                int kept = 0;
+                for(int i = 0; i < batch.size; i++) {
+                    Message message = transform.apply(batch.messages[i]);
+                    if(message != null) {
+                        batch.messages[kept++] = message;
+                    }
+                }
+                batch.size = kept;
+            }
+            if(!put(toWriter[worker], batch) || batch == END) {
+                return;
+            }
+        }
+    }
+
+    private void write(Sink sink) throws IOException {
+        for(int worker = 0; ; worker = (worker + 1) % toWriter.length) {
+            Batch batch = take(toWriter[worker]);
+            if(batch == null || batch == END) {
+                return;
+            }
+            for(int i = 0; i < batch.size; i++) {
+                sink.write(batch.messages[i]);
+            }
+        }
+    }
+
+    /**
+     * Waits for room in the ring buffer, spinning briefly before backing off
+     * @return false if the pipeline failed while waiting
+     */
+    private boolean put(RingBuffer<Batch> ring, Batch batch) {
+        for(int attempt = 0; !ring.offer(batch); attempt++) {
+            if(!idle(attempt)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits for a batch from the ring buffer, spinning briefly before backing off
+     * @return the batch, or null if the pipeline failed while waiting
+     */
+    private Batch take(RingBuffer<Batch> ring) {
+        Batch batch;
+        for(int attempt = 0; (batch = ring.poll()) == null; attempt++) {
+            if(!idle(attempt)) {
+                return null;
+            }
+        }
+        return batch;
+    }
+
+    private boolean idle(int attempt) {
+        if(failure != null) {
+            return false;
+        }
+        if(Thread.currentThread().isInterrupted()) {
+            fail(new InterruptedIOException("The export was interrupted"));
+            return false;
+        }
+        if(attempt >= SPINS + YIELDS) {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        else if(attempt >= SPINS) {
+            Thread.yield();
+        }
+        return true;
+    }
+
+    private Thread start(String name, Stage stage) {
+        Thread thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void fail(Throwable e) {
+        synchronized (this) {
+            if(failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Waits for every stage to finish, even if the calling thread is interrupted meanwhile,
+     * so no stage is left writing once run() returns
+     */
+    private void joinAll(Thread[] threads) {
+        boolean interrupted = false;
+        for(Thread thread: threads) {
+            while(thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    fail(new InterruptedIOException("The export was interrupted"));
+                }
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        Throwable e = failure;
+        if(e == null) {
+            return;
+        }
+        if(e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if(e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if(e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IOException("The export pipeline failed: " + e.getMessage(), e);
+    }
+
+    /**
+     * The body of a stage thread
+     */
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    /**
+     * Up to BATCH_SIZE messages in input order, filled by the parser, then compacted by a worker as it drops messages
+     */
+    private static final class Batch {
+        private final Message[] messages;
+        private int size;
+
+        Batch(int capacity) {
+            messages = new Message[capacity];
+        }
+    }
+}
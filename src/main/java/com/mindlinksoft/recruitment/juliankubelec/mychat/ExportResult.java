@@ -0,0 +1,111 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The outcome of a single export: the conversation that was written, its activity report and its stats.
+ * A result belongs to the export that returned it, so exports running at the same time never share one.
+ */
+public final class ExportResult {
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Instant.class, new ConversationExporter.InstantSerializer())
+            .create();
+
+    private final Conversation conversation;
+    private final Activity activity;
+    private final ExportStats stats;
+    private final List<SenderStats> senderStats;
+    private final Analytics analytics;
+
+    /**
+     * Initialises the result of an export
+     * @param conversation The conversation that was written, or null if it was streamed
+     * @param activity The activity report that was written, or null if there was none
+     * @param stats The stats of the export, or null if none were collected
+     * @param senderStats The stats of each sender of the messages written, or null if they were not collected
+     * @param analytics The analytics that were written, or null if none were requested
+     */
+    ExportResult(Conversation conversation, Activity activity, ExportStats stats, List<SenderStats> senderStats,
+                 Analytics analytics) {
+        this.conversation = conversation;
+        this.activity = activity;
+        this.stats = stats;
+        this.senderStats = senderStats;
+        this.analytics = analytics;
+    }
+
+    /**
+     * @return the analytics that were written, or null if none were requested
+     */
+    public Analytics getAnalytics() {
+        return analytics;
+    }
+
+    /**
+     * @return the filtered and redacted conversation that was written, or null if the export streamed its messages
+     * or was incremental, as the messages were never held together
+     */
+    public Conversation getConversation() {
+        return conversation;
+    }
+
+    /**
+     * @return the activity report that was written, or null if no report was requested
+     */
+    public Activity getActivity() {
+        return activity;
+    }
+
+    /**
+     * @return the message count, characters and first and last timestamp of each sender of the messages written,
+     * ordered by their first message. Collected alongside the activity report when requested with
+     * {@link ExportOptions.Builder#setSenderStats(boolean)}, so null if they or the report were not requested,
+     * or if the export was incremental, as only the appended messages were read
+     */
+    public List<SenderStats> getSenderStats() {
+        return senderStats;
+    }
+
+    /**
+     * @return the stats of the export, or null if they were not collected
+     */
+    public ExportStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Builds the JSON tree of the conversation that was written.
+     * The export itself never builds a tree, so the tree is only built when it is asked for
+     * @return the exported JSON, or null if the conversation was not held together
+     */
+    public JsonElement getExportedJson() {
+        if(conversation == null) {
+            return null;
+        }
+        JsonElement json = GSON.toJsonTree(conversation);
+        if(activity != null) {
+            json.getAsJsonObject().add(activity.getName(), GSON.toJsonTree(activity.getReports()));
+        }
+        if(analytics != null) {
+            StringWriter out = new StringWriter();
+            try {
+                analytics.write(new JsonWriter(out));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            json.getAsJsonObject().add("analytics", new JsonParser().parse(out.toString()));
+        }
+        return json;
+    }
+}
@@ -0,0 +1,244 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import picocli.CommandLine;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-running export service listening on a loopback socket, so tooling can export conversations
+ * without paying for JVM startup and warmup on every export.
+ * Each request is one line holding the same arguments as the command line, e.g.
+ * {@code -i chat.txt -o chat.json --report}, and is answered with one line:
+ * {@code OK <milliseconds>}, {@code ERROR <message>}, or {@code BUSY} when the job queue is full and the
+ * client should retry later. Jobs run on a fixed pool of warm worker threads with a bounded queue,
+ * all sharing one exporter, with the options of each request passed to it.
+ * Each connection is served by a thread of its own, waiting for the exports it requested, so the number of
+ * connections is capped too: a client connecting once every connection thread is taken is answered with
+ * {@code BUSY} and disconnected.
+ * <p>
+ * The server trusts its clients as much as the user running it. Any local user able to connect can have it
+ * read and write any file that user can, and relative paths in a request are resolved against the working
+ * directory of the server, not of the client, so clients should send absolute paths.
+ */
+public class ExportServer implements Closeable {
+    private final ServerSocket serverSocket;
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor connections;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final ConversationExporter exporter = new ConversationExporter();
+
+    /**
+     * Opens the server socket on the loopback address, taking as many connections as there can be
+     * exports running or waiting
+     * @param port The port to listen on, or 0 to pick a free port
+     * @param threads The number of exports run at the same time
+     * @param queueCapacity The number of exports that can wait for a worker before requests are turned away
+     * @throws IOException Thrown when the socket cannot be opened
+     */
+    public ExportServer(int port, int threads, int queueCapacity) throws IOException {
+        this(port, threads, queueCapacity, threads + queueCapacity);
+    }
+
+    /**
+     * Opens the server socket on the loopback address
+     * @param port The port to listen on, or 0 to pick a free port
+     * @param threads The number of exports run at the same time
+     * @param queueCapacity The number of exports that can wait for a worker before requests are turned away
+     * @param maxConnections The number of clients connected at the same time before connections are turned away
+     * @throws IOException Thrown when the socket cannot be opened
+     */
+    public ExportServer(int port, int threads, int queueCapacity, int maxConnections) throws IOException {
+        if(threads < 1 || queueCapacity < 1 || maxConnections < 1) {
+            throw new IllegalArgumentException("The server needs at least one thread, one queue slot and one connection, was: "
+                    + threads + " threads, " + queueCapacity + " slots and " + maxConnections + " connections");
+        }
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("export-worker"),
+                new ThreadPoolExecutor.AbortPolicy());
+        workers.prestartAllCoreThreads();
+        // no queue, a connection either gets a thread straight away or is turned away
+        connections = new ThreadPoolExecutor(maxConnections, maxConnections, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), daemonThreads("export-connection"), new ThreadPoolExecutor.AbortPolicy());
+        connections.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is closed, serving each connection on a thread of its own,
+     * or answering {@code BUSY} and disconnecting when every connection thread is taken
+     * @throws IOException Thrown when the server socket fails while it is still open
+     */
+    public void serve() throws IOException {
+        while(!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if(serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            clients.add(socket);
+            try {
+                connections.execute(() -> handle(socket));
+            } catch (RejectedExecutionException e) {
+                clients.remove(socket);
+                refuse(socket);
+            }
+        }
+    }
+
+    /**
+     * Answers a connection that can't be served with {@code BUSY} and closes it
+     */
+    private static void refuse(Socket socket) {
+        try (Socket s = socket;
+             Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("BUSY\n");
+        } catch (IOException e) {
+            // the client went away, there is nobody left to answer
+        }
+    }
+
+    /**
+     * Answers the requests of one connection in order until the client disconnects
+     */
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = in.readLine()) != null) {
+                if(line.trim().isEmpty()) {
+                    continue;
+                }
+                out.write(respond(line));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client went away, there is nobody left to answer
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    /**
+     * Runs a single export request on the worker pool
+     * @param request The command-line arguments of the export
+     * @return the response line
+     */
+    String respond(String request) {
+        long start = System.nanoTime();
+        Future<?> job;
+        try {
+            ConversationExporterConfiguration configuration = new ConversationExporterConfiguration();
+            CommandLine cmd = new CommandLine(configuration);
+            CommandLine.ParseResult parseResult = cmd.parseArgs(splitArguments(request));
+            if(configuration.batch || parseResult.hasMatchedOption(configuration.serveOpt)) {
+                throw new CommandLine.ParameterException(cmd, "Only single exports can be requested from the server");
+            }
+            ConversationExporterApp.checkFilePaths(cmd, configuration);
+            ExportOptions options = ConversationExporterApp.configure(
+                    ExportOptions.builder(), parseResult, configuration).setQuiet(true).build();
+            job = workers.submit(() ->
+                    exporter.export(configuration.inputFilePath, configuration.outputFilePath, options));
+        } catch (RejectedExecutionException e) {
+            return "BUSY";
+        } catch (RuntimeException e) {
+            // invalid arguments, or options the builder turns down, such as a negative number of pipeline workers
+            return error(e);
+        }
+
+        try {
+            job.get();
+        } catch (ExecutionException e) {
+            return error(e.getCause());
+        } catch (InterruptedException e) {
+            job.cancel(true);
+            Thread.currentThread().interrupt();
+            return error(e);
+        }
+        return "OK " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static String error(Throwable e) {
+        String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        return "ERROR " + message.replaceAll("\\s+", " ").trim();
+    }
+
+    /**
+     * Splits a request into arguments at whitespace, keeping whitespace inside double quotes
+     * @param request The request line
+     * @return the arguments
+     */
+    static String[] splitArguments(String request) {
+        List<String> args = new ArrayList<>();
+        StringBuilder arg = new StringBuilder();
+        boolean quoted = false;
+        boolean inArg = false;
+        for(int i = 0; i < request.length(); i++) {
+            char c = request.charAt(i);
+            if(c == '"') {
+                quoted = !quoted;
+                inArg = true;
+            }
+            else if(Character.isWhitespace(c) && !quoted) {
+                if(inArg) {
+                    args.add(arg.toString());
+                    arg.setLength(0);
+                    inArg = false;
+                }
+            }
+            else {
+                arg.append(c);
+                inArg = true;
+            }
+        }
+        if(inArg) {
+            args.add(arg.toString());
+        }
+        return args.toArray(new String[0]);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Stops accepting connections, lets the queued exports finish and drops the open connections
+     * @throws IOException Thrown when the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        workers.shutdown();
+        for(Socket client: clients) {
+            client.close();
+        }
+        connections.shutdown();
+    }
+}
@@ -0,0 +1,357 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timings and counters of a single export, collected when the export is run with {@code --stats}.
+ * The time of each stage (reading, each kind of filter, redaction, the activity report and writing)
+ * is kept along with the messages that went in and out of it, so the stage that makes an export slow can be found.
+ * An exporter without stats never creates one, so exports that don't ask for stats don't pay for them.
+ * Stats are not thread-safe, each export collects its own.
+ */
+public final class ExportStats {
+    static final String EXTENSION = ".stats.json";
+    static final String READ = "read";
+    static final String FILTER_BY_USER = "filterByUser";
+    static final String FILTER_BY_KEYWORD = "filterByKeyword";
+    static final String REDACT = "redact";
+    static final String REPORT = "report";
+    static final String ANALYTICS = "analytics";
+    static final String WRITE = "write";
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final long startNanos;
+    private final long startAllocated;
+    private long totalNanos;
+    private long allocatedBytes = -1;
+    private long linesRead;
+    private long bytesRead;
+    private long bytesWritten;
+
+    /**
+     * Starts collecting, the clock and allocation counter start now
+     */
+    public ExportStats() {
+        startNanos = System.nanoTime();
+        startAllocated = allocatedByThisThread();
+    }
+
+    /**
+     * The time spent in one stage of the export and the messages that went through it
+     */
+    public static final class Stage {
+        private final String name;
+        long nanos;
+        long in;
+        long out;
+        long hits;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the number of messages the stage was given
+         */
+        public long getIn() {
+            return in;
+        }
+
+        /**
+         * @return the number of messages the stage passed on, messages it was given but didn't pass on were dropped
+         */
+        public long getOut() {
+            return out;
+        }
+
+        /**
+         * @return the number of words redacted, only counted by the redaction stage
+         */
+        public long getHits() {
+            return hits;
+        }
+    }
+
+    /**
+     * @param name The name of the stage
+     * @return the stage with the given name, created the first time it is asked for
+     */
+    Stage stage(String name) {
+        return stages.computeIfAbsent(name, Stage::new);
+    }
+
+    /**
+     * Wraps an operator so the time spent in it and the messages it drops are counted
+     * @param name The name of the stage the operator belongs to
+     * @param operator The operator to time
+     * @return the timed operator
+     */
+    MessageOperator time(String name, MessageOperator operator) {
+        Stage stage = stage(name);
+        return msg -> {
+            long start = System.nanoTime();
+            Message result = operator.apply(msg);
+            stage.nanos += System.nanoTime() - start;
+            stage.in++;
+            if(result != null) {
+                stage.out++;
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Counts a message that went through a stage that isn't an operator, such as writing the output
+     * @param name The name of the stage
+     * @param startNanos The {@link System#nanoTime()} the stage started on the message
+     */
+    void record(String name, long startNanos) {
+        Stage stage = stage(name);
+        stage.nanos += System.nanoTime() - startNanos;
+        stage.in++;
+        stage.out++;
+    }
+
+    /**
+     * Wraps a reader so the time spent reading and the lines read are counted
+     * @param reader The reader to time
+     * @return the timed reader
+     */
+    ChatLogReader time(ChatLogReader reader) {
+        Stage stage = stage(READ);
+        return new ChatLogReader() {
+            @Override
+            public String readName() throws IOException {
+                long start = System.nanoTime();
+                String name = reader.readName();
+                stage.nanos += System.nanoTime() - start;
+                if(name != null) {
+                    linesRead++;
+                }
+                return name;
+            }
+
+            @Override
+            public Message readMessage() throws IOException {
+                long start = System.nanoTime();
+                Message message = reader.readMessage();
+                stage.nanos += System.nanoTime() - start;
+                if(message != null) {
+                    linesRead++;
+                    stage.in++;
+                    stage.out++;
+                }
+                return message;
+            }
+
+            @Override
+            public SenderDictionary getSenders() {
+                return reader.getSenders();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    /**
+     * Counts a whole read that wasn't done through a timed reader
+     * @param nanos The time spent reading
+     * @param messages The number of messages read
+     * @param bytes The number of bytes read
+     */
+    void addRead(long nanos, long messages, long bytes) {
+        Stage stage = stage(READ);
+        stage.nanos += nanos;
+        stage.in += messages;
+        stage.out += messages;
+        linesRead += messages + 1;
+        bytesRead += bytes;
+    }
+
+    /**
+     * Adds the stages of stats collected on another thread, such as a worker of an {@link ExportPipeline}.
+     * The time of a stage run on several threads is the sum of the time each thread spent in it
+     * @param other The stats to add, no longer updated by their thread
+     */
+    void merge(ExportStats other) {
+        for(Stage from: other.stages.values()) {
+            Stage to = stage(from.name);
+            to.nanos += from.nanos;
+            to.in += from.in;
+            to.out += from.out;
+            to.hits += from.hits;
+        }
+    }
+
+    void addLinesRead(long lines) {
+        linesRead += lines;
+    }
+
+    void addBytesRead(long bytes) {
+        bytesRead += bytes;
+    }
+
+    /**
+     * Stops the clock and allocation counter once the export has finished
+     * @param output The file the export was written to
+     * @throws IOException Thrown when the size of the output cannot be read
+     */
+    void finish(Path output) throws IOException {
+        totalNanos = System.nanoTime() - startNanos;
+        long allocated = allocatedByThisThread();
+        allocatedBytes = startAllocated < 0 || allocated < 0 ? -1 : allocated - startAllocated;
+        bytesWritten = Files.exists(output) ? Files.size(output) : 0;
+    }
+
+    public List<Stage> getStages() {
+        return new ArrayList<>(stages.values());
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getMessagesWritten() {
+        Stage write = stages.get(WRITE);
+        return write == null ? 0 : write.out;
+    }
+
+    /**
+     * @return the bytes allocated by the exporting thread during the export, or -1 if the JVM can't tell.
+     * Threads of a parallel read are not included
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the lines read per second of the whole export
+     */
+    public double getLinesPerSecond() {
+        return totalNanos == 0 ? 0 : linesRead * 1e9 / totalNanos;
+    }
+
+    /**
+     * @param output The output of the export
+     * @return the path of the stats written next to the output
+     */
+    static Path pathFor(Path output) {
+        return Paths.get(output.toString() + EXTENSION);
+    }
+
+    /**
+     * Writes the stats as JSON
+     * @param path The file to write to
+     * @throws IOException Thrown when the file cannot be written
+     */
+    void save(Path path) throws IOException {
+        try(Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(toJson(), w);
+        }
+    }
+
+    /**
+     * @return the stats as a JSON object, times are in milliseconds
+     */
+    JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("totalMillis", totalNanos / 1e6);
+        json.addProperty("linesRead", linesRead);
+        json.addProperty("linesPerSecond", Math.round(getLinesPerSecond()));
+        json.addProperty("bytesRead", bytesRead);
+        json.addProperty("bytesWritten", bytesWritten);
+        json.addProperty("messagesWritten", getMessagesWritten());
+        json.addProperty("allocatedBytes", allocatedBytes);
+        JsonArray array = new JsonArray();
+        for(Stage stage: stages.values()) {
+            JsonObject s = new JsonObject();
+            s.addProperty("name", stage.name);
+            s.addProperty("millis", stage.nanos / 1e6);
+            s.addProperty("messages", stage.out);
+            if(stage.in > stage.out) {
+                s.addProperty("dropped", stage.in - stage.out);
+            }
+            if(stage.name.equals(REDACT)) {
+                s.addProperty("hits", stage.hits);
+            }
+            array.add(s);
+        }
+        json.add("stages", array);
+        return json;
+    }
+
+    /**
+     * @return the stats as a table for the console
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Export stats:");
+        for(Stage stage: stages.values()) {
+            sb.append(String.format(Locale.ROOT, "%n  %-16s %10.3f ms", stage.name, stage.nanos / 1e6));
+            sb.append(String.format(Locale.ROOT, "  %d messages", stage.out));
+            if(stage.in > stage.out) {
+                sb.append(String.format(Locale.ROOT, ", %d dropped", stage.in - stage.out));
+            }
+            if(stage.name.equals(REDACT)) {
+                sb.append(String.format(Locale.ROOT, ", %d words redacted", stage.hits));
+            }
+        }
+        sb.append(String.format(Locale.ROOT, "%n  %-16s %10.3f ms", "total", totalNanos / 1e6));
+        sb.append(String.format(Locale.ROOT, "%n  %d lines read (%d lines/s), %d bytes read, %d bytes written, %d messages written",
+                linesRead, Math.round(getLinesPerSecond()), bytesRead, bytesWritten, getMessagesWritten()));
+        if(allocatedBytes >= 0) {
+            sb.append(String.format(Locale.ROOT, "%n  about %d bytes allocated by the exporting thread", allocatedBytes));
+        }
+        return sb.toString();
+    }
+
+    private static long allocatedByThisThread() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
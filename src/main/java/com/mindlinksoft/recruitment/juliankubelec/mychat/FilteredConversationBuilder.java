@@ -1,8 +1,5 @@
 package com.mindlinksoft.recruitment.juliankubelec.mychat;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Sub-class of ConversationBuilder for filtering a provided conversation
  */
@@ -11,37 +8,47 @@ public class FilteredConversationBuilder extends ConversationBuilder{
     public FilteredConversationBuilder(Conversation conversation){
         super(conversation);
     }
+
+    FilteredConversationBuilder(Conversation conversation, QueryPlan plan){
+        super(conversation, plan);
+    }
+
     /**
-     * This function replaces the current conversation with a filtered conversation
-     * that only contains messages from senderId = userId
+     * Adds a filter so the conversation only contains messages from senderId = userId
      * @param userId used as a filter
      */
     public FilteredConversationBuilder byUser(String userId) {
-        List<Message> newMessages = new ArrayList<>();
-        Conversation newConversation;
-        for(Message msg: conversation.getMessages()) {
-            if(msg.getSenderId().equals(userId)) {
-                newMessages.add(msg);
-            }
-        }
-        newConversation = new Conversation(conversation.getName(), newMessages);
-        conversation = newConversation;
+        plan.filterByUser(userId);
         return this;
     }
 
     /**
-     * This function removes messages that don't contain keyword
+     * Adds a filter that removes messages that don't contain keyword
      * @param keyword used as a filter
      */
-    public ConversationBuilder byKeyword(String keyword) {
-        List<Message> newMessages = new ArrayList<>();
-        for(Message msg: conversation.getMessages()) {
-            if(msg.getContent().contains(keyword)) {
-                newMessages.add(msg);
-            }
-        }
-        conversation = new Conversation(conversation.getName(), newMessages);
+    public FilteredConversationBuilder byKeyword(String keyword) {
+        plan.filterByKeyword(keyword);
         return this;
     }
 
+    /**
+     * Checks a single message against the user filter
+     * @param msg The message to check
+     * @param userId used as a filter
+     * @return true if the message was sent by userId
+     */
+    static boolean isFromUser(Message msg, String userId) {
+        return msg.getSenderId().equals(userId);
+    }
+
+    /**
+     * Checks a single message against the keyword filter
+     * @param msg The message to check
+     * @param keyword used as a filter
+     * @return true if the message content contains keyword
+     */
+    static boolean containsKeyword(Message msg, String keyword) {
+        return msg.getContent().contains(keyword);
+    }
+
 }
@@ -0,0 +1,337 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent inverted index from the trigrams of message contents to the messages containing them,
+ * saved next to a chat log so repeated keyword queries don't have to scan every message.
+ * Keyword filters match any substring, so the index is built over every three characters of each
+ * message rather than over words. Any message containing a keyword contains all of the keyword's
+ * trigrams, so intersecting their posting lists gives every match, plus the odd false positive that the
+ * exact keyword filter then drops.
+ * Posting lists are delta and varint encoded, as are the byte offsets of the messages, which let a query
+ * read only the candidate messages from the log.
+ */
+final class KeywordIndex {
+    static final int GRAM = 3;
+    static final String EXTENSION = ".keywordindex";
+    private static final int MAGIC = 0x4d434b49;
+    private static final int VERSION = 1;
+
+    private final long inputSize;
+    private final long lastModified;
+    private final long bodyStart;
+    private final long[] offsets;
+    private final long[] terms;
+    private final int[] postingStarts;
+    private final byte[] postings;
+
+    private KeywordIndex(long inputSize, long lastModified, long bodyStart, long[] offsets,
+                         long[] terms, int[] postingStarts, byte[] postings) {
+        this.inputSize = inputSize;
+        this.lastModified = lastModified;
+        this.bodyStart = bodyStart;
+        this.offsets = offsets;
+        this.terms = terms;
+        this.postingStarts = postingStarts;
+        this.postings = postings;
+    }
+
+    /**
+     * @param input The chat log
+     * @return the path of the keyword index of the chat log
+     */
+    static Path pathFor(Path input) {
+        return input.resolveSibling(input.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Loads a saved index
+     * @param path The index file
+     * @param input The chat log the index was built from
+     * @return the index, or null if there is none or the chat log has changed since it was built
+     * @throws IOException Thrown when the index or the chat log's attributes cannot be read
+     */
+    static KeywordIndex load(Path path, Path input) throws IOException {
+        if(!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long inputSize = in.readLong();
+            long lastModified = in.readLong();
+            if(inputSize != Files.size(input) || lastModified != Files.getLastModifiedTime(input).toMillis()) {
+                return null;
+            }
+            long bodyStart = in.readLong();
+            long[] offsets = new long[in.readInt()];
+            long offset = bodyStart;
+            for(int i = 0; i < offsets.length; i++) {
+                offset += readVarLong(in);
+                offsets[i] = offset;
+            }
+            long[] terms = new long[in.readInt()];
+            int[] postingStarts = new int[terms.length + 1];
+            for(int i = 0; i < terms.length; i++) {
+                terms[i] = in.readLong();
+                postingStarts[i + 1] = in.readInt();
+            }
+            byte[] postings = new byte[postingStarts[terms.length]];
+            in.readFully(postings);
+            return new KeywordIndex(inputSize, lastModified, bodyStart, offsets, terms, postingStarts, postings);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Builds the index of a chat log in one pass over its messages
+     * @param input The chat log
+     * @return the index
+     * @throws IOException Thrown when the chat log cannot be read
+     */
+    static KeywordIndex build(Path input) throws IOException {
+        long inputSize = Files.size(input);
+        long lastModified = Files.getLastModifiedTime(input).toMillis();
+        Map<Long, Postings> index = new HashMap<>();
+        long[] offsets = new long[1024];
+        int count = 0;
+        long bodyStart;
+        try (ChatLogTail tail = new ChatLogTail(input, 0)) {
+            tail.nextLine();
+            bodyStart = tail.getOffset();
+            long lineStart = bodyStart;
+            while(tail.nextLine()) {
+                if(count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count] = lineStart;
+                String content = tail.readMessage().getContent();
+                for(int i = 0; i + GRAM <= content.length(); i++) {
+                    index.computeIfAbsent(term(content, i), t -> new Postings()).add(count);
+                }
+                count++;
+                lineStart = tail.getOffset();
+            }
+        }
+
+        long[] terms = new long[index.size()];
+        int t = 0;
+        for(long term: index.keySet()) {
+            terms[t++] = term;
+        }
+        Arrays.sort(terms);
+        int[] postingStarts = new int[terms.length + 1];
+        ByteArrayOutputStream postings = new ByteArrayOutputStream();
+        for(int i = 0; i < terms.length; i++) {
+            index.get(terms[i]).encode(postings);
+            postingStarts[i + 1] = postings.size();
+        }
+        return new KeywordIndex(inputSize, lastModified, bodyStart, Arrays.copyOf(offsets, count),
+                terms, postingStarts, postings.toByteArray());
+    }
+
+    /**
+     * Saves the index, replacing the previous one in a single move
+     * @param path The index file
+     * @throws IOException Thrown when the index cannot be written
+     */
+    void save(Path path) throws IOException {
+        AtomicFiles.write(path, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(inputSize);
+            out.writeLong(lastModified);
+            out.writeLong(bodyStart);
+            out.writeInt(offsets.length);
+            long previous = bodyStart;
+            for(long offset: offsets) {
+                writeVarLong(out, offset - previous);
+                previous = offset;
+            }
+            out.writeInt(terms.length);
+            for(int i = 0; i < terms.length; i++) {
+                out.writeLong(terms[i]);
+                out.writeInt(postingStarts[i + 1]);
+            }
+            out.write(postings);
+            out.flush();
+        });
+    }
+
+    /**
+     * Finds the messages that may contain a keyword
+     * @param keyword The keyword
+     * @return the ordinals of the candidate messages in ascending order, or null if the keyword is too short
+     * to be looked up and every message is a candidate
+     */
+    int[] candidates(String keyword) {
+        if(keyword.length() < GRAM) {
+            return null;
+        }
+        int[] result = null;
+        for(int i = 0; i + GRAM <= keyword.length(); i++) {
+            int slot = Arrays.binarySearch(terms, term(keyword, i));
+            if(slot < 0) {
+                return new int[0];
+            }
+            int[] list = decode(slot);
+            result = result == null ? list : intersect(result, list);
+            if(result.length == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param ordinal The index of a message in the conversation
+     * @return the byte offset of the message's line in the chat log
+     */
+    long getOffset(int ordinal) {
+        return offsets[ordinal];
+    }
+
+    /**
+     * @return the offset of the first message, just after the conversation name
+     */
+    long getBodyStart() {
+        return bodyStart;
+    }
+
+    private int[] decode(int slot) {
+        int[] list = new int[16];
+        int size = 0;
+        int ordinal = -1;
+        for(int i = postingStarts[slot]; i < postingStarts[slot + 1]; ) {
+            int delta = 0;
+            for(int shift = 0; ; shift += 7) {
+                byte b = postings[i++];
+                delta |= (b & 0x7F) << shift;
+                if(b >= 0) {
+                    break;
+                }
+            }
+            ordinal += delta + 1;
+            if(size == list.length) {
+                list = Arrays.copyOf(list, size * 2);
+            }
+            list[size++] = ordinal;
+        }
+        return Arrays.copyOf(list, size);
+    }
+
+    /**
+     * @return the ordinals in both ascending lists
+     */
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        for(int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if(a[i] < b[j]) {
+                i++;
+            }
+            else if(a[i] > b[j]) {
+                j++;
+            }
+            else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * @return the ordinals in either ascending list, in ascending order
+     */
+    static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while(i < a.length && j < b.length) {
+            if(a[i] < b[j]) {
+                result[size++] = a[i++];
+            }
+            else if(a[i] > b[j]) {
+                result[size++] = b[j++];
+            }
+            else {
+                result[size++] = a[i++];
+                j++;
+            }
+        }
+        while(i < a.length) {
+            result[size++] = a[i++];
+        }
+        while(j < b.length) {
+            result[size++] = b[j++];
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * @return the three characters starting at {@code from} packed into one long
+     */
+    private static long term(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for(int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if(b < 0) {
+                throw new EOFException("Truncated keyword index");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * The growing posting list of one trigram, each message is added once however often the trigram occurs
+     */
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private int size = 0;
+
+        void add(int ordinal) {
+            if(size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if(size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        void encode(OutputStream out) throws IOException {
+            int previous = -1;
+            for(int i = 0; i < size; i++) {
+                writeVarLong(out, ordinals[i] - previous - 1);
+                previous = ordinals[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A boolean query over the keywords of a message, such as {@code pie AND (buying OR eater) AND NOT cake}.
+ * {@code NOT} binds tighter than {@code AND}, which binds tighter than {@code OR}, and parentheses group.
+ * Words written next to each other without an operator form one phrase, and double quotes keep a phrase
+ * exactly as written, including operator words, e.g. {@code "pie society" OR "AND"}.
+ * Text without any operator is a single literal keyword matched with {@link String#contains}, exactly as before.
+ * Every distinct term of a query is compiled into one {@link AhoCorasick} automaton, so a message is scanned
+ * once however many keywords the query has, and the expression is then evaluated on the terms that were found.
+ */
+public final class KeywordQuery {
+    private static final String AND = "AND";
+    private static final String OR = "OR";
+    private static final String NOT = "NOT";
+
+    private final String literal;
+    private final Node root;
+    private final List<String> terms;
+    private final AhoCorasick automaton;
+
+    private KeywordQuery(String literal, Node root, List<String> terms) {
+        this.literal = literal;
+        this.root = root;
+        this.terms = terms;
+        this.automaton = root == null ? null : new AhoCorasick(terms);
+    }
+
+    /**
+     * Parses a keyword filter
+     * @param text The keyword, or a boolean query of keywords
+     * @return the compiled query
+     * @throws IllegalArgumentException Thrown when the text uses operators but is not a valid query
+     */
+    public static KeywordQuery parse(String text) {
+        List<String> tokens = tokenize(text);
+        if(!tokens.contains(AND) && !tokens.contains(OR) && !tokens.contains(NOT)) {
+            return new KeywordQuery(text, null, null);
+        }
+        Parser parser = new Parser(text, tokens);
+        Node root = parser.parseOr();
+        if(parser.position != tokens.size()) {
+            throw parser.error();
+        }
+        return new KeywordQuery(null, root, new ArrayList<>(parser.terms.keySet()));
+    }
+
+    /**
+     * @return true if the query is a single keyword without any operator
+     */
+    public boolean isLiteral() {
+        return literal != null;
+    }
+
+    /**
+     * @param content The content of a message
+     * @return true if the content satisfies the query
+     */
+    public boolean matches(String content) {
+        if(literal != null) {
+            return content.contains(literal);
+        }
+        boolean[] found = new boolean[terms.size()];
+        int[] remaining = {terms.size()};
+        automaton.search(content, (pattern, end) -> {
+            if(!found[pattern]) {
+                found[pattern] = true;
+                remaining[0]--;
+            }
+            return remaining[0] > 0;
+        });
+        return root.evaluate(found);
+    }
+
+    /**
+     * Combines the candidates of each term the way the query combines the terms.
+     * AND intersects the candidates and OR unites them, while NOT can't rule a message out,
+     * so everything under a NOT counts as every message
+     * @param lookup Gives the candidates of a single keyword in ascending order, or null for every message
+     * @return the candidates of the query in ascending order, or null if every message is a candidate
+     */
+    int[] candidates(Function<String, int[]> lookup) {
+        return literal != null ? lookup.apply(literal) : root.candidates(terms, lookup);
+    }
+
+    /**
+     * Splits the text on whitespace, with parentheses as tokens of their own.
+     * A quoted phrase is a single token that keeps its quotes, so it is never mistaken for an operator
+     */
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while(i < text.length()) {
+            char c = text.charAt(i);
+            if(Character.isWhitespace(c)) {
+                i++;
+            }
+            else if(c == '(' || c == ')') {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+            else if(c == '"') {
+                int close = text.indexOf('"', i + 1);
+                int end = close < 0 ? text.length() : close + 1;
+                tokens.add(text.substring(i, end));
+                i = end;
+            }
+            else {
+                int start = i;
+                while(i < text.length() && !Character.isWhitespace(text.charAt(i))
+                        && "()\"".indexOf(text.charAt(i)) < 0) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private interface Node {
+        boolean evaluate(boolean[] found);
+
+        int[] candidates(List<String> terms, Function<String, int[]> lookup);
+    }
+
+    /**
+     * Recursive descent parser of the token list, collecting each distinct term once
+     */
+    private static final class Parser {
+        private final String text;
+        private final List<String> tokens;
+        private final Map<String, Integer> terms = new LinkedHashMap<>();
+        private int position = 0;
+
+        Parser(String text, List<String> tokens) {
+            this.text = text;
+            this.tokens = tokens;
+        }
+
+        Node parseOr() {
+            Node left = parseAnd();
+            while(accept(OR)) {
+                Node l = left;
+                Node r = parseAnd();
+                left = new Node() {
+                    @Override
+                    public boolean evaluate(boolean[] found) {
+                        return l.evaluate(found) || r.evaluate(found);
+                    }
+
+                    @Override
+                    public int[] candidates(List<String> terms, Function<String, int[]> lookup) {
+                        int[] a = l.candidates(terms, lookup);
+                        int[] b = a == null ? null : r.candidates(terms, lookup);
+                        return b == null ? null : KeywordIndex.union(a, b);
+                    }
+                };
+            }
+            return left;
+        }
+
+        Node parseAnd() {
+            Node left = parseNot();
+            while(accept(AND)) {
+                Node l = left;
+                Node r = parseNot();
+                left = new Node() {
+                    @Override
+                    public boolean evaluate(boolean[] found) {
+                        return l.evaluate(found) && r.evaluate(found);
+                    }
+
+                    @Override
+                    public int[] candidates(List<String> terms, Function<String, int[]> lookup) {
+                        int[] a = l.candidates(terms, lookup);
+                        int[] b = r.candidates(terms, lookup);
+                        return a == null ? b : (b == null ? a : KeywordIndex.intersect(a, b));
+                    }
+                };
+            }
+            return left;
+        }
+
+        Node parseNot() {
+            if(accept(NOT)) {
+                Node operand = parseNot();
+                return new Node() {
+                    @Override
+                    public boolean evaluate(boolean[] found) {
+                        return !operand.evaluate(found);
+                    }
+
+                    @Override
+                    public int[] candidates(List<String> terms, Function<String, int[]> lookup) {
+                        return null;
+                    }
+                };
+            }
+            return parsePrimary();
+        }
+
+        Node parsePrimary() {
+            if(accept("(")) {
+                Node inner = parseOr();
+                if(!accept(")")) {
+                    throw error();
+                }
+                return inner;
+            }
+            StringBuilder phrase = new StringBuilder();
+            while(position < tokens.size() && isWord(tokens.get(position))) {
+                String token = tokens.get(position++);
+                if(phrase.length() > 0) {
+                    phrase.append(' ');
+                }
+                phrase.append(token.startsWith("\"") ? unquote(token) : token);
+            }
+            if(phrase.length() == 0) {
+                throw error();
+            }
+            String term = phrase.toString();
+            Integer existing = terms.get(term);
+            int index = existing != null ? existing : terms.size();
+            terms.put(term, index);
+            return new Node() {
+                @Override
+                public boolean evaluate(boolean[] found) {
+                    return found[index];
+                }
+
+                @Override
+                public int[] candidates(List<String> terms, Function<String, int[]> lookup) {
+                    return lookup.apply(terms.get(index));
+                }
+            };
+        }
+
+        private boolean isWord(String token) {
+            return !token.equals(AND) && !token.equals(OR) && !token.equals(NOT)
+                    && !token.equals("(") && !token.equals(")");
+        }
+
+        private String unquote(String token) {
+            if(token.length() < 2 || !token.endsWith("\"")) {
+                throw new IllegalArgumentException("Unterminated quote in keyword query: \"" + text + "\"");
+            }
+            return token.substring(1, token.length() - 1);
+        }
+
+        private boolean accept(String token) {
+            if(position < tokens.size() && tokens.get(position).equals(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        IllegalArgumentException error() {
+            String near = position < tokens.size() ? "\"" + tokens.get(position) + "\"" : "the end";
+            return new IllegalArgumentException("Invalid keyword query: \"" + text + "\" near " + near);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.util.Arrays;
+
+/**
+ * Counts message lengths in log-linear buckets, in the style of an HDR histogram, so percentiles of any
+ * number of messages can be read in a small, bounded amount of memory.
+ * Lengths below 64 are counted exactly. Every power of two above that is split into 32 buckets,
+ * so a percentile is never more than about 3% above the exact length, and all lengths up to
+ * {@link Integer#MAX_VALUE} fit in under a thousand buckets.
+ * A histogram is not thread-safe.
+ */
+public final class LengthHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT = SUB_BUCKETS * 2;
+    private static final int EXACT_BITS = SUB_BUCKET_BITS + 1;
+
+    private long[] counts = new long[0];
+    private long count;
+    private long sum;
+    private int max;
+
+    /**
+     * Counts the length of a message
+     * @param length The number of characters in the message
+     */
+    void record(int length) {
+        int index = index(length);
+        if(index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, Math.min(counts.length * 2, index(Integer.MAX_VALUE) + 1)));
+        }
+        counts[index]++;
+        count++;
+        sum += length;
+        max = Math.max(max, length);
+    }
+
+    static int index(int length) {
+        if(length < EXACT) {
+            return length;
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(length);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return EXACT + (exponent - EXACT_BITS) * SUB_BUCKETS + ((length >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * @return the largest length counted in the bucket
+     */
+    static long highestInBucket(int index) {
+        if(index < EXACT) {
+            return index;
+        }
+        int exponent = (index - EXACT) / SUB_BUCKETS + EXACT_BITS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowest = (long) ((index - EXACT) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * @return the number of lengths counted
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean length, or 0 if no length was counted
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @return the longest length counted, exactly
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100
+     * @return the length that the given percentage of lengths are at or below,
+     * rounded up to the end of its bucket but never above the longest length, or 0 if no length was counted
+     */
+    public long getValueAtPercentile(double percentile) {
+        if(percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("A percentile must be from 0 to 100, was: " + percentile);
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= target) {
+                return Math.min(highestInBucket(i), max);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,175 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.MalformedMessageException;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Reads a UTF-8 chat log through windows of the file mapped with {@link FileChannel#map}.
+ * Lines are found and split by scanning the raw bytes, and when a sender filter is given the sender
+ * is compared as bytes too, so messages from other senders are skipped without being copied or decoded.
+ * Only the messages that survive the filter are decoded.
+ */
+public class MappedConversationReader implements ChatLogReader {
+    private static final int WINDOW_SIZE = 256 << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private final SenderDictionary senders = new SenderDictionary();
+    private final byte[] senderFilter;
+    private final int senderFilterKey;
+
+    private MappedByteBuffer window;
+    private ByteBuffer view;
+    private long windowStart = 0;
+    private int position = 0;
+    private int lineStart;
+    private int lineEnd;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Opens a reader over the whole chat log
+     * @param path The path to the chat log
+     * @param senderFilter Only messages from this sender are read, or null to read every message
+     * @throws IOException Thrown when the chat log cannot be opened
+     */
+    public MappedConversationReader(Path path, String senderFilter) throws IOException {
+        this(path, senderFilter, WINDOW_SIZE);
+    }
+
+    MappedConversationReader(Path path, String senderFilter, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.senderFilterKey = senderFilter == null ? -1 : senders.intern(senderFilter);
+        this.senderFilter = senderFilter == null ? null : senderFilter.getBytes(StandardCharsets.UTF_8);
+        map(0, windowSize);
+    }
+
+    @Override
+    public String readName() throws IOException {
+        if(!nextLine()) {
+            return null;
+        }
+        int length = ChatLogParser.trimCarriageReturn(copyLine(), 0, lineEnd - lineStart);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Message readMessage() throws IOException {
+        while(nextLine()) {
+            if(senderFilter == null) {
+                return ChatLogParser.parseLine(copyLine(), 0, lineEnd - lineStart, senders);
+            }
+            int senderStart = indexOfSpace(lineStart) + 1;
+            int senderEnd = senderStart == 0 ? -1 : indexOfSpace(senderStart);
+            if(senderEnd < 0) {
+                throw new MalformedMessageException("Line is not a message: \""
+                        + new String(copyLine(), 0, lineEnd - lineStart, StandardCharsets.UTF_8) + "\"");
+            }
+            if(isSender(senderStart, senderEnd)) {
+                int contentStart = senderEnd + 1;
+                int end = ChatLogParser.trimCarriageReturn(copyLine(), 0, lineEnd - lineStart);
+                return new Message(
+                        Instant.ofEpochSecond(
+                                ChatLogParser.parseTimestamp(scratch, 0, senderStart - 1 - lineStart)),
+                        senders.getSender(senderFilterKey),
+                        new String(scratch, contentStart - lineStart, end - (contentStart - lineStart),
+                                StandardCharsets.UTF_8),
+                        senderFilterKey);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public SenderDictionary getSenders() {
+        return senders;
+    }
+
+    /**
+     * Finds the next line in the mapped window, moving the window forward when the line crosses its end
+     * @return true if there was another line
+     */
+    private boolean nextLine() throws IOException {
+        while(windowStart + position < size) {
+            int limit = window.limit();
+            for(int i = position; i < limit; i++) {
+                if(window.get(i) == ChatLogParser.NEW_LINE) {
+                    lineStart = position;
+                    lineEnd = i;
+                    position = i + 1;
+                    return true;
+                }
+            }
+            if(windowStart + limit >= size) {
+                lineStart = position;
+                lineEnd = limit;
+                position = limit;
+                return true;
+            }
+            // the line carries on past the window, so map again from the start of the line,
+            // growing the window if the line doesn't fit in it
+            int partial = limit - position;
+            map(windowStart + position, partial < windowSize / 2 ? windowSize : partial * 2L);
+        }
+        return false;
+    }
+
+    private void map(long start, long length) throws IOException {
+        windowStart = start;
+        position = 0;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                Math.min(Integer.MAX_VALUE, Math.min(length, size - start)));
+        view = window.duplicate();
+    }
+
+    private int indexOfSpace(int from) {
+        for(int i = from; i < lineEnd; i++) {
+            if(window.get(i) == ChatLogParser.SPACE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isSender(int senderStart, int senderEnd) {
+        if(senderEnd - senderStart != senderFilter.length) {
+            return false;
+        }
+        for(int i = 0; i < senderFilter.length; i++) {
+            if(window.get(senderStart + i) != senderFilter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the current line into the scratch buffer, which is reused from line to line
+     * @return the scratch buffer holding the line from index 0
+     */
+    private byte[] copyLine() {
+        int length = lineEnd - lineStart;
+        if(scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        ((Buffer) view).position(lineStart);
+        view.get(scratch, 0, length);
+        return scratch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
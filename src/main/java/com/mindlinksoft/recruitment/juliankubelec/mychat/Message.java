@@ -33,6 +33,12 @@ public final class Message {
      */
     private String senderId;
 
+    /**
+     * The id of the sender in the {@link SenderDictionary} of the reader that parsed the message, plus one,
+     * so that messages created anywhere else hold 0 and have no id.
+     */
+    private transient int senderKey;
+
     /**
      * Initializes a new instance of the {@link Message} class.
      * @param timestamp The timestamp at which the message was sent.
@@ -44,4 +50,45 @@ public final class Message {
         this.timestamp = timestamp;
         this.senderId = senderId;
     }
+
+    /**
+     * Initializes a message parsed by a reader that interned its sender.
+     * @param timestamp The timestamp at which the message was sent.
+     * @param senderId The ID of the sender, as held by the dictionary.
+     * @param content The message content.
+     * @param senderKey The id of the sender in the reader's {@link SenderDictionary}.
+     */
+    Message(Instant timestamp, String senderId, String content, int senderKey) {
+        this(timestamp, senderId, content);
+        this.senderKey = senderKey + 1;
+    }
+
+    /**
+     * @return the id of the sender in the {@link SenderDictionary} of the reader that parsed the message,
+     * or -1 if the message was not parsed by such a reader
+     */
+    int getSenderKey() {
+        return senderKey - 1;
+    }
+
+    /**
+     * @param content The new message content.
+     * @return a copy of this message with different content, keeping the sender id
+     */
+    Message withContent(String content) {
+        Message msg = new Message(timestamp, senderId, content);
+        msg.senderKey = senderKey;
+        return msg;
+    }
+
+    /**
+     * Moves the message to another {@link SenderDictionary}, only used by readers while they are still
+     * building their messages.
+     * @param senderId The ID of the sender, as held by the new dictionary.
+     * @param senderKey The id of the sender in the new dictionary.
+     */
+    void rebindSender(String senderId, int senderKey) {
+        this.senderId = senderId;
+        this.senderKey = senderKey + 1;
+    }
 }
@@ -0,0 +1,12 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+/**
+ * A step applied to each message of a conversation, such as a filter or a redaction.
+ */
+public interface MessageOperator {
+    /**
+     * @param msg The message to process
+     * @return the processed message, or null if the message is filtered out
+     */
+    Message apply(Message msg);
+}
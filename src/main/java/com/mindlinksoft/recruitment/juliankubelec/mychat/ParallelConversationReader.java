@@ -0,0 +1,228 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads a chat log by splitting everything after the conversation name into newline-aligned byte ranges
+ * and parsing the ranges on a {@link ForkJoinPool}.
+ * The messages of each range are joined back in file order, so the result is the same as reading the log
+ * line by line. A columnar read parses each range into a {@link ColumnarMessageStore} of its own, and the stores
+ * are joined without creating a {@link Message} for any line.
+ */
+public class ParallelConversationReader {
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 16 << 20;
+    private static final int SCAN_SIZE = 8192;
+
+    private final ForkJoinPool pool;
+    private final int minChunkSize;
+
+    /**
+     * Initialises a reader that parses on the common fork-join pool
+     */
+    public ParallelConversationReader() {
+        this(ForkJoinPool.commonPool(), MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Initialises a reader that parses on the given pool
+     * @param pool The pool the byte ranges are parsed on
+     * @param minChunkSize The smallest byte range worth parsing as a task of its own
+     */
+    ParallelConversationReader(ForkJoinPool pool, int minChunkSize) {
+        this.pool = pool;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Reads the conversation in the given chat log
+     * @param path The path to the chat log
+     * @return the conversation, or null if the chat log is empty
+     * @throws IOException Thrown when the chat log cannot be read
+     */
+    public Conversation read(Path path) throws IOException {
+        return read(path, false);
+    }
+
+    /**
+     * Reads the conversation in the given chat log
+     * @param path The path to the chat log
+     * @param columnar Whether the messages are kept in a {@link ColumnarMessageStore}
+     * @return the conversation, or null if the chat log is empty
+     * @throws IOException Thrown when the chat log cannot be read
+     */
+    public Conversation read(Path path, boolean columnar) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size == 0) {
+                return null;
+            }
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            long bodyStart = scanLine(channel, 0, size, header);
+            String name = new String(header.toByteArray(), StandardCharsets.UTF_8);
+            if(name.endsWith("\r")) {
+                name = name.substring(0, name.length() - 1);
+            }
+
+            List<ParseChunk> chunks = new ArrayList<>();
+            long chunkSize = Math.max(minChunkSize,
+                    Math.min(MAX_CHUNK_SIZE, (size - bodyStart) / (pool.getParallelism() * 4L)));
+            long start = bodyStart;
+            while(start < size) {
+                long end = start + chunkSize >= size ? size : scanLine(channel, start + chunkSize, size, null);
+                ParseChunk chunk = new ParseChunk(channel, start, end, columnar);
+                pool.execute(chunk);
+                chunks.add(chunk);
+                start = end;
+            }
+
+            // each chunk interns its senders into a dictionary of its own, so the ids are moved
+            // into one dictionary for the whole conversation as the chunks are joined
+            SenderDictionary senders = new SenderDictionary();
+            if(columnar) {
+                ColumnarMessageStore store = new ColumnarMessageStore(senders);
+                for(ParseChunk chunk: chunks) {
+                    ColumnarMessageStore part = (ColumnarMessageStore) join(chunk);
+                    store.append(part, remap(chunk.senders, senders));
+                }
+                return new Conversation(name, store, senders);
+            }
+            int total = 0;
+            List<List<Message>> parsed = new ArrayList<>(chunks.size());
+            for(ParseChunk chunk: chunks) {
+                List<Message> messages = join(chunk);
+                int[] remap = remap(chunk.senders, senders);
+                for(Message msg: messages) {
+                    int senderKey = remap[msg.getSenderKey()];
+                    msg.rebindSender(senders.getSender(senderKey), senderKey);
+                }
+                total += messages.size();
+                parsed.add(messages);
+            }
+            List<Message> messages = new ArrayList<>(total);
+            for(List<Message> part: parsed) {
+                messages.addAll(part);
+            }
+            return new Conversation(name, messages, senders);
+        }
+    }
+
+    /**
+     * Interns every sender of a chunk into the dictionary of the whole conversation
+     * @return the id in {@code senders} of each id in {@code chunkSenders}
+     */
+    private static int[] remap(SenderDictionary chunkSenders, SenderDictionary senders) {
+        int[] remap = new int[chunkSenders.size()];
+        for(int id = 0; id < remap.length; id++) {
+            remap[id] = senders.intern(chunkSenders.getSender(id));
+        }
+        return remap;
+    }
+
+    /**
+     * Waits for a chunk to be parsed, rethrowing the {@link IOException} it failed with
+     */
+    private static List<Message> join(ParseChunk chunk) throws IOException {
+        try {
+            return chunk.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Scans forward from {@code position} to the end of the current line
+     * @param channel The chat log
+     * @param position Where to start scanning
+     * @param size The size of the chat log
+     * @param line Receives the bytes of the line without its terminator, may be null
+     * @return the position of the first byte of the next line
+     */
+    private static long scanLine(FileChannel channel, long position, long size, ByteArrayOutputStream line)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        while(position < size) {
+            ((Buffer) buffer).clear();
+            int read = channel.read(buffer, position);
+            if(read < 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            int newLine = ChatLogParser.indexOf(bytes, ChatLogParser.NEW_LINE, 0, read);
+            if(newLine >= 0) {
+                if(line != null) {
+                    line.write(bytes, 0, newLine);
+                }
+                return position + newLine + 1;
+            }
+            if(line != null) {
+                line.write(bytes, 0, read);
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses every line of a newline-aligned byte range of the chat log
+     */
+    private static final class ParseChunk extends RecursiveTask<List<Message>> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean columnar;
+        private final SenderDictionary senders = new SenderDictionary();
+
+        ParseChunk(FileChannel channel, long start, long end, boolean columnar) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.columnar = columnar;
+        }
+
+        @Override
+        protected List<Message> compute() {
+            byte[] bytes = new byte[(int) (end - start)];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            try {
+                while(buffer.hasRemaining()) {
+                    if(channel.read(buffer, start + buffer.position()) < 0) {
+                        throw new IOException("Chat log ended before byte " + end);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            ColumnarMessageStore store = columnar ? new ColumnarMessageStore(senders) : null;
+            List<Message> messages = columnar ? store : new ArrayList<>();
+            int lineStart = 0;
+            while(lineStart < bytes.length) {
+                int lineEnd = ChatLogParser.indexOf(bytes, ChatLogParser.NEW_LINE, lineStart, bytes.length);
+                if(lineEnd < 0) {
+                    lineEnd = bytes.length;
+                }
+                if(columnar) {
+                    ChatLogParser.parseLine(bytes, lineStart, lineEnd, store);
+                }
+                else {
+                    messages.add(ChatLogParser.parseLine(bytes, lineStart, lineEnd, senders));
+                }
+                lineStart = lineEnd + 1;
+            }
+            return messages;
+        }
+    }
+}
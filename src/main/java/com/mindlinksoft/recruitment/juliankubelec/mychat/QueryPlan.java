@@ -0,0 +1,196 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A lazy plan of the filters and redactions to apply to a conversation.
+ * Operators are only recorded as they are added, then {@link #compile()} fuses them into a single
+ * {@link MessageOperator} that processes each message in one pass.
+ * Cheap operators run ahead of expensive ones whatever order they were added in: user filters, then
+ * keyword filters, then one redaction of every blacklisted word. Filters therefore always see the
+ * original message content.
+ */
+public final class QueryPlan {
+    private final List<String> userFilters = new ArrayList<>();
+    private final List<MessageOperator> keywordFilters = new ArrayList<>();
+    private final List<String> blacklist = new ArrayList<>();
+    private ExportStats stats;
+
+    /**
+     * Keeps only the messages sent by the given user
+     * @param userId used as a filter
+     * @return this plan
+     */
+    public QueryPlan filterByUser(String userId) {
+        userFilters.add(userId);
+        return this;
+    }
+
+    /**
+     * Keeps only the messages that contain the given keyword, or that satisfy a boolean query of keywords
+     * such as {@code pie AND NOT cake}, see {@link KeywordQuery}
+     * @param keyword used as a filter
+     * @return this plan
+     * @throws IllegalArgumentException Thrown when the keyword uses operators but is not a valid query
+     */
+    public QueryPlan filterByKeyword(String keyword) {
+        KeywordQuery query = KeywordQuery.parse(keyword);
+        if(query.isLiteral()) {
+            keywordFilters.add(msg -> FilteredConversationBuilder.containsKeyword(msg, keyword) ? msg : null);
+        }
+        else {
+            keywordFilters.add(msg -> query.matches(msg.getContent()) ? msg : null);
+        }
+        return this;
+    }
+
+    /**
+     * Replaces the given words with "*redacted*", every word added to the plan is redacted in the same scan
+     * @param words The blacklisted words
+     * @return this plan
+     */
+    public QueryPlan redact(Collection<String> words) {
+        blacklist.addAll(words);
+        return this;
+    }
+
+    /**
+     * Times each stage of the compiled plan and counts the messages each one drops
+     * @param stats The stats to collect into, or null to leave the stages untimed
+     * @return this plan
+     */
+    QueryPlan setStats(ExportStats stats) {
+        this.stats = stats;
+        return this;
+    }
+
+    /**
+     * @return true if the plan leaves every message as it is
+     */
+    public boolean isEmpty() {
+        return userFilters.isEmpty() && keywordFilters.isEmpty() && blacklist.isEmpty();
+    }
+
+    /**
+     * Fuses the plan into a single operator, compiling the blacklist once
+     * @return the operator that applies the whole plan to a message
+     */
+    public MessageOperator compile() {
+        return compile(null);
+    }
+
+    /**
+     * Fuses the plan into a single operator for messages parsed with the given dictionary.
+     * User filters compare the sender ids of the messages as ints instead of comparing strings
+     * @param senders The dictionary the sender ids of the messages refer to, or null if they have none
+     * @return the operator that applies the whole plan to a message
+     */
+    public MessageOperator compile(SenderDictionary senders) {
+        List<MessageOperator> operators = new ArrayList<>();
+        for(String userId: userFilters) {
+            if(senders == null) {
+                operators.add(timed(ExportStats.FILTER_BY_USER,
+                        msg -> FilteredConversationBuilder.isFromUser(msg, userId) ? msg : null));
+                continue;
+            }
+            int senderKey = senders.intern(userId);
+            operators.add(timed(ExportStats.FILTER_BY_USER, msg -> {
+                int key = msg.getSenderKey();
+                if(key >= 0) {
+                    return key == senderKey ? msg : null;
+                }
+                return FilteredConversationBuilder.isFromUser(msg, userId) ? msg : null;
+            }));
+        }
+        return fuse(operators);
+    }
+
+    /**
+     * Fuses the keyword filters and redaction, leaving out the user filters
+     */
+    private MessageOperator compileContentStages() {
+        return fuse(new ArrayList<>());
+    }
+
+    private MessageOperator fuse(List<MessageOperator> operators) {
+        for(MessageOperator keywordFilter: keywordFilters) {
+            operators.add(timed(ExportStats.FILTER_BY_KEYWORD, keywordFilter));
+        }
+        if(!blacklist.isEmpty()) {
+            Redactor redactor = new Redactor(blacklist);
+            if(stats == null) {
+                operators.add(redactor::redact);
+            }
+            else {
+                ExportStats.Stage stage = stats.stage(ExportStats.REDACT);
+                operators.add(stats.time(ExportStats.REDACT, msg -> redactor.redact(msg, stage)));
+            }
+        }
+        MessageOperator[] stages = operators.toArray(new MessageOperator[0]);
+        return msg -> {
+            for(MessageOperator stage: stages) {
+                msg = stage.apply(msg);
+                if(msg == null) {
+                    return null;
+                }
+            }
+            return msg;
+        };
+    }
+
+    private MessageOperator timed(String stage, MessageOperator operator) {
+        return stats == null ? operator : stats.time(stage, operator);
+    }
+
+    /**
+     * Runs the plan over a whole conversation in a single pass
+     * @param conversation The conversation to process
+     * @return a new conversation holding the messages that passed the plan
+     */
+    public Conversation execute(Conversation conversation) {
+        if(conversation.getMessages() instanceof ColumnarMessageStore) {
+            return execute(conversation.getName(), (ColumnarMessageStore) conversation.getMessages());
+        }
+        MessageOperator operator = compile(conversation.getSenders());
+        List<Message> messages = new ArrayList<>();
+        for(Message msg: conversation.getMessages()) {
+            msg = operator.apply(msg);
+            if(msg != null) {
+                messages.add(msg);
+            }
+        }
+        return new Conversation(conversation.getName(), messages, conversation.getSenders());
+    }
+
+    /**
+     * Runs the plan over a columnar conversation, applying the user filters to the sender id column
+     * so only the messages that pass them are decoded
+     */
+    private Conversation execute(String name, ColumnarMessageStore store) {
+        ColumnarMessageStore result = store.emptyCopy();
+        MessageOperator operator = compileContentStages();
+        int[] rows = null;
+        long start = System.nanoTime();
+        for(String userId: userFilters) {
+            int[] matches = store.indexesOfSender(userId);
+            rows = rows == null ? matches : (Arrays.equals(rows, matches) ? rows : new int[0]);
+        }
+        int count = rows == null ? store.size() : rows.length;
+        if(stats != null && rows != null) {
+            ExportStats.Stage stage = stats.stage(ExportStats.FILTER_BY_USER);
+            stage.nanos += System.nanoTime() - start;
+            stage.in += store.size();
+            stage.out += count;
+        }
+        for(int i = 0; i < count; i++) {
+            Message msg = operator.apply(store.get(rows == null ? i : rows[i]));
+            if(msg != null) {
+                result.add(msg);
+            }
+        }
+        return new Conversation(name, result, result.getSenders());
+    }
+}
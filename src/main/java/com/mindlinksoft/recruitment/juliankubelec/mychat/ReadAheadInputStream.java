@@ -0,0 +1,147 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a stream on a thread of its own, a few chunks ahead of the reader.
+ * Used for compressed chat logs, so the input is decompressed while the lines already decompressed are parsed.
+ * The chunks are recycled between the two threads, so reading ahead allocates nothing once started.
+ * The stream itself is meant to be read by a single thread.
+ */
+final class ReadAheadInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 64 << 10;
+    private static final int CHUNKS = 4;
+
+    private final InputStream source;
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(CHUNKS + 1);
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(CHUNKS);
+    private final Thread thread;
+    private volatile IOException error;
+    private Chunk current;
+    private int position;
+    private boolean ended = false;
+
+    /**
+     * A buffer and the number of bytes in it, a negative length marks the end of the stream
+     */
+    private static final class Chunk {
+        private final byte[] data;
+        private int length;
+
+        Chunk(int size) {
+            data = new byte[size];
+        }
+    }
+
+    /**
+     * Starts reading the source ahead
+     * @param source The stream to read, closed once it has been read to the end or this stream is closed
+     * @param name The name of the thread reading the source
+     */
+    ReadAheadInputStream(InputStream source, String name) {
+        this.source = source;
+        for(int i = 0; i < CHUNKS; i++) {
+            free.add(new Chunk(CHUNK_SIZE));
+        }
+        thread = new Thread(this::readAhead, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void readAhead() {
+        try(InputStream in = source) {
+            while(true) {
+                Chunk chunk = free.take();
+                int length = 0;
+                int n;
+                while(length < chunk.data.length && (n = in.read(chunk.data, length, chunk.data.length - length)) >= 0) {
+                    length += n;
+                }
+                if(length == 0) {
+                    break;
+                }
+                chunk.length = length;
+                filled.put(chunk);
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            // closed before the source was read to the end
+            return;
+        }
+        Chunk end = new Chunk(0);
+        end.length = -1;
+        filled.add(end);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if(!nextChunk()) {
+            return -1;
+        }
+        return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0) {
+            return 0;
+        }
+        if(!nextChunk()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    /**
+     * Moves on to the next filled chunk once the current one has been read, handing it back to be filled again
+     * @return false at the end of the stream
+     */
+    private boolean nextChunk() throws IOException {
+        if(current != null && position < current.length) {
+            return true;
+        }
+        if(ended) {
+            return false;
+        }
+        if(current != null) {
+            free.add(current);
+            current = null;
+        }
+        Chunk chunk;
+        try {
+            chunk = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the input");
+        }
+        if(chunk.length < 0) {
+            ended = true;
+            if(error != null) {
+                throw new IOException("Unable to read the input: " + error.getMessage(), error);
+            }
+            return false;
+        }
+        current = chunk;
+        position = 0;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ended = true;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
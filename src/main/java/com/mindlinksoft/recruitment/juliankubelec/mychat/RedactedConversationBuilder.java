@@ -1,8 +1,7 @@
 package com.mindlinksoft.recruitment.juliankubelec.mychat;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
 
 /**
  * Sub-class of ConversationBuilder specifically for redacting information
@@ -12,41 +11,26 @@ public class RedactedConversationBuilder extends ConversationBuilder{
         super(conversation);
     }
 
+    RedactedConversationBuilder(Conversation conversation, QueryPlan plan) {
+        super(conversation, plan);
+    }
+
     /**
-     * This function replaces any blacklisted word with "*redacted*"
+     * Adds a blacklisted word to replace with "*redacted*"
      * @param word The blacklisted word to replace
      */
     public RedactedConversationBuilder byBlacklistedWord(String word) {
-        String redacted = "*redacted*";
-        String regex = buildRegex(word);
-        List<Message> newMessages = new ArrayList<>();
-        for(Message msg: conversation.getMessages()) {
-            Message newMessage = new Message(msg.getTimestamp(),
-                    msg.getSenderId(),
-                    msg.getContent().replaceAll(regex, redacted)
-            );
-            newMessages.add(newMessage);
-        }
-        conversation = new Conversation(conversation.getName(), newMessages);
-        return this;
+        return byBlacklistedWords(Collections.singletonList(word));
     }
 
     /**
-     * Creates a regrex that finds individual words.
-     * The regex made is '\b[aA]word\b'
-     * where a is the first letter (lower case version) of the word
-     * A is the first letter (upper case version) of the word
-     * @param word The word to test for
-     * @return the regex in form mentioned above
+     * Adds blacklisted words to replace with "*redacted*".
+     * Every blacklisted word is compiled into one {@link Redactor} and replaced in a single scan,
+     * and messages without any blacklisted word are kept as they are rather than copied.
+     * @param words The blacklisted words to replace
      */
-    private String buildRegex(String word) {
-        StringBuilder sb = new StringBuilder(word);
-        String res;
-        char firstUpper = word.toUpperCase().toCharArray()[0];
-        char firstLower = word.toLowerCase().toCharArray()[0];
-        String set = "["+firstUpper +firstLower +"]";
-        sb.deleteCharAt(0);
-        res = "\\b"+ set + sb.toString() + "\\b";
-        return res;
+    public RedactedConversationBuilder byBlacklistedWords(Collection<String> words) {
+        plan.redact(words);
+        return this;
     }
 }
@@ -0,0 +1,140 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Replaces every blacklisted word with "*redacted*" in a single scan of each message.
+ * The blacklist is compiled once into an {@link AhoCorasick} automaton, with a pattern for both the
+ * upper and lower case first letter of each word, and matches only count as whole words, following the
+ * rules of the regex {@code \b[xX]word\b}.
+ * A redactor is immutable, so one instance can be shared between threads.
+ */
+public final class Redactor {
+    static final String REDACTED = "*redacted*";
+
+    private final AhoCorasick automaton;
+
+    /**
+     * Compiles the blacklist
+     * @param words The blacklisted words, empty words are ignored
+     */
+    public Redactor(Collection<String> words) {
+        Set<String> patterns = new LinkedHashSet<>();
+        for(String word: words) {
+            if(word == null || word.isEmpty()) {
+                continue;
+            }
+            String rest = word.substring(1);
+            patterns.add(word.toUpperCase().charAt(0) + rest);
+            patterns.add(word.toLowerCase().charAt(0) + rest);
+        }
+        automaton = new AhoCorasick(new ArrayList<>(patterns));
+    }
+
+    /**
+     * Redacts the blacklisted words in a message
+     * @param msg The message to redact
+     * @return a copy of the message with the words redacted, or the same message if nothing matched
+     */
+    public Message redact(Message msg) {
+        return redact(msg, null);
+    }
+
+    /**
+     * Redacts the blacklisted words in a message, counting every word redacted
+     * @param msg The message to redact
+     * @param stage The stage the redacted words are counted in, or null to not count them
+     * @return a copy of the message with the words redacted, or the same message if nothing matched
+     */
+    Message redact(Message msg, ExportStats.Stage stage) {
+        String content = msg.getContent();
+        String redacted = redact(content, stage);
+        if(redacted == content) {
+            return msg;
+        }
+        return msg.withContent(redacted);
+    }
+
+    /**
+     * Redacts the blacklisted words in some text
+     * @param content The text to redact
+     * @return the redacted text, or the same instance if nothing matched
+     */
+    public String redact(String content) {
+        return redact(content, null);
+    }
+
+    private String redact(String content, ExportStats.Stage stage) {
+        if(automaton.patternCount() == 0) {
+            return content;
+        }
+        Matches matches = new Matches(content);
+        automaton.search(content, matches);
+        if(matches.size == 0) {
+            return content;
+        }
+
+        // leftmost match first, the longest one when several start at the same place
+        long[] sorted = Arrays.copyOf(matches.spans, matches.size);
+        Arrays.sort(sorted);
+        StringBuilder sb = new StringBuilder(content.length());
+        int cursor = 0;
+        for(long span: sorted) {
+            int start = (int) (span >>> 32);
+            int end = Integer.MAX_VALUE - (int) span;
+            if(start < cursor) {
+                continue;
+            }
+            sb.append(content, cursor, start).append(REDACTED);
+            cursor = end;
+            if(stage != null) {
+                stage.hits++;
+            }
+        }
+        sb.append(content, cursor, content.length());
+        return sb.toString();
+    }
+
+    /**
+     * Collects the whole-word matches in a message, each packed as start and inverted end
+     * so that sorting puts them in the order they should be replaced
+     */
+    private final class Matches implements AhoCorasick.MatchHandler {
+        private final String content;
+        private long[] spans = new long[4];
+        private int size = 0;
+
+        Matches(String content) {
+            this.content = content;
+        }
+
+        @Override
+        public boolean onMatch(int pattern, int end) {
+            int start = end - automaton.patternLength(pattern);
+            if(isBoundary(content, start) && isBoundary(content, end)) {
+                if(size == spans.length) {
+                    spans = Arrays.copyOf(spans, size * 2);
+                }
+                spans[size++] = ((long) start << 32) | (Integer.MAX_VALUE - end);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Checks for a regex word boundary ({@code \b}) at the given index
+     */
+    private static boolean isBoundary(String content, int index) {
+        boolean before = index > 0 && isWordChar(content.charAt(index - 1));
+        boolean after = index < content.length() && isWordChar(content.charAt(index));
+        return before != after;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,65 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded lock-free queue between exactly one producer thread and one consumer thread.
+ * The slots are a power-of-two array indexed by two ever-increasing counters: the producer only moves the tail,
+ * the consumer only moves the head, so neither needs a lock or a compare-and-swap. Each counter is published
+ * with an ordered write, so an item is visible to the consumer once it sees the tail that covers it.
+ * Offering to a full buffer or polling an empty one returns straight away, waiting is left to the caller.
+ * @param <T> The type of the items
+ */
+final class RingBuffer<T> {
+    private final Object[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity The number of items the buffer holds, rounded up to a power of two
+     */
+    RingBuffer(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive, was: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity) {
+            size <<= 1;
+        }
+        slots = new Object[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an item, only called by the producer
+     * @param item The item to add, not null
+     * @return false if the buffer is full
+     */
+    boolean offer(T item) {
+        long t = tail.get();
+        if(t - head.get() == slots.length) {
+            return false;
+        }
+        slots[(int) t & mask] = item;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest item, only called by the consumer
+     * @return the item, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long h = head.get();
+        if(h == tail.get()) {
+            return null;
+        }
+        int index = (int) h & mask;
+        T item = (T) slots[index];
+        slots[index] = null;
+        head.lazySet(h + 1);
+        return item;
+    }
+}
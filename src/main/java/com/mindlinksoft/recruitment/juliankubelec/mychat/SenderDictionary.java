@@ -0,0 +1,195 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Symbol table of the senders in a conversation.
+ * Each distinct sender is stored once and given a small int id, handed out in order of first appearance,
+ * so senders can be counted and compared as ints instead of strings.
+ * Readers can look senders up straight from the characters or UTF-8 bytes of a line, so a sender that
+ * has been seen before costs no allocation.
+ * A dictionary is not thread-safe.
+ */
+public final class SenderDictionary {
+    private static final int NONE = 0;
+
+    private String[] senders = new String[16];
+    private byte[][] encoded = new byte[16][];
+    private int size = 0;
+
+    // open addressing tables holding id + 1, keyed by String.hashCode and by a hash of the UTF-8 bytes
+    private int[] stringSlots = new int[32];
+    private int[] byteSlots = new int[32];
+    private int byteCount = 0;
+
+    /**
+     * Gets the id of a sender, adding the sender to the dictionary if it hasn't been seen before
+     * @param sender The sender to look up
+     * @return the id of the sender
+     */
+    public int intern(String sender) {
+        int id = lookup(sender);
+        return id >= 0 ? id : add(sender);
+    }
+
+    /**
+     * Gets the id of the sender held in part of some text, only creating a String if the sender is new
+     * @param text The text holding the sender
+     * @param from The index of the first character of the sender
+     * @param to The index just after the last character of the sender
+     * @return the id of the sender
+     */
+    public int intern(CharSequence text, int from, int to) {
+        int hash = 0;
+        for(int i = from; i < to; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int mask = stringSlots.length - 1;
+        for(int slot = mix(hash) & mask; stringSlots[slot] != NONE; slot = (slot + 1) & mask) {
+            int id = stringSlots[slot] - 1;
+            if(regionEquals(senders[id], text, from, to)) {
+                return id;
+            }
+        }
+        return add(text.subSequence(from, to).toString());
+    }
+
+    /**
+     * Gets the id of the sender held as UTF-8 in part of a buffer, only decoding it if the sender is new
+     * @param buf The buffer holding the sender
+     * @param from The index of the first byte of the sender
+     * @param to The index just after the last byte of the sender
+     * @return the id of the sender
+     */
+    public int intern(byte[] buf, int from, int to) {
+        int hash = hashBytes(buf, from, to);
+        int mask = byteSlots.length - 1;
+        int slot = hash & mask;
+        for(; byteSlots[slot] != NONE; slot = (slot + 1) & mask) {
+            int id = byteSlots[slot] - 1;
+            if(regionEquals(encoded[id], buf, from, to)) {
+                return id;
+            }
+        }
+        int id = intern(new String(buf, from, to - from, StandardCharsets.UTF_8));
+        encoded[id] = Arrays.copyOfRange(buf, from, to);
+        byteSlots[slot] = id + 1;
+        if(++byteCount * 2 > byteSlots.length) {
+            rehashBytes();
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a sender without adding it to the dictionary
+     * @param sender The sender to look up
+     * @return the id of the sender, or -1 if the sender is not in the dictionary
+     */
+    public int lookup(String sender) {
+        int mask = stringSlots.length - 1;
+        for(int slot = mix(sender.hashCode()) & mask; stringSlots[slot] != NONE; slot = (slot + 1) & mask) {
+            int id = stringSlots[slot] - 1;
+            String candidate = senders[id];
+            if(candidate == sender || candidate.equals(sender)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id The id handed out by {@link #intern(String)}
+     * @return the sender with the given id, always the same String instance for the same id
+     */
+    public String getSender(int id) {
+        if(id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No sender with id: " + id);
+        }
+        return senders[id];
+    }
+
+    /**
+     * @return the number of distinct senders in the dictionary
+     */
+    public int size() {
+        return size;
+    }
+
+    private int add(String sender) {
+        if(size == senders.length) {
+            senders = Arrays.copyOf(senders, size * 2);
+            encoded = Arrays.copyOf(encoded, size * 2);
+        }
+        int id = size++;
+        senders[id] = sender;
+        if(size * 2 > stringSlots.length) {
+            stringSlots = new int[stringSlots.length * 2];
+            for(int i = 0; i < size; i++) {
+                insert(stringSlots, mix(senders[i].hashCode()), i);
+            }
+        }
+        else {
+            insert(stringSlots, mix(sender.hashCode()), id);
+        }
+        return id;
+    }
+
+    private void rehashBytes() {
+        byteSlots = new int[byteSlots.length * 2];
+        for(int id = 0; id < size; id++) {
+            if(encoded[id] != null) {
+                insert(byteSlots, hashBytes(encoded[id], 0, encoded[id].length), id);
+            }
+        }
+    }
+
+    private static void insert(int[] slots, int hash, int id) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while(slots[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    private static int hashBytes(byte[] buf, int from, int to) {
+        int hash = 0;
+        for(int i = from; i < to; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Spreads the bits of a hash so that similar senders don't cluster in the low bits
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean regionEquals(String sender, CharSequence text, int from, int to) {
+        if(sender.length() != to - from) {
+            return false;
+        }
+        for(int i = 0; i < sender.length(); i++) {
+            if(sender.charAt(i) != text.charAt(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(byte[] sender, byte[] buf, int from, int to) {
+        if(sender.length != to - from) {
+            return false;
+        }
+        for(int i = 0; i < sender.length; i++) {
+            if(sender[i] != buf[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
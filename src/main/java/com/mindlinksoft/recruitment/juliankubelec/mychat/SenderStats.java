@@ -0,0 +1,51 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.time.Instant;
+
+/**
+ * What a single sender contributed to a conversation: how many messages they sent,
+ * how long those messages were in total and when the first and last of them were sent.
+ */
+public final class SenderStats {
+    private final String sender;
+    private final int messages;
+    private final long characters;
+    private final Instant firstTimestamp;
+    private final Instant lastTimestamp;
+
+    SenderStats(String sender, int messages, long characters, Instant firstTimestamp, Instant lastTimestamp) {
+        this.sender = sender;
+        this.messages = messages;
+        this.characters = characters;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+    public int getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return the number of characters in the contents of every message the sender sent
+     */
+    public long getCharacters() {
+        return characters;
+    }
+
+    /**
+     * @return the earliest timestamp of the sender's messages
+     */
+    public Instant getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    /**
+     * @return the latest timestamp of the sender's messages
+     */
+    public Instant getLastTimestamp() {
+        return lastTimestamp;
+    }
+}
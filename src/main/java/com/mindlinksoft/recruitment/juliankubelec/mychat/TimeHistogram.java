@@ -0,0 +1,155 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Counts messages per fixed-width bucket of time, such as per minute, in a fixed amount of memory.
+ * Buckets are aligned to whole multiples of their width since the epoch. When the messages span more buckets
+ * than the histogram holds, the width is doubled and neighbouring buckets are added together, as often as needed,
+ * so a conversation of any length fits: a conversation of a few days is counted per minute, one of a few years
+ * per few hours. {@link #getBucketSeconds()} is the width the histogram ended up with.
+ * A histogram is not thread-safe.
+ */
+public final class TimeHistogram {
+    private final long[] counts;
+    private long width;
+    private long origin;
+    private long minSecond = Long.MAX_VALUE;
+    private long maxSecond = Long.MIN_VALUE;
+    private long total;
+
+    /**
+     * @param bucketSeconds The width of a bucket, until the messages span more than {@code maxBuckets} of them
+     * @param maxBuckets The number of buckets held, which bounds the memory used
+     */
+    TimeHistogram(long bucketSeconds, int maxBuckets) {
+        if(bucketSeconds < 1 || maxBuckets < 2) {
+            throw new IllegalArgumentException("A histogram needs buckets of at least a second, and at least two of them");
+        }
+        this.width = bucketSeconds;
+        this.counts = new long[maxBuckets];
+    }
+
+    /**
+     * Counts a message sent at the given time
+     * @param second The unix timestamp of the message
+     */
+    void record(long second) {
+        if(total == 0) {
+            origin = Math.floorDiv(second, width) * width;
+        }
+        long index = Math.floorDiv(second - origin, width);
+        if(index < 0 || index >= counts.length) {
+            fit(Math.min(minSecond, second), Math.max(maxSecond, second));
+            index = Math.floorDiv(second - origin, width);
+        }
+        counts[(int) index]++;
+        total++;
+        minSecond = Math.min(minSecond, second);
+        maxSecond = Math.max(maxSecond, second);
+    }
+
+    /**
+     * Moves the buckets, and widens them if needed, so every second from {@code low} to {@code high} has a bucket.
+     * The new width is a multiple of the old and the new origin is aligned to it, so each old bucket falls
+     * into exactly one new bucket
+     */
+    private void fit(long low, long high) {
+        long newWidth = width;
+        long newOrigin = Math.floorDiv(low, newWidth) * newWidth;
+        while(Math.floorDiv(high - newOrigin, newWidth) >= counts.length) {
+            newWidth *= 2;
+            newOrigin = Math.floorDiv(low, newWidth) * newWidth;
+        }
+        long[] old = Arrays.copyOf(counts, counts.length);
+        Arrays.fill(counts, 0);
+        for(int i = 0; i < old.length; i++) {
+            if(old[i] != 0) {
+                counts[(int) Math.floorDiv(origin + i * width - newOrigin, newWidth)] += old[i];
+            }
+        }
+        width = newWidth;
+        origin = newOrigin;
+    }
+
+    /**
+     * @return the width of a bucket in seconds
+     */
+    public long getBucketSeconds() {
+        return width;
+    }
+
+    /**
+     * @return the start of the first bucket holding a message, or null if no message was recorded
+     */
+    public Instant getStart() {
+        return total == 0 ? null : Instant.ofEpochSecond(origin + first() * width);
+    }
+
+    /**
+     * @return the number of messages in each bucket from the first holding a message to the last
+     */
+    public long[] getCounts() {
+        return total == 0 ? new long[0] : Arrays.copyOfRange(counts, first(), last() + 1);
+    }
+
+    /**
+     * @return the start of the busiest bucket, the earliest one if several are as busy,
+     * or null if no message was recorded
+     */
+    public Instant getPeakStart() {
+        return total == 0 ? null : Instant.ofEpochSecond(origin + peak() * width);
+    }
+
+    /**
+     * @return the number of messages in the busiest bucket
+     */
+    public long getPeakCount() {
+        return total == 0 ? 0 : counts[peak()];
+    }
+
+    private int first() {
+        return (int) Math.floorDiv(minSecond - origin, width);
+    }
+
+    private int last() {
+        return (int) Math.floorDiv(maxSecond - origin, width);
+    }
+
+    private int peak() {
+        int peak = first();
+        for(int i = peak + 1; i <= last(); i++) {
+            if(counts[i] > counts[peak]) {
+                peak = i;
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Writes the histogram as a JSON object, with timestamps as unix timestamps like those of the messages
+     * @param writer The writer, positioned where a value is expected
+     * @throws IOException Thrown when the underlying writer is unable to write
+     */
+    void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("bucketSeconds").value(width);
+        if(total > 0) {
+            writer.name("start").value(getStart().getEpochSecond());
+            writer.name("counts").beginArray();
+            for(int i = first(); i <= last(); i++) {
+                writer.value(counts[i]);
+            }
+            writer.endArray();
+            writer.name("peak").beginObject();
+            writer.name("start").value(getPeakStart().getEpochSecond());
+            writer.name("count").value(getPeakCount());
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+}
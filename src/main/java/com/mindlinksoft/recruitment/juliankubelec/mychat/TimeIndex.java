@@ -0,0 +1,203 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Sparse index from timestamps to byte offsets of a chat log, one entry every {@code interval} messages.
+ * The index is saved next to the chat log and rebuilt whenever the log's size or modification time changes.
+ * Building it only parses the timestamp of each line, so it costs far less than reading the conversation,
+ * and afterwards an export of a time window can seek straight to the part of the log it needs.
+ */
+final class TimeIndex {
+    static final int INTERVAL = 1024;
+    static final String EXTENSION = ".timeindex";
+    private static final int MAGIC = 0x4d434958;
+    private static final int VERSION = 1;
+
+    private final long inputSize;
+    private final long lastModified;
+    private final long bodyStart;
+    private final boolean ordered;
+    private final long[] timestamps;
+    private final long[] offsets;
+
+    private TimeIndex(long inputSize, long lastModified, long bodyStart, boolean ordered,
+                      long[] timestamps, long[] offsets) {
+        this.inputSize = inputSize;
+        this.lastModified = lastModified;
+        this.bodyStart = bodyStart;
+        this.ordered = ordered;
+        this.timestamps = timestamps;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @param input The chat log
+     * @return the path of the index of the chat log
+     */
+    static Path pathFor(Path input) {
+        return input.resolveSibling(input.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Loads the saved index of a chat log, building and saving it first if it is missing or out of date.
+     * An index that cannot be saved is still used for this read
+     * @param input The chat log
+     * @return the index of the chat log
+     * @throws IOException Thrown when the chat log cannot be read
+     */
+    static TimeIndex open(Path input) throws IOException {
+        Path path = pathFor(input);
+        TimeIndex index = load(path, input);
+        if(index == null) {
+            index = build(input, INTERVAL);
+            try {
+                index.save(path);
+            } catch (IOException e) {
+                // the directory may be read-only, the index is simply built again next time
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Loads a saved index
+     * @param path The index file
+     * @param input The chat log the index was built from
+     * @return the index, or null if there is none or the chat log has changed since it was built
+     * @throws IOException Thrown when the chat log's attributes cannot be read
+     */
+    static TimeIndex load(Path path, Path input) throws IOException {
+        if(!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long inputSize = in.readLong();
+            long lastModified = in.readLong();
+            if(inputSize != Files.size(input) || lastModified != Files.getLastModifiedTime(input).toMillis()) {
+                return null;
+            }
+            long bodyStart = in.readLong();
+            boolean ordered = in.readBoolean();
+            int count = in.readInt();
+            long[] timestamps = new long[count];
+            long[] offsets = new long[count];
+            for(int i = 0; i < count; i++) {
+                timestamps[i] = in.readLong();
+                offsets[i] = in.readLong();
+            }
+            return new TimeIndex(inputSize, lastModified, bodyStart, ordered, timestamps, offsets);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Builds the index of a chat log in one pass over its lines
+     * @param input The chat log
+     * @param interval The number of messages between entries
+     * @return the index
+     * @throws IOException Thrown when the chat log cannot be read
+     */
+    static TimeIndex build(Path input, int interval) throws IOException {
+        long inputSize = Files.size(input);
+        long lastModified = Files.getLastModifiedTime(input).toMillis();
+        long[] timestamps = new long[16];
+        long[] offsets = new long[16];
+        int count = 0;
+        boolean ordered = true;
+        try (ChatLogTail tail = new ChatLogTail(input, 0)) {
+            tail.nextLine();
+            long bodyStart = tail.getOffset();
+            long lineStart = bodyStart;
+            long previous = Long.MIN_VALUE;
+            for(long line = 0; tail.nextLine(); line++) {
+                long timestamp = tail.readTimestamp();
+                ordered &= timestamp >= previous;
+                previous = timestamp;
+                if(line % interval == 0) {
+                    if(count == timestamps.length) {
+                        timestamps = Arrays.copyOf(timestamps, count * 2);
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                    }
+                    timestamps[count] = timestamp;
+                    offsets[count] = lineStart;
+                    count++;
+                }
+                lineStart = tail.getOffset();
+            }
+            return new TimeIndex(inputSize, lastModified, bodyStart, ordered,
+                    Arrays.copyOf(timestamps, count), Arrays.copyOf(offsets, count));
+        }
+    }
+
+    /**
+     * Saves the index, replacing the previous one in a single move
+     * @param path The index file
+     * @throws IOException Thrown when the index cannot be written
+     */
+    void save(Path path) throws IOException {
+        AtomicFiles.write(path, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(inputSize);
+            out.writeLong(lastModified);
+            out.writeLong(bodyStart);
+            out.writeBoolean(ordered);
+            out.writeInt(timestamps.length);
+            for(int i = 0; i < timestamps.length; i++) {
+                out.writeLong(timestamps[i]);
+                out.writeLong(offsets[i]);
+            }
+            out.flush();
+        });
+    }
+
+    /**
+     * Finds where to start reading for the messages sent at or after a timestamp
+     * @param from The earliest timestamp wanted
+     * @return the offset of a line at or before the first message sent at or after {@code from}
+     */
+    long seek(long from) {
+        if(!ordered) {
+            return bodyStart;
+        }
+        // the last entry strictly before from, as messages sent at from may start in the block before
+        // the first entry stamped from
+        int low = 0;
+        int high = timestamps.length - 1;
+        int found = -1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            if(timestamps[mid] < from) {
+                found = mid;
+                low = mid + 1;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? bodyStart : offsets[found];
+    }
+
+    /**
+     * @return the offset of the first message, just after the conversation name
+     */
+    long getBodyStart() {
+        return bodyStart;
+    }
+
+    /**
+     * @return true if the messages are in timestamp order, so a read can stop at the end of a window
+     */
+    boolean isOrdered() {
+        return ordered;
+    }
+}
@@ -0,0 +1,15 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Exception when the output file does not have the extension of the output format
+ * used in ConversationExporter for the output file
+ */
+public class InvalidExtensionException extends IOException {
+
+    public InvalidExtensionException(String errorMessage)
+    {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,18 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions;
+
+/**
+ * Exception when a line of a chat log is not in the form {@code <unix_timestamp> <username> <message>}
+ * used by the readers of the input text file
+ */
+public class MalformedMessageException extends IllegalArgumentException {
+
+    public MalformedMessageException(String errorMessage)
+    {
+        super(errorMessage);
+    }
+
+    public MalformedMessageException(String errorMessage, Throwable e)
+    {
+        super(errorMessage, e);
+    }
+}
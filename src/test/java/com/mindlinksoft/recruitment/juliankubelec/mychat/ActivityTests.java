@@ -27,4 +27,45 @@ public class ActivityTests {
         assertEquals("mike", reports.get(2).getSender());
         assertEquals(2, reports.get(2).getCount());
     }
+
+    /**
+     * Test whether the report can be limited to the most active users
+     */
+    @Test
+    public void testExtractTopStats() {
+        Conversation c = TestHelper.prepareConversation().build();
+        Activity activity = new Activity();
+        activity.setLimit(2);
+        activity.extractStats(c);
+        ArrayList<Report> reports= (ArrayList<Report>)activity.getReports();
+        assertEquals(2, reports.size());
+        assertEquals("bob", reports.get(0).getSender());
+        assertEquals(3, reports.get(0).getCount());
+
+        assertEquals("angus", reports.get(1).getSender());
+        assertEquals(2, reports.get(1).getCount());
+    }
+
+    /**
+     * Test whether recording messages one at a time produces the same report as extractStats
+     */
+    @Test
+    public void testRecordMessages() {
+        Conversation c = TestHelper.prepareConversation().build();
+        Activity activity = new Activity();
+        for(Message msg: c.getMessages()) {
+            activity.record(msg);
+        }
+        activity.finish();
+        ArrayList<Report> reports= (ArrayList<Report>)activity.getReports();
+        assertEquals(3, reports.size());
+        assertEquals("bob", reports.get(0).getSender());
+        assertEquals(3, reports.get(0).getCount());
+
+        assertEquals("angus", reports.get(1).getSender());
+        assertEquals(2, reports.get(1).getCount());
+
+        assertEquals("mike", reports.get(2).getSender());
+        assertEquals(2, reports.get(2).getCount());
+    }
 }
@@ -0,0 +1,183 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the {@link Analytics} added to exports run with {@code --analytics}.
+ */
+public class AnalyticsTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path log;
+
+    @Before
+    public void createLog() throws IOException {
+        directory = folder.getRoot().toPath();
+        log = directory.resolve("chat.txt");
+        Files.copy(Paths.get("chat.txt"), log);
+    }
+
+    /**
+     * Tests if percentiles of the length histogram are exact for short lengths,
+     * and within the precision of a bucket for long ones
+     */
+    @Test
+    public void testLengthPercentiles() {
+        for(int length: new int[] {0, 1, 63, 64, 65, 127, 128, 1000, 65_537, Integer.MAX_VALUE}) {
+            int index = LengthHistogram.index(length);
+            assertTrue(LengthHistogram.highestInBucket(index) >= length);
+            assertEquals(index, LengthHistogram.index((int) LengthHistogram.highestInBucket(index)));
+        }
+
+        LengthHistogram lengths = new LengthHistogram();
+        for(int length = 1; length <= 10_000; length++) {
+            lengths.record(length);
+        }
+        assertEquals(10_000, lengths.getCount());
+        assertEquals(5000.5, lengths.getMean(), 0.001);
+        assertEquals(10_000, lengths.getMax());
+        assertEquals(10_000, lengths.getValueAtPercentile(100));
+        assertEquals(1, lengths.getValueAtPercentile(0));
+        for(double percentile: new double[] {50, 90, 99}) {
+            long exact = (long) (percentile * 100);
+            long value = lengths.getValueAtPercentile(percentile);
+            assertTrue(value >= exact && value <= exact * 1.04);
+        }
+
+        LengthHistogram shortLengths = new LengthHistogram();
+        for(int length: new int[] {3, 5, 7, 9}) {
+            shortLengths.record(length);
+        }
+        assertEquals(5, shortLengths.getValueAtPercentile(50));
+        assertEquals(9, shortLengths.getValueAtPercentile(99));
+    }
+
+    /**
+     * Tests if a time histogram doubles the width of its buckets once messages span more buckets than it holds,
+     * keeping every message counted
+     */
+    @Test
+    public void testTimeHistogram() {
+        TimeHistogram histogram = new TimeHistogram(60, 8);
+        histogram.record(1000);
+        histogram.record(1010);
+        histogram.record(1090);
+        assertEquals(60, histogram.getBucketSeconds());
+        assertEquals(Instant.ofEpochSecond(960), histogram.getStart());
+        assertArrayEquals(new long[] {2, 0, 1}, histogram.getCounts());
+
+        histogram.record(1500);
+        histogram.record(1510);
+        histogram.record(1520);
+        assertEquals(120, histogram.getBucketSeconds());
+        assertArrayEquals(new long[] {2, 1, 0, 0, 3}, histogram.getCounts());
+        assertEquals(Instant.ofEpochSecond(1440), histogram.getPeakStart());
+        assertEquals(3, histogram.getPeakCount());
+
+        // an earlier message moves the start back
+        histogram.record(700);
+        assertEquals(120, histogram.getBucketSeconds());
+        assertEquals(Instant.ofEpochSecond(600), histogram.getStart());
+        assertEquals(7, Arrays.stream(histogram.getCounts()).sum());
+
+        // years of messages still fit in the same number of buckets
+        histogram.record(1000 + 3 * 365 * 24 * 3600L);
+        assertTrue(histogram.getCounts().length <= 8);
+        assertEquals(8, Arrays.stream(histogram.getCounts()).sum());
+    }
+
+    /**
+     * Tests if the peak burst is the shortest time in which BURST_MESSAGES messages in a row were sent
+     */
+    @Test
+    public void testBurst() {
+        Analytics analytics = new Analytics();
+        long second = 1_000_000;
+        for(int i = 0; i < Analytics.BURST_MESSAGES * 3; i++) {
+            boolean burst = i >= Analytics.BURST_MESSAGES && i < Analytics.BURST_MESSAGES * 2;
+            second += burst ? (i % 50 == 0 ? 1 : 0) : 10;
+            analytics.record(new Message(Instant.ofEpochSecond(second), "bob", "hello"));
+        }
+        assertEquals(Analytics.BURST_MESSAGES, analytics.getBurstMessages());
+        assertEquals(1, analytics.getBurstSeconds());
+        assertEquals(Instant.ofEpochSecond(1_000_000 + Analytics.BURST_MESSAGES * 10 + 1), analytics.getBurstStart());
+    }
+
+    /**
+     * Tests if the analytics are added to the JSON output the same way however the export runs,
+     * and if formats that cannot hold them are turned down
+     */
+    @Test
+    public void testExportedAnalytics() throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        ExportOptions options = ExportOptions.builder().setQuiet(true).setAnalytics(true).setIncludeReport(true).build();
+        Path output = directory.resolve("chat.json");
+        ExportResult result = exporter.export(log.toString(), output.toString(), options);
+        String expected = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+
+        JsonObject analytics = new JsonParser().parse(expected).getAsJsonObject().getAsJsonObject("analytics");
+        assertEquals(7, analytics.get("messages").getAsInt());
+        JsonObject perMinute = analytics.getAsJsonObject("perMinute");
+        assertEquals(60, perMinute.get("bucketSeconds").getAsInt());
+        assertEquals(1448470860, perMinute.get("start").getAsLong());
+        assertEquals(7, perMinute.getAsJsonArray("counts").get(0).getAsInt());
+        assertEquals(14, analytics.getAsJsonObject("burst").get("seconds").getAsInt());
+        JsonObject bob = analytics.getAsJsonArray("messageLengths").get(0).getAsJsonObject();
+        assertEquals("bob", bob.get("sender").getAsString());
+        assertEquals(3, bob.get("messages").getAsInt());
+        assertEquals("I'm good thanks, do you like pie?".length(), bob.get("p50").getAsInt());
+        assertEquals("No, just want to know if there's anybody else in the pie society...".length(),
+                bob.get("max").getAsInt());
+        assertEquals(analytics, result.getExportedJson().getAsJsonObject().get("analytics"));
+
+        for(ExportOptions o: new ExportOptions[] {options.toBuilder().setStreaming(true).build(),
+                options.toBuilder().setPipelineWorkers(2).build()}) {
+            exporter.export(log.toString(), output.toString(), o);
+            assertEquals(expected, new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+        }
+
+        Path ndjson = directory.resolve("chat.ndjson");
+        exporter.export(log.toString(), ndjson.toString(), options.toBuilder().setNdjson(true).build());
+        List<String> lines = Files.readAllLines(ndjson, StandardCharsets.UTF_8);
+        JsonObject trailer = new JsonParser().parse(lines.get(lines.size() - 1)).getAsJsonObject();
+        assertEquals("analytics", trailer.get("type").getAsString());
+        assertEquals(analytics, trailer.get("analytics"));
+
+        try {
+            exporter.export(log.toString(), directory.resolve("chat.chatcol").toString(),
+                    options.toBuilder().setBinary(true).build());
+            fail("A binary archive should not take analytics");
+        } catch (IllegalArgumentException e) {
+            assertEquals("A binary archive cannot hold analytics", e.getMessage());
+        }
+        try(ColumnarConversationWriter w = new ColumnarConversationWriter(new ByteArrayOutputStream())) {
+            w.beginConversation("analytics");
+            w.endConversation(null, new Analytics());
+            fail("A binary archive should not take analytics");
+        } catch (IllegalArgumentException e) {
+            assertEquals("A binary archive cannot hold analytics", e.getMessage());
+        }
+    }
+}
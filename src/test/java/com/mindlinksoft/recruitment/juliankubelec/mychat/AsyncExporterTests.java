@@ -0,0 +1,112 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for exports run without blocking by the {@link AsyncExporter}.
+ */
+public class AsyncExporterTests {
+    private static final ExportOptions OPTIONS = ExportOptions.builder().setQuiet(true).setIncludeReport(true).build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path log;
+    private Path output;
+
+    @Before
+    public void createLog() throws IOException {
+        directory = folder.getRoot().toPath();
+        log = directory.resolve("chat.txt");
+        output = directory.resolve("chat.json");
+        Files.copy(Paths.get("chat.txt"), log);
+    }
+
+    /**
+     * Tests if the future completes with the result of the export, or with the exception the export threw
+     */
+    @Test
+    public void testExport() throws Exception {
+        try(AsyncExporter exporter = AsyncExporter.create(new ConversationExporter(), 2)) {
+            ExportResult result = exporter.export(log.toString(), output.toString(), OPTIONS).get(10, TimeUnit.SECONDS);
+            assertEquals(7, result.getConversation().getMessages().size());
+            assertEquals(3, result.getActivity().getReports().size());
+            assertTrue(Files.exists(output));
+
+            CompletableFuture<ExportResult> missing =
+                    exporter.export(directory.resolve("missing.txt").toString(), output.toString(), OPTIONS);
+            try {
+                missing.get(10, TimeUnit.SECONDS);
+                fail("The export of a missing file should fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+        }
+    }
+
+    /**
+     * Tests if an export that can't finish in time times out, and never runs once it has
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch busy = new CountDownLatch(1);
+        try(AsyncExporter exporter = new AsyncExporter(new ConversationExporter(), executor)) {
+            executor.submit(() -> {
+                busy.await();
+                return null;
+            });
+            CompletableFuture<ExportResult> result =
+                    exporter.export(log.toString(), output.toString(), OPTIONS, 50, TimeUnit.MILLISECONDS);
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("The export should have timed out");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+        } finally {
+            busy.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertFalse(Files.exists(output));
+    }
+
+    /**
+     * Tests if an export stops once its thread is interrupted, which is how a cancelled export is stopped
+     */
+    @Test
+    public void testInterrupted() throws Exception {
+        Thread.currentThread().interrupt();
+        try {
+            new ConversationExporter().export(log.toString(), output.toString(), OPTIONS);
+            fail("The export should have been interrupted");
+        } catch (InterruptedIOException e) {
+            assertTrue(Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link BatchExporter}.
+ */
+public class BatchExporterTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path input;
+    private Path output;
+
+    @Before
+    public void createLogs() throws IOException {
+        directory = folder.getRoot().toPath();
+        input = Files.createDirectory(directory.resolve("in"));
+        output = directory.resolve("out");
+        for(int i = 0; i < 5; i++) {
+            Files.copy(Paths.get("chat.txt"), input.resolve("chat" + i + ".txt"));
+        }
+        Files.write(input.resolve("empty.txt"), new byte[0]);
+        Files.write(input.resolve("malformed.txt"),
+                "My Conversation\nnot-a-message\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(input.resolve("notes.log"), "My Conversation\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests if every file of a directory is exported and bad files are reported without stopping the run
+     */
+    @Test
+    public void testIsolatesFailures() throws IOException {
+        BatchResult result = new BatchExporter(new ConversationExporter(), ExportOptions.DEFAULT, 2).export(input.toString(), output);
+
+        assertEquals(6, result.getExported());
+        assertFalse(result.isSuccessful());
+        List<String> failures = result.getFailures();
+        assertEquals(2, failures.size());
+        assertTrue(failures.get(0).contains("empty.txt"));
+        assertTrue(failures.get(1).contains("malformed.txt"));
+
+        byte[] expected = Files.readAllBytes(output.resolve("chat0.json"));
+        for(int i = 1; i < 5; i++) {
+            assertEquals(new String(expected, StandardCharsets.UTF_8),
+                    new String(Files.readAllBytes(output.resolve("chat" + i + ".json")), StandardCharsets.UTF_8));
+        }
+        assertTrue(result.toString().startsWith("Exported 6 of 8 files"));
+    }
+
+    /**
+     * Tests if inputs whose names only differ by their extension are each exported to a file of their own
+     */
+    @Test
+    public void testCollidingOutputs() throws IOException {
+        Files.write(input.resolve("chat0.log"), "Other Conversation\n1448470901 bob hi\n".getBytes(StandardCharsets.UTF_8));
+        BatchResult result = new BatchExporter(new ConversationExporter(), ExportOptions.DEFAULT, 2)
+                .export(input.resolve("chat0.*").toString(), output);
+
+        assertEquals(2, result.getExported());
+        assertTrue(result.isSuccessful());
+        assertFalse(Files.exists(output.resolve("chat0.json")));
+        assertTrue(new String(Files.readAllBytes(output.resolve("chat0.txt.json")), StandardCharsets.UTF_8)
+                .contains("My Conversation"));
+        assertTrue(new String(Files.readAllBytes(output.resolve("chat0.log.json")), StandardCharsets.UTF_8)
+                .contains("Other Conversation"));
+
+        Files.write(input.resolve("chat0.txt.json"), "Third Conversation\n".getBytes(StandardCharsets.UTF_8));
+        result = new BatchExporter(new ConversationExporter(), ExportOptions.DEFAULT, 2)
+                .export(input.resolve("chat0.*").toString(), output);
+        assertEquals(2, result.getExported());
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().get(0).contains("chat0.txt.json"));
+    }
+
+    /**
+     * Tests if the indexes, checkpoints and stats exports write next to the files of a directory
+     * are not exported themselves by the next run
+     */
+    @Test
+    public void testSkipsSidecars() throws IOException {
+        ExportOptions options = ExportOptions.builder().setFromTimestamp(0L).build();
+        Files.write(input.resolve("chat0.txt" + KeywordIndex.EXTENSION), new byte[] {1, 2, 3});
+        Files.write(input.resolve("chat0.json" + Checkpoint.EXTENSION), new byte[] {1, 2, 3});
+        Files.write(input.resolve("chat0.json" + ExportStats.EXTENSION), new byte[] {1, 2, 3});
+        for(int run = 0; run < 2; run++) {
+            BatchResult result = new BatchExporter(new ConversationExporter(), options, 2).export(input.toString(), output);
+            assertEquals(6, result.getExported());
+            assertEquals(2, result.getFailures().size());
+        }
+        assertTrue(Files.exists(TimeIndex.pathFor(input.resolve("chat0.txt"))));
+        try (Stream<Path> files = Files.list(output)) {
+            assertEquals(6, files.count());
+        }
+    }
+
+    /**
+     * Tests if a glob only exports the matching files, using the given options
+     */
+    @Test
+    public void testGlob() throws IOException {
+        BatchResult result = new BatchExporter(new ConversationExporter(),
+                ExportOptions.builder().setFilterUserId("bob").build(), 3).export(input.resolve("chat*.txt").toString(), output);
+
+        assertEquals(5, result.getExported());
+        assertTrue(result.isSuccessful());
+        try (Stream<Path> files = Files.list(output)) {
+            assertEquals(5, files.count());
+        }
+        String json = new String(Files.readAllBytes(output.resolve("chat3.json")), StandardCharsets.UTF_8);
+        assertFalse(json.contains("\"mike\""));
+        assertTrue(json.contains("\"bob\""));
+    }
+}
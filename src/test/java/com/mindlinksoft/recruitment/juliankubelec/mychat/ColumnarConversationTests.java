@@ -0,0 +1,193 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for binary columnar archives written by the {@link ColumnarConversationWriter}
+ * and read by the {@link ColumnarConversationReader}.
+ */
+public class ColumnarConversationTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path log;
+    private Path json;
+    private Path archive;
+    private Path rejson;
+
+    @Before
+    public void createLog() throws IOException {
+        directory = folder.getRoot().toPath();
+        log = directory.resolve("chat.txt");
+        json = directory.resolve("chat.json");
+        archive = directory.resolve("chat.chatcol.gz");
+        rejson = directory.resolve("rechat.json");
+        Files.copy(Paths.get("chat.txt"), log);
+    }
+
+    /**
+     * Tests if an archive holds the messages and report of the chat log,
+     * read either one message at a time or all at once
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        newExporter(true).exportConversation(log.toString(), archive.toString());
+        Conversation expected = new ConversationExporter().readConversation(log.toString());
+
+        try(ColumnarConversationReader r = new ColumnarConversationReader(CompressedFiles.openInput(archive.toString()))) {
+            assertEquals(expected.getName(), r.readName());
+            List<String> messages = new ArrayList<>();
+            Message m;
+            while((m = r.readMessage()) != null) {
+                messages.add(describe(m));
+            }
+            assertEquals(describeAll(expected), messages);
+            assertEquals(3, r.getReports().size());
+            assertEquals("bob", r.getReports().get(0).getSender());
+            assertEquals(3, r.getReports().get(0).getCount());
+        }
+        try(ColumnarConversationReader r = new ColumnarConversationReader(CompressedFiles.openInput(archive.toString()))) {
+            Conversation c = r.readConversation();
+            assertEquals(expected.getName(), c.getName());
+            assertEquals(describeAll(expected), describeAll(c));
+        }
+    }
+
+    /**
+     * Tests if exporting an archive to JSON gives the same JSON as exporting the chat log,
+     * whether the export streams or not
+     */
+    @Test
+    public void testReexport() throws Exception {
+        newExporter(false).exportConversation(log.toString(), json.toString());
+        newExporter(true).exportConversation(log.toString(), archive.toString());
+        for(boolean streaming: new boolean[] {false, true}) {
+            ConversationExporter exporter = newExporter(false);
+            exporter.setStreaming(streaming);
+            exporter.exportConversation(archive.toString(), rejson.toString());
+            assertArrayEquals(Files.readAllBytes(json), Files.readAllBytes(rejson));
+        }
+    }
+
+    /**
+     * Tests if messages flushed into row groups of their own, with senders first seen in later groups,
+     * are all read back, and an archive without a report has none
+     */
+    @Test
+    public void testRowGroups() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(ColumnarConversationWriter w = new ColumnarConversationWriter(out)) {
+            w.beginConversation("groups");
+            for(int i = 0; i < 5; i++) {
+                w.writeMessage(new Message(Instant.ofEpochSecond(1000 + i), "sender" + (i % 3), "message " + i));
+                if(i % 2 == 0) {
+                    w.flush();
+                }
+            }
+            w.endConversation(null);
+        }
+        try(ColumnarConversationReader r = new ColumnarConversationReader(new ByteArrayInputStream(out.toByteArray()))) {
+            Conversation c = r.readConversation();
+            assertEquals("groups", c.getName());
+            int i = 0;
+            for(Message m: c.getMessages()) {
+                assertEquals(describe(new Message(Instant.ofEpochSecond(1000 + i), "sender" + (i % 3), "message " + i)),
+                        describe(m));
+                i++;
+            }
+            assertEquals(5, i);
+            assertNull(r.getReports());
+        }
+    }
+
+    /**
+     * Tests if a trailer with more report entries than senders, or a report of an unknown sender, is rejected
+     */
+    @Test
+    public void testCorruptTrailer() throws Exception {
+        Message message = new Message(Instant.ofEpochSecond(1000), "bob", "hello");
+        Activity activity = new Activity();
+        activity.record(message);
+        activity.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(ColumnarConversationWriter w = new ColumnarConversationWriter(out)) {
+            w.beginConversation("trailer");
+            w.writeMessage(message);
+            w.endConversation(activity);
+        }
+        byte[] archive = out.toByteArray();
+        // the trailer ends with the number of report entries, then the sender id and count of the only entry
+        int[][] corruptions = {{archive.length - 12, Integer.MAX_VALUE}, {archive.length - 12, -2},
+                {archive.length - 8, 1}, {archive.length - 8, -1}};
+        for(int[] corruption: corruptions) {
+            byte[] corrupt = archive.clone();
+            ByteBuffer.wrap(corrupt).putInt(corruption[0], corruption[1]);
+            try(ColumnarConversationReader r = new ColumnarConversationReader(new ByteArrayInputStream(corrupt))) {
+                r.readConversation();
+                fail("A corrupt trailer should be rejected");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Tests if a file that isn't an archive is rejected
+     */
+    @Test(expected = IOException.class)
+    public void testNotAnArchive() throws Exception {
+        try(InputStream in = Files.newInputStream(log);
+            ColumnarConversationReader r = new ColumnarConversationReader(in)) {
+            r.readName();
+        }
+    }
+
+    /**
+     * Tests if a binary export still needs a ".chatcol" output
+     */
+    @Test(expected = IOException.class)
+    public void testExtension() throws Exception {
+        newExporter(true).exportConversation(log.toString(), json.toString());
+    }
+
+    private static ConversationExporter newExporter(boolean binary) {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setQuiet(true);
+        exporter.setIncludeReport(true);
+        exporter.setBinary(binary); //Usually set by including --binary in command line argument
+        return exporter;
+    }
+
+    private static List<String> describeAll(Conversation c) {
+        List<String> messages = new ArrayList<>();
+        for(Message m: c.getMessages()) {
+            messages.add(describe(m));
+        }
+        return messages;
+    }
+
+    private static String describe(Message m) {
+        return m.getTimestamp().getEpochSecond() + " " + m.getSenderId() + " " + m.getContent();
+    }
+}
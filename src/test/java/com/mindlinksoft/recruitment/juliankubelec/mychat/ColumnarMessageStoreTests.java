@@ -0,0 +1,65 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link ColumnarMessageStore}.
+ */
+public class ColumnarMessageStoreTests {
+
+    /**
+     * Tests if messages come back out of the columns as they went in
+     */
+    @Test
+    public void testStoresMessages() {
+        ColumnarMessageStore store = new ColumnarMessageStore();
+        store.addAll(TestHelper.prepareConversation().build().getMessages());
+        char[] big = new char[3 << 20];
+        Arrays.fill(big, 'é');
+        store.add(new Message(Instant.ofEpochSecond(1448470920), "mike", new String(big)));
+        store.add(new Message(Instant.ofEpochSecond(1448470921), "bob", ""));
+
+        assertEquals(9, store.size());
+        assertEquals(3, store.getSenders().size());
+
+        Message msg = store.get(2);
+        assertEquals(Instant.ofEpochSecond(1448470906), msg.getTimestamp());
+        assertEquals("bob", msg.getSenderId());
+        assertEquals("I'm good thanks, do you like pie?", msg.getContent());
+
+        assertEquals(new String(big), store.get(7).getContent());
+        assertEquals("", store.get(8).getContent());
+        assertEquals("YES! I'm the head pie eater there...", store.get(6).getContent());
+    }
+
+    /**
+     * Tests if the query plan filters a columnar conversation the same as a list of messages
+     */
+    @Test
+    public void testQueryPlanOnColumns() {
+        Conversation original = TestHelper.prepareConversation().build();
+        ColumnarMessageStore store = new ColumnarMessageStore();
+        store.addAll(original.getMessages());
+        Conversation columnar = new Conversation(original.getName(), store);
+
+        Conversation c = new ConversationBuilder(columnar)
+                .filter()
+                    .byUser("bob")
+                    .byKeyword("pie")
+                .build();
+
+        assertEquals(ColumnarMessageStore.class, c.getMessages().getClass());
+        Message[] ms = new Message[c.getMessages().size()];
+        c.getMessages().toArray(ms);
+        assertEquals(2, ms.length);
+        assertEquals(Instant.ofEpochSecond(1448470906), ms[0].getTimestamp());
+        assertEquals("I'm good thanks, do you like pie?", ms[0].getContent());
+        assertEquals(Instant.ofEpochSecond(1448470914), ms[1].getTimestamp());
+        assertEquals("No, just want to know if there's anybody else in the pie society...", ms[1].getContent());
+    }
+}
@@ -0,0 +1,123 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for exporting gzip-compressed chat logs and JSON with {@link CompressedFiles}.
+ */
+public class CompressedFilesTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path plainLog;
+    private Path log;
+
+    @Before
+    public void createLog() throws IOException {
+        directory = folder.getRoot().toPath();
+        plainLog = directory.resolve("chat.txt");
+        Files.copy(Paths.get("chat.txt"), plainLog);
+        log = directory.resolve("chat.txt.gz");
+        try(OutputStream out = new GZIPOutputStream(Files.newOutputStream(log))) {
+            Files.copy(Paths.get("chat.txt"), out);
+        }
+    }
+
+    /**
+     * Tests if a compressed log exported to compressed JSON holds the same JSON as a plain export,
+     * whichever way the log is read
+     */
+    @Test
+    public void testMatchesPlainExport() throws Exception {
+        for(int mode = 0; mode < 4; mode++) {
+            byte[] plain = export(plainLog.toString(), directory.resolve("plain.json"), mode);
+            Path compressed = directory.resolve("compressed.json.gz");
+            export(log.toString(), compressed, mode);
+            try(InputStream in = new GZIPInputStream(Files.newInputStream(compressed))) {
+                assertArrayEquals("mode " + mode, plain, readAll(in));
+            }
+        }
+    }
+
+    /**
+     * Tests if reading ahead gives back every byte in order, and reports a corrupt input to the reader
+     */
+    @Test
+    public void testReadAhead() throws IOException {
+        byte[] data = new byte[1 << 20];
+        new Random(3).nextBytes(data);
+        Path big = directory.resolve("big.gz");
+        try(OutputStream out = CompressedFiles.openOutput(big.toString())) {
+            out.write(data);
+        }
+        try(InputStream in = CompressedFiles.openInput(big.toString())) {
+            assertArrayEquals(data, readAll(in));
+            assertEquals(-1, in.read());
+        }
+
+        byte[] truncated = Files.readAllBytes(big);
+        Files.write(big, Arrays.copyOf(truncated, truncated.length / 2));
+        try(InputStream in = CompressedFiles.openInput(big.toString())) {
+            readAll(in);
+            fail("A truncated input should not be read to the end");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests if batch mode writes compressed JSON for compressed logs
+     */
+    @Test
+    public void testBatchOutputName() {
+        assertEquals("chat.json.gz", BatchExporter.outputFileName(Paths.get("logs", "chat.txt.gz")));
+        assertEquals("chat.json", BatchExporter.outputFileName(Paths.get("logs", "chat.txt")));
+    }
+
+    /**
+     * Exports with the default read, streaming, a parallel read or a time range
+     */
+    private static byte[] export(String input, Path output, int mode) throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setQuiet(true);
+        exporter.setIncludeReport(true);
+        exporter.setStreaming(mode == 1);
+        exporter.setParallel(mode == 2);
+        if(mode == 3) {
+            exporter.setFromTimestamp(1448470905L);
+            exporter.setToTimestamp(1448470913L);
+        }
+        exporter.exportConversation(input, output.toString());
+        return Files.readAllBytes(output);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while((n = in.read(buf)) >= 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
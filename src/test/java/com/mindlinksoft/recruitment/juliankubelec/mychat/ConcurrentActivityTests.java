@@ -0,0 +1,118 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for sender stats collected by several threads at once with a {@link ConcurrentActivity}.
+ */
+public class ConcurrentActivityTests {
+    private static final String[] SENDERS = {"bob", "mike", "angus"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path log;
+
+    @Before
+    public void createLog() throws IOException {
+        directory = folder.getRoot().toPath();
+        log = directory.resolve("chat.txt");
+        Files.copy(Paths.get("chat.txt"), log);
+    }
+
+    /**
+     * Tests if messages recorded by many threads, each into a shard of its own,
+     * add up to the same stats as recording them one after the other
+     */
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        List<Message> messages = new ArrayList<>();
+        for(int i = 0; i < 40_000; i++) {
+            messages.add(new Message(Instant.ofEpochSecond(1_000_000 + i), SENDERS[i % SENDERS.length],
+                    i % 7 == 0 ? "pie" : "hello"));
+        }
+        ConcurrentActivity sequential = new ConcurrentActivity();
+        ConcurrentActivity.Shard shard = sequential.newShard();
+        messages.forEach(shard::record);
+
+        ConcurrentActivity sharded = new ConcurrentActivity();
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++) {
+            int from = t * messages.size() / threads.length;
+            int to = (t + 1) * messages.size() / threads.length;
+            threads[t] = new Thread(() -> {
+                ConcurrentActivity.Shard own = sharded.newShard();
+                for(Message message: messages.subList(from, to)) {
+                    own.record(message);
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread: threads) {
+            thread.join();
+        }
+        List<SenderStats> expected = sequential.getSenderStats();
+        assertEquals(SENDERS.length, expected.size());
+        assertEquals("bob", expected.get(0).getSender());
+        assertEquals(Instant.ofEpochSecond(1_000_000), expected.get(0).getFirstTimestamp());
+        List<SenderStats> actual = sharded.getSenderStats();
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSender(), actual.get(i).getSender());
+            assertEquals(expected.get(i).getMessages(), actual.get(i).getMessages());
+            assertEquals(expected.get(i).getCharacters(), actual.get(i).getCharacters());
+            assertEquals(expected.get(i).getFirstTimestamp(), actual.get(i).getFirstTimestamp());
+            assertEquals(expected.get(i).getLastTimestamp(), actual.get(i).getLastTimestamp());
+        }
+    }
+
+    /**
+     * Tests if exports with a report return the stats of each sender when asked for, whether they are pipelined or not
+     */
+    @Test
+    public void testExportedSenderStats() throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        ExportOptions report = ExportOptions.builder().setQuiet(true).setIncludeReport(true).build();
+        ExportOptions options = report.toBuilder().setSenderStats(true).build();
+        String output = directory.resolve("chat.json").toString();
+        assertNull(exporter.export(log.toString(), output, ExportOptions.builder().setQuiet(true).setSenderStats(true).build())
+                .getSenderStats());
+        for(ExportOptions o: new ExportOptions[] {report, report.toBuilder().setPipelineWorkers(2).build()}) {
+            ExportResult result = exporter.export(log.toString(), output, o);
+            assertNull(result.getSenderStats());
+            assertEquals(3, (int) result.getActivity().getCounts().get("bob"));
+        }
+
+        for(ExportOptions o: new ExportOptions[] {options, options.toBuilder().setStreaming(true).build(),
+                options.toBuilder().setPipelineWorkers(2).build()}) {
+            List<SenderStats> senders = exporter.export(log.toString(), output, o).getSenderStats();
+            assertEquals(3, senders.size());
+            SenderStats bob = senders.get(0);
+            assertEquals("bob", bob.getSender());
+            assertEquals(3, bob.getMessages());
+            assertEquals("Hello there!".length() + "I'm good thanks, do you like pie?".length()
+                    + "No, just want to know if there's anybody else in the pie society...".length(),
+                    bob.getCharacters());
+            assertEquals(Instant.ofEpochSecond(1448470901), bob.getFirstTimestamp());
+            assertEquals(Instant.ofEpochSecond(1448470914), bob.getLastTimestamp());
+            assertEquals("mike", senders.get(1).getSender());
+            assertEquals("angus", senders.get(2).getSender());
+            assertEquals(2, senders.get(2).getMessages());
+        }
+    }
+}
@@ -119,4 +119,28 @@ public class ConversationBuilderTests {
         }
     }
 
+    /**
+     * Tests if filters and redaction combine into one plan, with filters run before redaction
+     * whatever order they were added in
+     */
+    @Test
+    public void testCombinedPlan()
+    {
+        ConversationBuilder cb = TestHelper.prepareConversation();
+        cb.redact()
+                .byBlacklistedWord("pie");
+        Conversation c = cb
+                .filter()
+                    .byUser("bob")
+                    .byKeyword("pie")
+                .build();
+
+        Message[] ms = new Message[c.getMessages().size()];
+        c.getMessages().toArray(ms);
+
+        assertEquals(2, ms.length);
+        assertEquals("I'm good thanks, do you like *redacted*?", ms[0].getContent());
+        assertEquals("No, just want to know if there's anybody else in the *redacted* society...", ms[1].getContent());
+    }
+
 }
@@ -7,11 +7,16 @@ import org.junit.Test;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for the {@link ConversationExporter}.
@@ -321,6 +326,132 @@ public class ConversationExporterTests {
         assertEquals(2, reportList[2].getCount());
     }
 
+    /**
+     * Tests if filterByUser, filterByKeyword, blacklist and report are all applied together
+     */
+    @Test
+    public void testCombinedOptions() throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setFilterUserId("bob");
+        exporter.setFilterKeyword("pie");
+        exporter.setBlacklist(Arrays.asList("pie", "no"));
+        exporter.setIncludeReport(true);
+        exporter.exportConversation(filepathIn, filepathOut);
+        Conversation c = exporter.getConversation();
+
+        Message[] ms = new Message[c.getMessages().size()];
+        c.getMessages().toArray(ms);
+        assertEquals(2, ms.length);
+
+        assertEquals(Instant.ofEpochSecond(1448470906), ms[0].getTimestamp());
+        assertEquals("bob", ms[0].getSenderId());
+        assertEquals("I'm good thanks, do you like *redacted*?", ms[0].getContent());
+
+        assertEquals(Instant.ofEpochSecond(1448470914), ms[1].getTimestamp());
+        assertEquals("bob", ms[1].getSenderId());
+        assertEquals("*redacted*, just want to know if there's anybody else in the *redacted* society...", ms[1].getContent());
+
+        Report[] reportList = new Gson().fromJson(exporter.getExportedJson().getAsJsonObject().get("activity"), Report[].class);
+        assertEquals(1, reportList.length);
+        assertEquals("bob", reportList[0].getSender());
+        assertEquals(2, reportList[0].getCount());
+    }
+
+    /**
+     * Tests if the streaming export writes exactly the same JSON as the default export
+     */
+    @Test
+    public void testStreamingMatchesExport() throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setIncludeReport(true);
+        exporter.exportConversation(filepathIn, filepathOut);
+        byte[] expected = Files.readAllBytes(Paths.get(filepathOut));
+
+        exporter = new ConversationExporter();
+        exporter.setIncludeReport(true);
+        exporter.setStreaming(true); //Usually set by including --stream in command line argument
+        exporter.exportConversation(filepathIn, filepathOut);
+        byte[] streamed = Files.readAllBytes(Paths.get(filepathOut));
+
+        assertEquals(new String(expected, StandardCharsets.UTF_8), new String(streamed, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests if the compact output holds the same JSON as the pretty printed output, without the indentation
+     */
+    @Test
+    public void testCompactOutput() throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setIncludeReport(true);
+        exporter.exportConversation(filepathIn, filepathOut);
+        String pretty = new String(Files.readAllBytes(Paths.get(filepathOut)), StandardCharsets.UTF_8);
+
+        exporter = new ConversationExporter();
+        exporter.setIncludeReport(true);
+        exporter.setCompact(true); //Usually set by including --compact in command line argument
+        exporter.exportConversation(filepathIn, filepathOut);
+        String compact = new String(Files.readAllBytes(Paths.get(filepathOut)), StandardCharsets.UTF_8);
+
+        assertFalse(compact.contains("\n"));
+        assertTrue(compact.length() < pretty.length());
+        JsonParser parser = new JsonParser();
+        assertEquals(parser.parse(pretty), parser.parse(compact));
+        assertEquals(exporter.getExportedJson(), parser.parse(compact));
+
+        exporter.setStreaming(true);
+        exporter.exportConversation(filepathIn, filepathOut);
+        assertEquals(compact, new String(Files.readAllBytes(Paths.get(filepathOut)), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests if holding the conversation in columns writes exactly the same JSON as the default export
+     */
+    @Test
+    public void testColumnarMatchesExport() throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setBlacklist(Arrays.asList("pie", "no"));
+        exporter.exportConversation(filepathIn, filepathOut);
+        byte[] expected = Files.readAllBytes(Paths.get(filepathOut));
+
+        exporter = new ConversationExporter();
+        exporter.setBlacklist(Arrays.asList("pie", "no"));
+        exporter.setColumnar(true); //Usually set by including --columnar in command line argument
+        exporter.exportConversation(filepathIn, filepathOut);
+        byte[] columnar = Files.readAllBytes(Paths.get(filepathOut));
+
+        assertEquals(new String(expected, StandardCharsets.UTF_8), new String(columnar, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests if the streaming export applies the filter before writing each message
+     */
+    @Test
+    public void testStreamingFilterByUser() throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setFilterUserId("angus");
+        exporter.setStreaming(true);
+        exporter.exportConversation(filepathIn, filepathOut);
+
+        GsonBuilder builder = new GsonBuilder();
+        builder.registerTypeAdapter(Instant.class, new InstantDeserializer());
+        Gson g = builder.create();
+        Conversation c = g.fromJson(new InputStreamReader(new FileInputStream(filepathOut)), Conversation.class);
+
+        assertEquals("My Conversation", c.getName());
+        assertEquals(2, c.getMessages().size());
+
+        Message[] ms = new Message[c.getMessages().size()];
+        c.getMessages().toArray(ms);
+
+        assertEquals(Instant.ofEpochSecond(1448470912), ms[0].getTimestamp());
+        assertEquals("angus", ms[0].getSenderId());
+        assertEquals("Hell yes! Are we buying some pie?", ms[0].getContent());
+
+        assertEquals(Instant.ofEpochSecond(1448470915), ms[1].getTimestamp());
+        assertEquals("angus", ms[1].getSenderId());
+        assertEquals("YES! I'm the head pie eater there...", ms[1].getContent());
+    }
+
     /**
      * Tests if the input is an empty text file
      */
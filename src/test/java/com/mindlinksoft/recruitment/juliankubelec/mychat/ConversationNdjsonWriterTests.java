@@ -0,0 +1,107 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for NDJSON exports written by the {@link ConversationNdjsonWriter}.
+ */
+public class ConversationNdjsonWriterTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path log;
+    private Path json;
+    private Path ndjson;
+
+    @Before
+    public void createLog() throws IOException {
+        directory = folder.getRoot().toPath();
+        log = directory.resolve("chat.txt");
+        json = directory.resolve("chat.json");
+        ndjson = directory.resolve("chat.ndjson");
+        Files.copy(Paths.get("chat.txt"), log);
+    }
+
+    /**
+     * Tests if every line is a record of its own holding the same values as the JSON document,
+     * whether the export streams or not
+     */
+    @Test
+    public void testMatchesJsonDocument() throws Exception {
+        newExporter(false, false).exportConversation(log.toString(), json.toString());
+        JsonObject document = parse(new String(Files.readAllBytes(json), StandardCharsets.UTF_8));
+        JsonArray messages = document.getAsJsonArray("messages");
+
+        for(boolean streaming: new boolean[] {false, true}) {
+            ConversationExporter exporter = newExporter(true, false);
+            exporter.setStreaming(streaming);
+            exporter.exportConversation(log.toString(), ndjson.toString());
+            List<String> lines = Files.readAllLines(ndjson, StandardCharsets.UTF_8);
+            assertEquals(messages.size() + 2, lines.size());
+
+            JsonObject header = parse(lines.get(0));
+            assertEquals("conversation", header.get("type").getAsString());
+            assertEquals(document.get("name"), header.get("name"));
+            for(int i = 0; i < messages.size(); i++) {
+                JsonObject record = parse(lines.get(i + 1));
+                assertEquals("message", record.remove("type").getAsString());
+                assertEquals(messages.get(i), record);
+            }
+            JsonObject trailer = parse(lines.get(lines.size() - 1));
+            assertEquals("activity", trailer.get("type").getAsString());
+            assertEquals(document.get("activity"), trailer.get("activity"));
+        }
+    }
+
+    /**
+     * Tests if an incremental NDJSON export carries on after the last message record
+     */
+    @Test
+    public void testIncremental() throws Exception {
+        newExporter(true, true).exportConversation(log.toString(), ndjson.toString());
+        Files.write(log, "\n1448470916 mike Cool pie\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        newExporter(true, true).exportConversation(log.toString(), ndjson.toString());
+        String incremental = new String(Files.readAllBytes(ndjson), StandardCharsets.UTF_8);
+
+        newExporter(true, false).exportConversation(log.toString(), ndjson.toString());
+        assertEquals(new String(Files.readAllBytes(ndjson), StandardCharsets.UTF_8), incremental);
+    }
+
+    /**
+     * Tests if a JSON document export still needs a ".json" output
+     */
+    @Test(expected = IOException.class)
+    public void testExtension() throws Exception {
+        newExporter(false, false).exportConversation(log.toString(), ndjson.toString());
+    }
+
+    private static ConversationExporter newExporter(boolean ndjson, boolean incremental) {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setQuiet(true);
+        exporter.setIncludeReport(true);
+        exporter.setIncremental(incremental);
+        exporter.setNdjson(ndjson); //Usually set by including --ndjson in command line argument
+        return exporter;
+    }
+
+    private static JsonObject parse(String json) {
+        return new JsonParser().parse(json).getAsJsonObject();
+    }
+}
@@ -0,0 +1,101 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for exports run with {@link ExportOptions} through a shared {@link ConversationExporter}.
+ */
+public class ExportOptionsTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path log;
+
+    @Before
+    public void createLog() throws IOException {
+        directory = folder.getRoot().toPath();
+        log = directory.resolve("chat.txt");
+        Files.copy(Paths.get("chat.txt"), log);
+    }
+
+    /**
+     * Tests if options keep their values once built, whatever happens to the builder or the blacklist after
+     */
+    @Test
+    public void testImmutable() {
+        List<String> blacklist = new ArrayList<>(Arrays.asList("pie", "no"));
+        ExportOptions.Builder builder = ExportOptions.builder().setFilterUserId("bob").setBlacklist(blacklist);
+        ExportOptions options = builder.build();
+        builder.setFilterUserId("mike");
+        blacklist.add("yes");
+
+        assertEquals("bob", options.getFilterUserId());
+        assertEquals(Arrays.asList("pie", "no"), options.getBlacklist());
+        assertEquals("mike", options.toBuilder().setFilterUserId("mike").build().getFilterUserId());
+        assertEquals("bob", options.getFilterUserId());
+        assertNull(ExportOptions.DEFAULT.getFilterUserId());
+        assertFalse(ExportOptions.DEFAULT.isIncludeReport());
+    }
+
+    /**
+     * Tests if one exporter running many exports at the same time, each with different options,
+     * writes what each export writes on its own
+     */
+    @Test
+    public void testConcurrentExports() throws Exception {
+        ExportOptions[] options = {
+                ExportOptions.builder().setQuiet(true).setFilterUserId("bob").build(),
+                ExportOptions.builder().setQuiet(true).setFilterKeyword("pie").setIncludeReport(true).build(),
+                ExportOptions.builder().setQuiet(true).setBlacklist(Arrays.asList("pie", "no")).setStreaming(true).build(),
+                ExportOptions.builder().setQuiet(true).setIncludeReport(true).setCompact(true).setColumnar(true).build(),
+        };
+        ConversationExporter exporter = new ConversationExporter();
+        List<String> expected = new ArrayList<>();
+        for(int i = 0; i < options.length; i++) {
+            Path output = directory.resolve("expected" + i + ".json");
+            exporter.export(log.toString(), output.toString(), options[i]);
+            expected.add(new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ExportResult>> results = new ArrayList<>();
+            for(int i = 0; i < 64; i++) {
+                ExportOptions o = options[i % options.length];
+                String output = directory.resolve("actual" + i + ".json").toString();
+                results.add(pool.submit(() -> exporter.export(log.toString(), output, o)));
+            }
+            for(int i = 0; i < results.size(); i++) {
+                ExportResult result = results.get(i).get();
+                assertEquals(expected.get(i % options.length),
+                        new String(Files.readAllBytes(directory.resolve("actual" + i + ".json")), StandardCharsets.UTF_8));
+                if(i % options.length == 0) {
+                    assertEquals(3, result.getConversation().getMessages().size());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertNull(exporter.getConversation());
+    }
+}
@@ -0,0 +1,121 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.mindlinksoft.recruitment.juliankubelec.mychat.exceptions.MalformedMessageException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for streaming exports run through an {@link ExportPipeline}.
+ */
+public class ExportPipelineTests {
+    private static final String[] SENDERS = {"bob", "mike", "angus", "eve", "dave"};
+    private static final String[] WORDS = {"pie", "hello", "no", "tea", "yes", "cake"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path log;
+
+    @Before
+    public void createLog() throws IOException {
+        directory = folder.getRoot().toPath();
+        log = directory.resolve("chat.txt");
+        // several batches per worker, with the last batch only partly filled
+        StringBuilder text = new StringBuilder("Long Conversation\n");
+        for(int i = 0; i < ExportPipeline.BATCH_SIZE * 7 + 100; i++) {
+            text.append(1448470901L + i).append(' ').append(SENDERS[i * 7 % SENDERS.length])
+                    .append(' ').append(WORDS[i % WORDS.length]).append(" message ").append(i).append('\n');
+        }
+        Files.write(log, text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests if items come out of the ring buffer in order, and if it refuses items once it is full
+     */
+    @Test
+    public void testRingBuffer() {
+        RingBuffer<Integer> ring = new RingBuffer<>(3);
+        assertNull(ring.poll());
+        for(int round = 0; round < 3; round++) {
+            for(int i = 0; i < 4; i++) {
+                assertTrue(ring.offer(round * 4 + i));
+            }
+            assertFalse(ring.offer(-1));
+            for(int i = 0; i < 4; i++) {
+                assertEquals(round * 4 + i, (int) ring.poll());
+            }
+            assertNull(ring.poll());
+        }
+    }
+
+    /**
+     * Tests if a pipelined export writes the same JSON and report as a single-threaded export,
+     * with one worker and with several
+     */
+    @Test
+    public void testSameAsStreaming() throws Exception {
+        ExportOptions options = ExportOptions.builder().setQuiet(true).setFilterKeyword("pie")
+                .setBlacklist(Arrays.asList("no", "tea")).setIncludeReport(true).setStreaming(true).build();
+        ConversationExporter exporter = new ConversationExporter();
+        Path expected = directory.resolve("expected.json");
+        exporter.export(log.toString(), expected.toString(), options);
+
+        for(int workers: new int[] {1, 3}) {
+            Path output = directory.resolve("pipeline" + workers + ".json");
+            ExportResult result = exporter.export(log.toString(), output.toString(),
+                    options.toBuilder().setStreaming(false).setPipelineWorkers(workers).setCollectStats(true).build());
+            assertEquals(new String(Files.readAllBytes(expected), StandardCharsets.UTF_8),
+                    new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+            assertEquals(SENDERS.length, result.getActivity().getReports().size());
+            assertEquals(ExportPipeline.BATCH_SIZE * 7 + 101, result.getStats().getLinesRead());
+        }
+    }
+
+    /**
+     * Tests if a failure in any stage stops the pipeline and is thrown to the caller
+     */
+    @Test
+    public void testFailure() throws Exception {
+        List<String> lines = new ArrayList<>(Files.readAllLines(log, StandardCharsets.UTF_8));
+        lines.add(ExportPipeline.BATCH_SIZE * 3, "malformed");
+        Files.write(log, lines, StandardCharsets.UTF_8);
+        ExportOptions options = ExportOptions.builder().setQuiet(true).setPipelineWorkers(2).build();
+        try {
+            new ConversationExporter().export(log.toString(), directory.resolve("chat.json").toString(), options);
+            fail("A malformed line should fail the export");
+        } catch (MalformedMessageException e) {
+            assertTrue(e.getMessage().contains("malformed"));
+        }
+
+        MessageOperator failing = msg -> {
+            throw new IllegalStateException("transform failed");
+        };
+        try(ConversationReader reader = new ConversationReader(new BufferedReader(new StringReader(
+                "Conversation\n1448470901 bob Hello there!\n")))) {
+            reader.readName();
+            new ExportPipeline(new MessageOperator[] {failing}).run(reader, msg -> { });
+            fail("A failing transform should fail the pipeline");
+        } catch (IllegalStateException e) {
+            assertEquals("transform failed", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link ExportServer}.
+ */
+public class ExportServerTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExportServer server;
+    private Thread serving;
+    private Path output;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new ExportServer(0, 2, 4);
+        serving = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        serving.start();
+        output = folder.newFile("served.json").toPath();
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.close();
+        serving.join(5000);
+    }
+
+    /**
+     * Tests if requests on one connection are exported with their options and answered in order
+     */
+    @Test
+    public void testExports() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("-i chat.txt -o \"" + output + "\" --filterByUser=bob --report\n");
+            out.write("-i missing.txt -o \"" + output + "\"\n");
+            out.write("-i chat.txt -o out.txt\n");
+            out.write("-i chat.txt --unknown\n");
+            out.write("-i chat.txt -o \"" + output + "\" --pipeline -1\n");
+            out.write("-i chat.txt -o \"" + output + "\" --filterByUser=bob --report\n");
+            out.flush();
+
+            assertTrue(in.readLine().startsWith("OK "));
+            assertTrue(in.readLine().startsWith("ERROR The file: \"missing.txt\""));
+            assertTrue(in.readLine().startsWith("ERROR Incorrect file extension"));
+            assertTrue(in.readLine().startsWith("ERROR "));
+            assertTrue(in.readLine().startsWith("ERROR "));
+            assertTrue(in.readLine().startsWith("OK "));
+        }
+
+        String json = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"activity\""));
+        assertFalse(json.contains("\"mike\""));
+    }
+
+    /**
+     * Tests if a client connecting while every connection is taken is answered with BUSY and disconnected
+     */
+    @Test
+    public void testConnectionLimit() throws Exception {
+        try (ExportServer limited = new ExportServer(0, 1, 1, 1)) {
+            Thread limitedServing = new Thread(() -> {
+                try {
+                    limited.serve();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            limitedServing.start();
+            try (Socket first = new Socket(InetAddress.getLoopbackAddress(), limited.getPort());
+                 BufferedReader in = new BufferedReader(new InputStreamReader(first.getInputStream(), StandardCharsets.UTF_8));
+                 Writer out = new OutputStreamWriter(first.getOutputStream(), StandardCharsets.UTF_8)) {
+                out.write("-i chat.txt -o \"" + output + "\"\n");
+                out.flush();
+                assertTrue(in.readLine().startsWith("OK "));
+
+                try (Socket second = new Socket(InetAddress.getLoopbackAddress(), limited.getPort());
+                     BufferedReader refused = new BufferedReader(new InputStreamReader(second.getInputStream(), StandardCharsets.UTF_8))) {
+                    assertEquals("BUSY", refused.readLine());
+                    assertNull(refused.readLine());
+                }
+            }
+            limited.close();
+            limitedServing.join(5000);
+        }
+    }
+
+    /**
+     * Tests if quoted arguments keep their whitespace
+     */
+    @Test
+    public void testSplitArguments() {
+        assertArrayEquals(new String[] {"-i", "my chat.txt", "-o", "out.json", "--blacklist=a b"},
+                ExportServer.splitArguments("  -i \"my chat.txt\" -o out.json  --blacklist=\"a b\" "));
+        assertEquals(0, ExportServer.splitArguments("   ").length);
+    }
+}
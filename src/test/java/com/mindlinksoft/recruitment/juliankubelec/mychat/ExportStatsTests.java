@@ -0,0 +1,96 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link ExportStats} collected by a {@link ConversationExporter}.
+ */
+public class ExportStatsTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path output;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = folder.getRoot().toPath();
+        output = directory.resolve("chat.json");
+    }
+
+    /**
+     * Tests if every stage counts the messages it passed on and dropped, whether the export streams or not
+     */
+    @Test
+    public void testCountsEachStage() throws Exception {
+        for(boolean streaming: new boolean[] {false, true}) {
+            ExportStats stats = export(streaming);
+            Map<String, ExportStats.Stage> stages = new HashMap<>();
+            for(ExportStats.Stage stage: stats.getStages()) {
+                stages.put(stage.getName(), stage);
+            }
+
+            assertEquals(7, stages.get(ExportStats.READ).getOut());
+            assertEquals(7, stages.get(ExportStats.FILTER_BY_USER).getIn());
+            assertEquals(3, stages.get(ExportStats.FILTER_BY_USER).getOut());
+            assertEquals(3, stages.get(ExportStats.REDACT).getOut());
+            assertEquals(2, stages.get(ExportStats.REDACT).getHits());
+            assertEquals(3, stages.get(ExportStats.REPORT).getOut());
+            assertEquals(3, stats.getMessagesWritten());
+            assertEquals(8, stats.getLinesRead());
+            assertEquals(Files.size(Paths.get("chat.txt")), stats.getBytesRead());
+            assertEquals(Files.size(output), stats.getBytesWritten());
+            assertTrue(stats.getTotalNanos() > 0);
+        }
+    }
+
+    /**
+     * Tests if the stats are saved as JSON next to the output, and only when they are asked for
+     */
+    @Test
+    public void testSidecar() throws Exception {
+        export(false);
+        JsonObject json = new JsonParser().parse(new String(
+                Files.readAllBytes(ExportStats.pathFor(output)), StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(3, json.get("messagesWritten").getAsInt());
+        assertEquals(4, json.getAsJsonArray("stages").get(1).getAsJsonObject().get("dropped").getAsInt());
+
+        Files.delete(ExportStats.pathFor(output));
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setQuiet(true);
+        exporter.exportConversation("chat.txt", output.toString());
+        assertNull(exporter.getStats());
+        assertFalse(Files.exists(ExportStats.pathFor(output)));
+    }
+
+    private ExportStats export(boolean streaming) throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setQuiet(true);
+        exporter.setStreaming(streaming);
+        exporter.setFilterUserId("bob");
+        exporter.setBlacklist(Collections.singletonList("pie"));
+        exporter.setIncludeReport(true);
+        exporter.setCollectStats(true); //Usually set by including --stats in command line argument
+        exporter.exportConversation("chat.txt", output.toString());
+        return exporter.getStats();
+    }
+}
@@ -0,0 +1,151 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the incremental export of a {@link ConversationExporter}.
+ */
+public class IncrementalExportTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path log;
+    private Path incremental;
+    private Path full;
+
+    @Before
+    public void createLog() throws IOException {
+        directory = folder.getRoot().toPath();
+        log = directory.resolve("chat.txt");
+        incremental = directory.resolve("incremental.json");
+        full = directory.resolve("full.json");
+        // chat.txt has no line break after its last message
+        Files.copy(Paths.get("chat.txt"), log);
+    }
+
+    /**
+     * Tests if exports that carry on from a checkpoint write the same JSON as a full export
+     */
+    @Test
+    public void testMatchesFullExport() throws Exception {
+        export(true);
+        assertEquals(fullExport(), read(incremental));
+
+        // the unfinished last message of chat.txt is completed and more messages are appended
+        append("\n1448470916 mike Cool pie\n1448470917 angus no\n");
+        export(true);
+        assertEquals(fullExport(), read(incremental));
+
+        Checkpoint checkpoint = Checkpoint.load(Checkpoint.pathFor(incremental));
+        assertNotNull(checkpoint);
+        assertEquals(Files.size(log), checkpoint.getInputOffset());
+        assertEquals(1448470917, checkpoint.getLastTimestamp());
+        assertEquals(9, checkpoint.getMessages());
+
+        append("1448470918 bob No pie\n");
+        export(true);
+        assertEquals(fullExport(), read(incremental));
+    }
+
+    /**
+     * Tests if only the lines after the checkpoint are parsed
+     */
+    @Test
+    public void testOnlyParsesNewLines() throws Exception {
+        append("\n");
+        export(true);
+        long offset = Checkpoint.load(Checkpoint.pathFor(incremental)).getInputOffset();
+        assertEquals(Files.size(log), offset);
+
+        append("1448470916 mike pie\n");
+        export(true);
+        String json = read(incremental);
+        assertTrue(json.contains("\"content\": \"*redacted*\""));
+        assertTrue(json.contains("\"sender\": \"mike\",\n      \"count\": 3"));
+    }
+
+    /**
+     * Tests if a line caught half-written is left out until it is complete, keeping the output valid
+     */
+    @Test
+    public void testSkipsHalfWrittenLine() throws Exception {
+        append("\n");
+        String expected = fullExport();
+        export(true);
+
+        append("14484");
+        export(true);
+        assertEquals(expected, read(incremental));
+
+        append("70916 mike Cool pie\n");
+        export(true);
+        assertEquals(fullExport(), read(incremental));
+        assertTrue(read(incremental).contains("\"content\": \"Cool *redacted*\""));
+    }
+
+    /**
+     * Tests if the conversation is exported again from the start when the options or the log change
+     */
+    @Test
+    public void testStartsOverWhenInvalidated() throws Exception {
+        append("\n");
+        export(true);
+
+        ConversationExporter exporter = newExporter(true);
+        exporter.setFilterUserId("bob");
+        exporter.exportConversation(log.toString(), incremental.toString());
+        exporter = newExporter(false);
+        exporter.setFilterUserId("bob");
+        exporter.exportConversation(log.toString(), full.toString());
+        assertEquals(read(full), read(incremental));
+
+        Files.write(log, "Other Conversation\n1448470901 bob hi\n".getBytes(StandardCharsets.UTF_8));
+        export(true);
+        assertEquals(fullExport(), read(incremental));
+        assertFalse(read(incremental).contains("My Conversation"));
+    }
+
+    private void export(boolean incrementally) throws Exception {
+        newExporter(incrementally).exportConversation(log.toString(),
+                (incrementally ? incremental : full).toString());
+    }
+
+    private ConversationExporter newExporter(boolean incrementally) {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setIncludeReport(true);
+        exporter.setBlacklist(Arrays.asList("pie"));
+        exporter.setIncremental(incrementally); //Usually set by including --incremental in command line argument
+        exporter.setQuiet(true);
+        return exporter;
+    }
+
+    private String fullExport() throws Exception {
+        export(false);
+        return read(full);
+    }
+
+    private void append(String lines) throws IOException {
+        Files.write(log, lines.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,149 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link KeywordIndex} and keyword filters that use it.
+ */
+public class KeywordIndexTests {
+    private static final String[] WORDS = {"pie", "Pie", "piece", "no", "know", "the", "head", "eater", "café", "society"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path log;
+
+    @Before
+    public void createLog() throws IOException {
+        directory = folder.getRoot().toPath();
+        log = directory.resolve("chat.txt");
+        Files.copy(Paths.get("chat.txt"), log);
+    }
+
+    /**
+     * Tests if exports saving the same index at the same time each write a temporary file of their own,
+     * leaving a complete index and no temporary file behind
+     */
+    @Test
+    public void testConcurrentSaves() throws Exception {
+        KeywordIndex built = KeywordIndex.build(log);
+        Path path = KeywordIndex.pathFor(log);
+        Thread[] threads = new Thread[8];
+        IOException[] failure = new IOException[1];
+        for(int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    for(int i = 0; i < 20; i++) {
+                        built.save(path);
+                    }
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread: threads) {
+            thread.join();
+        }
+        assertNull(failure[0]);
+        KeywordIndex index = KeywordIndex.load(path, log);
+        assertNotNull(index);
+        assertArrayEquals(new int[] {2, 4, 5, 6}, index.candidates("pie"));
+        try(Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    /**
+     * Tests if the candidates are every message containing all the trigrams of the keyword
+     */
+    @Test
+    public void testCandidates() throws IOException {
+        KeywordIndex.build(log).save(KeywordIndex.pathFor(log));
+        KeywordIndex index = KeywordIndex.load(KeywordIndex.pathFor(log), log);
+        assertNotNull(index);
+
+        assertArrayEquals(new int[] {2, 4, 5, 6}, index.candidates("pie"));
+        assertArrayEquals(new int[] {2, 4}, index.candidates("pie?"));
+        assertArrayEquals(new int[] {5}, index.candidates("No,"));
+        assertArrayEquals(new int[0], index.candidates("pies"));
+        assertNull(index.candidates("no"));
+        assertEquals(index.getBodyStart(), index.getOffset(0));
+        assertEquals("My Conversation\n1448470901 bob Hello there!\n".length(), index.getOffset(1));
+    }
+
+    /**
+     * Tests if keyword filters give the same export with and without the index
+     */
+    @Test
+    public void testMatchesScan() throws Exception {
+        Random random = new Random(7);
+        try (BufferedWriter w = Files.newBufferedWriter(log, StandardCharsets.UTF_8)) {
+            w.write("Indexed Conversation\n");
+            for(int i = 0; i < 3000; i++) {
+                w.write((1448470901L + i) + " user" + random.nextInt(5));
+                for(int j = 0; j < 1 + random.nextInt(8); j++) {
+                    w.write(" " + WORDS[random.nextInt(WORDS.length)]);
+                }
+                w.write("\n");
+            }
+        }
+        for(String keyword: new String[] {"pie", "Pie", "no", "e", "the head", "café s", "zzz", "know no",
+                "pie OR know", "the AND NOT head", "(café OR eater) AND society", "NOT no OR zzz"}) {
+            Files.deleteIfExists(KeywordIndex.pathFor(log));
+            ConversationExporter scanned = new ConversationExporter();
+            scanned.setQuiet(true);
+            scanned.setFilterKeyword(keyword);
+            scanned.exportConversation(log.toString(), directory.resolve("scanned.json").toString());
+
+            ConversationExporter indexed = new ConversationExporter();
+            indexed.setQuiet(true);
+            indexed.setFilterKeyword(keyword);
+            indexed.setBuildKeywordIndex(true); //Usually set by including --keywordIndex in command line argument
+            indexed.exportConversation(log.toString(), directory.resolve("indexed.json").toString());
+
+            assertTrue(Files.exists(KeywordIndex.pathFor(log)));
+            assertEquals(keyword, read(directory.resolve("scanned.json")), read(directory.resolve("indexed.json")));
+        }
+    }
+
+    /**
+     * Tests if an index is no longer used once the log has changed
+     */
+    @Test
+    public void testIgnoresStaleIndex() throws Exception {
+        KeywordIndex.build(log).save(KeywordIndex.pathFor(log));
+        Files.write(log, "\n1448470916 mike pie for everyone".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNull(KeywordIndex.load(KeywordIndex.pathFor(log), log));
+
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setQuiet(true);
+        exporter.setFilterKeyword("pie");
+        exporter.exportConversation(log.toString(), directory.resolve("scanned.json").toString());
+        assertEquals(5, exporter.getConversation().getMessages().size());
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+}
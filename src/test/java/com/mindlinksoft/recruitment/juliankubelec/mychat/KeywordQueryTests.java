@@ -0,0 +1,71 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link KeywordQuery}.
+ */
+public class KeywordQueryTests {
+    private static final String EATER = "YES! I'm the head pie eater there...";
+
+    /**
+     * Tests if AND, OR and NOT combine the keywords with the usual precedence
+     */
+    @Test
+    public void testBooleanOperators() {
+        assertTrue(KeywordQuery.parse("cake OR pie").matches(EATER));
+        assertFalse(KeywordQuery.parse("cake AND pie").matches(EATER));
+        assertTrue(KeywordQuery.parse("pie AND NOT cake").matches(EATER));
+        assertFalse(KeywordQuery.parse("NOT pie").matches(EATER));
+        assertTrue(KeywordQuery.parse("cake AND pie OR head").matches(EATER));
+        assertFalse(KeywordQuery.parse("cake AND (pie OR head)").matches(EATER));
+        assertTrue(KeywordQuery.parse("head pie AND \"AND\" OR eater").matches(EATER));
+        assertFalse(KeywordQuery.parse("pie head OR \"AND\"").matches(EATER));
+    }
+
+    /**
+     * Tests if text without operators is still a single keyword matched exactly as before
+     */
+    @Test
+    public void testLiteralKeyword() {
+        KeywordQuery query = KeywordQuery.parse("(pie eater)");
+        assertTrue(query.isLiteral());
+        assertFalse(query.matches(EATER));
+        assertTrue(KeywordQuery.parse("head  pie").isLiteral());
+        assertTrue(KeywordQuery.parse("pie and cake").isLiteral());
+        assertTrue(KeywordQuery.parse("the head").matches(EATER));
+        assertFalse(KeywordQuery.parse("pie OR cake").isLiteral());
+    }
+
+    /**
+     * Tests if the candidates of the terms are intersected, united, or given up on under NOT
+     */
+    @Test
+    public void testCandidates() {
+        Map<String, int[]> postings = new HashMap<>();
+        postings.put("pie", new int[] {1, 3, 5});
+        postings.put("cake", new int[] {2, 3, 6});
+
+        assertArrayEquals(new int[] {3}, KeywordQuery.parse("pie AND cake").candidates(postings::get));
+        assertArrayEquals(new int[] {1, 2, 3, 5, 6}, KeywordQuery.parse("pie OR cake").candidates(postings::get));
+        assertArrayEquals(new int[] {1, 3, 5}, KeywordQuery.parse("pie AND NOT cake").candidates(postings::get));
+        assertNull(KeywordQuery.parse("pie OR NOT cake").candidates(postings::get));
+        assertNull(KeywordQuery.parse("pie OR no").candidates(postings::get));
+    }
+
+    /**
+     * Tests if an incomplete query is rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQuery() {
+        KeywordQuery.parse("pie AND (cake OR");
+    }
+}
@@ -0,0 +1,84 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the {@link MappedConversationReader}.
+ */
+public class MappedConversationReaderTests {
+    private static final int MESSAGES = 2000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path log;
+
+    @Before
+    public void createLog() throws IOException {
+        log = folder.newFile("mapped.txt").toPath();
+        try (BufferedWriter w = Files.newBufferedWriter(log, StandardCharsets.UTF_8)) {
+            w.write("Mapped Conversation\r\n");
+            for(int i = 0; i < MESSAGES; i++) {
+                w.write((1448470901L + i) + " user" + (i % 5) + " message ünïcode " + i + "\r\n");
+            }
+        }
+    }
+
+    /**
+     * Tests if every message is read when lines cross the end of the mapped window
+     */
+    @Test
+    public void testReadsAcrossWindows() throws IOException {
+        try (MappedConversationReader r = new MappedConversationReader(log, null, 100)) {
+            assertEquals("Mapped Conversation", r.readName());
+            for(int i = 0; i < MESSAGES; i++) {
+                Message msg = r.readMessage();
+                assertEquals(Instant.ofEpochSecond(1448470901L + i), msg.getTimestamp());
+                assertEquals("user" + (i % 5), msg.getSenderId());
+                assertEquals("message ünïcode " + i, msg.getContent());
+            }
+            assertNull(r.readMessage());
+        }
+    }
+
+    /**
+     * Tests if only the messages from the filtered sender are returned
+     */
+    @Test
+    public void testFiltersBySender() throws IOException {
+        try (MappedConversationReader r = new MappedConversationReader(log, "user3", 64)) {
+            assertEquals("Mapped Conversation", r.readName());
+            for(int i = 3; i < MESSAGES; i += 5) {
+                Message msg = r.readMessage();
+                assertEquals(Instant.ofEpochSecond(1448470901L + i), msg.getTimestamp());
+                assertEquals("user3", msg.getSenderId());
+                assertEquals("message ünïcode " + i, msg.getContent());
+            }
+            assertNull(r.readMessage());
+        }
+    }
+
+    /**
+     * Tests if an empty file has no conversation name
+     */
+    @Test
+    public void testEmptyFile() throws IOException {
+        Files.write(log, new byte[0]);
+        try (MappedConversationReader r = new MappedConversationReader(log, null)) {
+            assertNull(r.readName());
+        }
+    }
+}
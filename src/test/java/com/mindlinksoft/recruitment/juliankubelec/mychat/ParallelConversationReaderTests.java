@@ -0,0 +1,122 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link ParallelConversationReader}.
+ */
+public class ParallelConversationReaderTests {
+    private static final int MESSAGES = 5000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path log;
+    private ForkJoinPool pool;
+
+    @Before
+    public void createLog() throws IOException {
+        log = folder.newFile("parallel.txt").toPath();
+        try (BufferedWriter w = Files.newBufferedWriter(log, StandardCharsets.UTF_8)) {
+            w.write("Big Conversation\r\n");
+            for(int i = 0; i < MESSAGES; i++) {
+                w.write((1448470901L + i) + " user" + (i % 7) + " message number " + i + " café\n");
+            }
+        }
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * Tests if the messages of every byte range come back in the order of the file
+     */
+    @Test
+    public void testKeepsMessageOrder() throws IOException {
+        Conversation c = new ParallelConversationReader(pool, 1024).read(log);
+
+        assertEquals("Big Conversation", c.getName());
+        assertEquals(MESSAGES, c.getMessages().size());
+        assertEquals(7, c.getSenders().size());
+        int i = 0;
+        for(Message msg: c.getMessages()) {
+            assertEquals(Instant.ofEpochSecond(1448470901L + i), msg.getTimestamp());
+            assertSame(c.getSenders().getSender(msg.getSenderKey()), msg.getSenderId());
+            assertEquals("user" + (i % 7), msg.getSenderId());
+            assertEquals("message number " + i + " café", msg.getContent());
+            i++;
+        }
+    }
+
+    /**
+     * Tests if a columnar read joins the store of every byte range in the order of the file,
+     * with the sender ids of one dictionary
+     */
+    @Test
+    public void testColumnarKeepsMessageOrder() throws IOException {
+        Conversation c = new ParallelConversationReader(pool, 1024).read(log, true);
+
+        assertTrue(c.getMessages() instanceof ColumnarMessageStore);
+        ColumnarMessageStore store = (ColumnarMessageStore) c.getMessages();
+        assertSame(c.getSenders(), store.getSenders());
+        assertEquals(MESSAGES, store.size());
+        assertEquals(7, c.getSenders().size());
+        for(int i = 0; i < MESSAGES; i++) {
+            assertEquals(1448470901L + i, store.getEpochSecond(i));
+            assertEquals("user" + (i % 7), c.getSenders().getSender(store.getSenderId(i)));
+            assertEquals("message number " + i + " café", store.getContent(i));
+        }
+        store.add(1, 0, "after the join");
+        assertEquals("message number " + (MESSAGES - 1) + " café", store.getContent(MESSAGES - 1));
+        assertEquals("after the join", store.getContent(MESSAGES));
+    }
+
+    /**
+     * Tests if the parallel reader reads chat.txt the same as the sequential reader
+     */
+    @Test
+    public void testMatchesSequentialReader() throws Exception {
+        Conversation expected = new ConversationExporter().readConversation("chat.txt");
+        Conversation c = new ParallelConversationReader(pool, 16).read(Paths.get("chat.txt"));
+
+        assertEquals(expected.getName(), c.getName());
+        Message[] ems = expected.getMessages().toArray(new Message[0]);
+        Message[] ms = c.getMessages().toArray(new Message[0]);
+        assertEquals(ems.length, ms.length);
+        for(int i = 0; i < ms.length; i++) {
+            assertEquals(ems[i].getTimestamp(), ms[i].getTimestamp());
+            assertEquals(ems[i].getSenderId(), ms[i].getSenderId());
+            assertEquals(ems[i].getContent(), ms[i].getContent());
+        }
+    }
+
+    /**
+     * Tests if an empty file is reported as having no conversation
+     */
+    @Test
+    public void testEmptyFile() throws IOException {
+        Files.write(log, new byte[0]);
+        assertNull(new ParallelConversationReader(pool, 1024).read(log));
+    }
+}
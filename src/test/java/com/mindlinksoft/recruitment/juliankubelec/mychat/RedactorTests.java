@@ -0,0 +1,60 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the {@link Redactor}.
+ */
+public class RedactorTests {
+
+    /**
+     * Tests if every blacklisted word is redacted in one pass, whichever case its first letter has
+     */
+    @Test
+    public void testRedactsEveryWord() {
+        Redactor redactor = new Redactor(Arrays.asList("pie", "no", "society"));
+
+        assertEquals("*redacted*, just want to know if there's anybody else in the *redacted* *redacted*...",
+                redactor.redact("No, just want to know if there's anybody else in the pie society..."));
+        assertEquals("*redacted* *redacted*", redactor.redact("Pie pie"));
+    }
+
+    /**
+     * Tests if only whole words are redacted and the rest of the word must match exactly
+     */
+    @Test
+    public void testRedactsWholeWordsOnly() {
+        Redactor redactor = new Redactor(Arrays.asList("pie", "no"));
+
+        assertEquals("pies, pier and know are not redacted", redactor.redact("pies, pier and know are not redacted"));
+        assertEquals("PIE stays", redactor.redact("PIE stays"));
+        assertEquals("(*redacted*)", redactor.redact("(pie)"));
+    }
+
+    /**
+     * Tests if the longest word wins when several blacklisted words start at the same place
+     */
+    @Test
+    public void testPrefersLongestWord() {
+        Redactor redactor = new Redactor(Arrays.asList("pie", "pie eater"));
+
+        assertEquals("YES! I'm the head *redacted* there...", redactor.redact("YES! I'm the head pie eater there..."));
+    }
+
+    /**
+     * Tests if messages without any blacklisted word are kept rather than copied
+     */
+    @Test
+    public void testKeepsUnchangedMessages() {
+        Redactor redactor = new Redactor(Arrays.asList("pie", "no"));
+        Message msg = new Message(Instant.ofEpochSecond(1448470901), "bob", "Hello there!");
+
+        assertSame(msg, redactor.redact(msg));
+    }
+}
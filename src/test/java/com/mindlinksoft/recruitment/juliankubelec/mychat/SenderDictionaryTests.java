@@ -0,0 +1,69 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the {@link SenderDictionary}.
+ */
+public class SenderDictionaryTests {
+
+    /**
+     * Tests if a sender gets the same id however it is looked up
+     */
+    @Test
+    public void testInternsSenders() {
+        SenderDictionary senders = new SenderDictionary();
+        byte[] line = "1448470901 renée hello".getBytes(StandardCharsets.UTF_8);
+
+        int id = senders.intern(line, 11, 17);
+        assertEquals(0, id);
+        assertEquals(id, senders.intern("renée"));
+        assertEquals(id, senders.intern("x renée y", 2, 7));
+        assertEquals(id, senders.lookup("renée"));
+        assertEquals(-1, senders.lookup("bob"));
+        assertEquals(1, senders.intern("bob"));
+        assertEquals(2, senders.size());
+        assertSame(senders.getSender(id), senders.getSender(senders.intern(line, 11, 17)));
+    }
+
+    /**
+     * Tests if ids stay stable while the tables grow
+     */
+    @Test
+    public void testGrows() {
+        SenderDictionary senders = new SenderDictionary();
+        for(int i = 0; i < 1000; i++) {
+            assertEquals(i, senders.intern("user" + i));
+        }
+        for(int i = 0; i < 1000; i++) {
+            byte[] sender = ("user" + i).getBytes(StandardCharsets.UTF_8);
+            assertEquals(i, senders.intern(sender, 0, sender.length));
+            assertEquals("user" + i, senders.getSender(i));
+        }
+        assertEquals(1000, senders.size());
+    }
+
+    /**
+     * Tests if a reader hands out one sender instance per distinct sender
+     */
+    @Test
+    public void testReaderSharesSenders() throws Exception {
+        ConversationReader r = new ConversationReader(new BufferedReader(new StringReader(
+                "My Conversation\n1448470901 bob Hello there!\n1448470905 mike how are you?\n1448470906 bob pie?")));
+        r.readName();
+        Message first = r.readMessage();
+        r.readMessage();
+        Message third = r.readMessage();
+
+        assertSame(first.getSenderId(), third.getSenderId());
+        assertEquals(first.getSenderKey(), third.getSenderKey());
+        assertEquals(2, r.getSenders().size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.mindlinksoft.recruitment.juliankubelec.mychat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link TimeIndex} and time-bounded exports.
+ */
+public class TimeIndexTests {
+    private static final int MESSAGES = 10000;
+    private static final long START = 1448470901L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path log;
+
+    @Before
+    public void createLog() throws IOException {
+        log = folder.newFile("timeindex.txt").toPath();
+        // two messages per second, so a window boundary can fall between messages with the same timestamp
+        try (BufferedWriter w = Files.newBufferedWriter(log, StandardCharsets.UTF_8)) {
+            w.write("Timed Conversation\n");
+            for(int i = 0; i < MESSAGES; i++) {
+                w.write((START + i / 2) + " user" + (i % 3) + " message " + i + "\n");
+            }
+        }
+    }
+
+    /**
+     * Tests if seeking never skips a message of the window
+     */
+    @Test
+    public void testSeek() throws IOException {
+        TimeIndex index = TimeIndex.build(log, 64);
+        assertTrue(index.isOrdered());
+        assertEquals("Timed Conversation\n".length(), index.getBodyStart());
+        for(long from = START - 1; from < START + MESSAGES / 2 + 1; from += 7) {
+            try (ChatLogTail tail = new ChatLogTail(log, index.seek(from))) {
+                assertTrue(tail.nextLine());
+                long first = tail.readTimestamp();
+                assertTrue(first <= Math.max(from, START));
+                // the first line read is less than one interval before the window
+                assertTrue(from - first <= 64 / 2 + 1);
+            }
+        }
+    }
+
+    /**
+     * Tests if a windowed export reads exactly the messages of the window and saves the index
+     */
+    @Test
+    public void testReadRange() throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setFromTimestamp(START + 1000);
+        exporter.setToTimestamp(START + 1010);
+        Conversation c = exporter.readConversationInRange(log.toString());
+
+        assertEquals("Timed Conversation", c.getName());
+        Message[] ms = c.getMessages().toArray(new Message[0]);
+        assertEquals(20, ms.length);
+        for(int i = 0; i < ms.length; i++) {
+            assertEquals("message " + (2000 + i), ms[i].getContent());
+        }
+        assertNotNull(TimeIndex.load(TimeIndex.pathFor(log), log));
+
+        exporter.setFromTimestamp(null);
+        assertEquals(2020, exporter.readConversationInRange(log.toString()).getMessages().size());
+        exporter.setFromTimestamp(START + MESSAGES);
+        exporter.setToTimestamp(null);
+        assertEquals(0, exporter.readConversationInRange(log.toString()).getMessages().size());
+    }
+
+    /**
+     * Tests if the index is rebuilt after the log grows, and if an unordered log is still read correctly
+     */
+    @Test
+    public void testRebuildsWhenChanged() throws Exception {
+        ConversationExporter exporter = new ConversationExporter();
+        exporter.setFromTimestamp(START);
+        exporter.readConversationInRange(log.toString());
+
+        Files.write(log, (START + "  out of order\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNull(TimeIndex.load(TimeIndex.pathFor(log), log));
+
+        exporter.setToTimestamp(START + 1);
+        Conversation c = exporter.readConversationInRange(log.toString());
+        assertFalse(TimeIndex.load(TimeIndex.pathFor(log), log).isOrdered());
+        Message[] ms = c.getMessages().toArray(new Message[0]);
+        assertEquals(3, ms.length);
+        assertEquals("out of order", ms[2].getContent());
+    }
+}